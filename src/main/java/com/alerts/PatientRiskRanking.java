@@ -0,0 +1,304 @@
+package com.alerts;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps the K patients with the highest risk score, updated one patient at a time.
+ * <p>
+ * Patients are split between two sorted sets, the best K and the rest, indexed by patient ID,
+ * so replacing one patient's score is O(log n). After an update that changes the top K, an
+ * immutable copy of it is published through a volatile field; {@link #getTopK()} just returns
+ * that copy, so the central monitor can poll it as often as it likes without taking any lock.
+ * </p>
+ * <p>
+ * Ingesting threads hand scores over with {@link #submit}, which never takes the ranking's lock:
+ * it records the patient's latest score in a concurrent map, and a single updater thread,
+ * started on the first submit, applies the scores with {@link #update}. Several scores of one
+ * patient submitted before the updater gets to them collapse into the last one. {@link #close()}
+ * applies what is still pending and stops the updater.
+ * </p>
+ */
+public class PatientRiskRanking implements Closeable {
+
+    /**
+     * A patient and its current risk score.
+     */
+    public static final class RankedPatient {
+        private final int patientId;
+        private final double score;
+
+        public RankedPatient(int patientId, double score) {
+            this.patientId = patientId;
+            this.score = score;
+        }
+
+        public int getPatientId() {
+            return patientId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return "Patient " + patientId + " (risk " + score + ")";
+        }
+    }
+
+    // Highest score first, ties broken by patient ID so the order is total
+    private static final Comparator<RankedPatient> BY_RISK =
+            Comparator.comparingDouble(RankedPatient::getScore).reversed()
+                    .thenComparingInt(RankedPatient::getPatientId);
+
+    private final int k;
+    // The best k entries and everything else; together they hold every ranked patient
+    private final TreeSet<RankedPatient> top = new TreeSet<>(BY_RISK);
+    private final TreeSet<RankedPatient> rest = new TreeSet<>(BY_RISK);
+    private final Map<Integer, RankedPatient> byPatient = new HashMap<>();
+    private volatile List<RankedPatient> topK = Collections.emptyList();
+
+    // Latest submitted score per patient that the updater has not applied yet
+    private final ConcurrentHashMap<Integer, Double> pending = new ConcurrentHashMap<>();
+    private volatile Thread updater;
+    private volatile boolean updaterIdle;
+    private volatile boolean updaterBusy;
+    private volatile boolean closed;
+    // Signalled by the updater after each pass while someone waits in awaitSubmitted
+    private final Object applied = new Object();
+    private volatile int awaiting;
+
+    /**
+     * @param k how many patients to keep in the published ranking
+     */
+    public PatientRiskRanking(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+    }
+
+    /**
+     * Sets a patient's risk score, adding the patient if it is not ranked yet. Runs in O(log n).
+     *
+     * @param patientId the patient ID
+     * @param score     the new risk score; higher means more at risk
+     */
+    public synchronized void update(int patientId, double score) {
+        RankedPatient previous = byPatient.get(patientId);
+        if (previous != null && previous.getScore() == score) {
+            return;
+        }
+        boolean changed = previous != null && top.remove(previous);
+        if (previous != null && !changed) {
+            rest.remove(previous);
+        }
+        RankedPatient current = new RankedPatient(patientId, score);
+        byPatient.put(patientId, current);
+        top.add(current);
+        rebalance();
+
+        if (changed || top.contains(current)) {
+            publish();
+        }
+    }
+
+    /**
+     * Hands a patient's new risk score to the updater thread without blocking, e.g. from a
+     * {@link com.data_management.RecordListener}. The score shows up in the ranking shortly after;
+     * once the ranking is closed, it is applied on the calling thread instead.
+     *
+     * @param patientId the patient ID
+     * @param score     the new risk score; higher means more at risk
+     */
+    public void submit(int patientId, double score) {
+        pending.put(patientId, score);
+        if (closed) {
+            // the updater may have stopped before seeing the score
+            applyPending();
+            return;
+        }
+        Thread thread = updater;
+        if (thread == null) {
+            startUpdater();
+        } else if (updaterIdle) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Waits until the scores submitted before this call have been applied.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return {@code true} if they were applied in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitSubmitted(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (applied) {
+            awaiting++;
+            try {
+                // the updater is marked busy before it takes a score out of the map, and marked
+                // idle again before it checks for waiters, so its signal cannot be missed
+                while (!pending.isEmpty() || updaterBusy) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(applied, remaining);
+                }
+                return true;
+            } finally {
+                awaiting--;
+            }
+        }
+    }
+
+    /**
+     * Applies the scores still pending and stops the updater thread. Scores submitted afterwards
+     * are applied on the submitting thread.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (pending) {
+            closed = true;
+            thread = updater;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        applyPending();
+    }
+
+    /**
+     * Removes a patient from the ranking, e.g. after discharge, along with a score submitted
+     * for it but not applied yet.
+     *
+     * @param patientId the patient ID
+     */
+    public synchronized void remove(int patientId) {
+        pending.remove(patientId);
+        RankedPatient previous = byPatient.remove(patientId);
+        if (previous == null) {
+            return;
+        }
+        if (top.remove(previous)) {
+            rebalance();
+            publish();
+        } else {
+            rest.remove(previous);
+        }
+    }
+
+    /**
+     * Returns the current top K without locking; the list is immutable and ordered by
+     * descending risk.
+     *
+     * @return the most at-risk patients
+     */
+    public List<RankedPatient> getTopK() {
+        return topK;
+    }
+
+    /**
+     * @param patientId the patient ID
+     * @return the patient's current score, or {@code NaN} if it is not ranked
+     */
+    public synchronized double getScore(int patientId) {
+        RankedPatient entry = byPatient.get(patientId);
+        return entry == null ? Double.NaN : entry.getScore();
+    }
+
+    /**
+     * @return the number of patients ranked
+     */
+    public synchronized int size() {
+        return byPatient.size();
+    }
+
+    // Restores |top| == min(k, n) and every entry of top ranking ahead of every entry of rest.
+    // Only one entry changes per call, so at most one move or swap is needed.
+    private void rebalance() {
+        if (top.size() > k) {
+            rest.add(top.pollLast());
+        } else if (top.size() < k && !rest.isEmpty()) {
+            top.add(rest.pollFirst());
+        }
+        if (!rest.isEmpty() && BY_RISK.compare(rest.first(), top.last()) < 0) {
+            RankedPatient promoted = rest.pollFirst();
+            rest.add(top.pollLast());
+            top.add(promoted);
+        }
+    }
+
+    // Only the first submits get here; the ranking's own lock is left to the updater
+    private void startUpdater() {
+        synchronized (pending) {
+            if (updater != null || closed) {
+                return;
+            }
+            Thread thread = new Thread(this::applySubmitted, "risk-ranking-updater");
+            thread.setDaemon(true);
+            updater = thread;
+            thread.start();
+        }
+    }
+
+    private void applySubmitted() {
+        while (true) {
+            if (pending.isEmpty()) {
+                if (closed) {
+                    return;
+                }
+                updaterIdle = true;
+                // a submit or close after this check sees the idle flag or unparks the thread
+                if (pending.isEmpty() && !closed) {
+                    LockSupport.park(this);
+                }
+                updaterIdle = false;
+                continue;
+            }
+            updaterBusy = true;
+            applyPending();
+            updaterBusy = false;
+            if (awaiting > 0) {
+                synchronized (applied) {
+                    applied.notifyAll();
+                }
+            }
+        }
+    }
+
+    // Taking a score out and applying it under the lock keeps a patient's scores in order when
+    // a submit after close() applies them alongside the updater's last pass
+    private void applyPending() {
+        for (Integer patientId : pending.keySet()) {
+            synchronized (this) {
+                Double score = pending.remove(patientId);
+                if (score != null) {
+                    update(patientId, score);
+                }
+            }
+        }
+    }
+
+    private void publish() {
+        topK = Collections.unmodifiableList(new ArrayList<>(top));
+    }
+}
@@ -0,0 +1,126 @@
+package com.alerts;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.RecordListener;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns incoming vital signs into per-patient risk scores for a {@link PatientRiskRanking}.
+ * <p>
+ * Registered as a {@link RecordListener} on a {@link DataStorage}, the scorer remembers each
+ * patient's latest saturation, blood pressure and heart rate, and re-scores only the patient
+ * whose sample just arrived, handing the score to the ranking with
+ * {@link PatientRiskRanking#submit}. The score is an early-warning style sum of points, using
+ * the same critical limits as the alert strategies:
+ * </p>
+ * <ul>
+ *     <li>Saturation: &lt; 92% = 3, &lt; 94% = 2, &lt; 96% = 1</li>
+ *     <li>Systolic: &le; 90 or &ge; 180 mmHg = 3, &le; 100 = 2, &le; 110 = 1</li>
+ *     <li>Diastolic: &le; 60 or &ge; 120 mmHg = 3</li>
+ *     <li>Heart rate: &lt; 40 or &gt; 130 bpm = 3, &gt; 110 = 2, &lt; 50 or &gt; 100 = 1</li>
+ * </ul>
+ * Other record types (ECG, blood levels) do not change the score.
+ */
+public class PatientRiskScorer implements RecordListener {
+    private static final int SATURATION = 0;
+    private static final int SYSTOLIC = 1;
+    private static final int DIASTOLIC = 2;
+    private static final int HEART_RATE = 3;
+
+    private final PatientRiskRanking ranking;
+    // Latest value per vital sign; NaN until the first sample arrives
+    private final Map<Integer, double[]> latestVitals = new ConcurrentHashMap<>();
+
+    /**
+     * @param ranking the ranking to feed with updated scores
+     */
+    public PatientRiskScorer(PatientRiskRanking ranking) {
+        this.ranking = ranking;
+    }
+
+    /**
+     * Creates a ranking of the {@code k} most at-risk patients that is kept up to date by the
+     * samples arriving in {@code storage}.
+     *
+     * @param storage the storage to listen to
+     * @param k       the number of patients to rank
+     * @return the live ranking
+     */
+    public static PatientRiskRanking attach(DataStorage storage, int k) {
+        PatientRiskRanking ranking = new PatientRiskRanking(k);
+        storage.addRecordListener(new PatientRiskScorer(ranking));
+        return ranking;
+    }
+
+    @Override
+    public void onRecordAdded(PatientRecord record) {
+        int vital = vitalIndex(record.getRecordType());
+        if (vital < 0) {
+            return;
+        }
+        // Records of one patient are delivered serially, so the array needs no locking
+        double[] vitals = latestVitals.computeIfAbsent(record.getPatientId(), id -> {
+            double[] values = new double[4];
+            Arrays.fill(values, Double.NaN);
+            return values;
+        });
+        vitals[vital] = record.getMeasurementValue();
+        // applied on the ranking's updater thread, so ingest never waits for the ranking's lock
+        ranking.submit(record.getPatientId(), score(vitals));
+    }
+
+    private static int vitalIndex(String recordType) {
+        switch (recordType) {
+            case "Saturation":
+                return SATURATION;
+            case "SystolicPressure":
+                return SYSTOLIC;
+            case "DiastolicPressure":
+                return DIASTOLIC;
+            case "HeartRate":
+                return HEART_RATE;
+            default:
+                return -1;
+        }
+    }
+
+    static double score(double[] vitals) {
+        return saturationPoints(vitals[SATURATION])
+                + systolicPoints(vitals[SYSTOLIC])
+                + diastolicPoints(vitals[DIASTOLIC])
+                + heartRatePoints(vitals[HEART_RATE]);
+    }
+
+    private static int saturationPoints(double spo2) {
+        if (Double.isNaN(spo2)) return 0;
+        if (spo2 < 92) return 3;
+        if (spo2 < 94) return 2;
+        if (spo2 < 96) return 1;
+        return 0;
+    }
+
+    private static int systolicPoints(double systolic) {
+        if (Double.isNaN(systolic)) return 0;
+        if (systolic <= 90 || systolic >= 180) return 3;
+        if (systolic <= 100) return 2;
+        if (systolic <= 110) return 1;
+        return 0;
+    }
+
+    private static int diastolicPoints(double diastolic) {
+        if (Double.isNaN(diastolic)) return 0;
+        return (diastolic <= 60 || diastolic >= 120) ? 3 : 0;
+    }
+
+    private static int heartRatePoints(double hr) {
+        if (Double.isNaN(hr)) return 0;
+        if (hr < 40 || hr > 130) return 3;
+        if (hr > 110) return 2;
+        if (hr < 50 || hr > 100) return 1;
+        return 0;
+    }
+}
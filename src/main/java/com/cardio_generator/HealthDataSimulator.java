@@ -2,6 +2,8 @@ package com.cardio_generator;
 
 import com.cardio_generator.generators.*;
 import com.cardio_generator.outputs.*;
+import com.data_management.DataStorage;
+import com.data_management.WireFormat;
 
 import java.io.IOException;
 import java.nio.file.*;
@@ -72,19 +74,42 @@ public class HealthDataSimulator {
     private void configureOutput(String outputArg) throws IOException {
         if (outputArg.equals("console")) {
             outputStrategy = new ConsoleOutputStrategy();
+        } else if (outputArg.equals("inproc")) {
+            // samples go straight into this process's DataStorage, without text or sockets
+            outputStrategy = new InProcessOutputStrategy(DataStorage.getInstance());
+            System.out.println("In-process output into DataStorage");
         } else if (outputArg.startsWith("file:")) {
+            // file:<dir> or file:<dir>?gzip=true
             String baseDir = outputArg.substring(5);
+            int query = baseDir.indexOf('?');
+            boolean gzip = query >= 0 && baseDir.substring(query + 1).contains("gzip=true");
+            if (query >= 0) baseDir = baseDir.substring(0, query);
             Path path = Paths.get(baseDir);
             if (!Files.exists(path)) Files.createDirectories(path);
-            outputStrategy = new FileOutputStrategy(baseDir);
+            FileOutputStrategy fileOutput = new FileOutputStrategy(baseDir, gzip);
+            if (gzip) {
+                // finish the open segments on shutdown; unfinished ones are still readable up to the last flush
+                Runtime.getRuntime().addShutdownHook(new Thread(fileOutput::close, "file-output-close"));
+            }
+            outputStrategy = fileOutput;
         } else if (outputArg.startsWith("websocket:")) {
-            int port = Integer.parseInt(outputArg.substring(10));
-            outputStrategy = new WebSocketOutputStrategy(port);
-            System.out.println("WebSocket output on port: " + port);
+            // websocket:<port> or websocket:<port>?deflate=true
+            String portArg = outputArg.substring(10);
+            int query = portArg.indexOf('?');
+            boolean deflate = query >= 0 && portArg.substring(query + 1).contains("deflate=true");
+            int port = Integer.parseInt(query < 0 ? portArg : portArg.substring(0, query));
+            outputStrategy = new WebSocketOutputStrategy(WebSocketOutputStrategy.createDefaultServer(port, deflate),
+                    1, 0, WebSocketOutputStrategy.DEFAULT_REPLAY_CAPACITY, SlowClientPolicy.DROP_OLDEST,
+                    WebSocketOutputStrategy.DEFAULT_MAX_QUEUED_MESSAGES);
+            System.out.println("WebSocket output on port: " + port + (deflate ? " (permessage-deflate)" : ""));
         } else if (outputArg.startsWith("tcp:")) {
-            int port = Integer.parseInt(outputArg.substring(4));
-            outputStrategy = new TcpOutputStrategy(port);
-            System.out.println("TCP output on port: " + port);
+            // tcp:<port> or tcp:<port>?format=binary
+            String portArg = outputArg.substring(4);
+            int query = portArg.indexOf('?');
+            WireFormat format = query < 0 ? WireFormat.TEXT : WireFormat.fromQuery(portArg.substring(query));
+            int port = Integer.parseInt(query < 0 ? portArg : portArg.substring(0, query));
+            outputStrategy = new TcpOutputStrategy(port, format);
+            System.out.println("TCP output on port: " + port + " (" + format + ")");
         } else {
             System.err.println("Unknown output type. Using default (console).");
         }
@@ -94,7 +119,7 @@ public class HealthDataSimulator {
         System.out.println("Usage: java HealthDataSimulator [options]");
         System.out.println("  -h                         Show help");
         System.out.println("  --patient-count <count>   Number of patients (default 50)");
-        System.out.println("  --output <type>           Output type: console, file:<dir>, websocket:<port>, tcp:<port>");
+        System.out.println("  --output <type>           Output type: console, inproc, file:<dir>[?gzip=true], websocket:<port>[?deflate=true], tcp:<port>[?format=binary]");
     }
 
     private List<Integer> initializePatientIds(int count) {
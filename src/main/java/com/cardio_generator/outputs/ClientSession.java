@@ -0,0 +1,229 @@
+package com.cardio_generator.outputs;
+
+import com.data_management.WireFormat;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.extensions.CompressionExtension;
+import org.java_websocket.framing.Framedata;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Outbound state of one client of {@link WebSocketOutputStrategy}, kept as the connection's
+ * attachment: the options chosen in the handshake URI and a bounded queue of messages not yet
+ * handed to the socket.
+ * <p>
+ * A message goes straight to the socket while Java-WebSocket's own send queue for the
+ * connection holds fewer than {@link #SOCKET_BACKLOG_LIMIT} frames. Beyond that the client is
+ * falling behind, and messages wait here under the {@link SlowClientPolicy}, which keeps the
+ * memory spent on one slow client bounded. Methods must be called while holding the strategy's
+ * lock, which also keeps shared frames from being sent by two threads at once.
+ * </p>
+ */
+final class ClientSession {
+    /** Frames queued in Java-WebSocket for a connection above which it counts as behind. */
+    static final int SOCKET_BACKLOG_LIMIT = 8;
+
+    final WireFormat format;
+    final boolean sequenced;
+    // set once the client may receive live messages, i.e. after its replay
+    volatile boolean live;
+
+    private final SlowClientPolicy policy;
+    private final int maxQueuedMessages;
+    private final ArrayDeque<Message> queue = new ArrayDeque<>();
+    private int queuedSamples;
+    // latest sample per series while conflating, in order of first appearance
+    private final Map<SeriesKey, Latest> conflated = new LinkedHashMap<>();
+    private long conflatingSinceNanos;
+    private long sentMessages;
+    private long droppedSamples;
+    private long conflatedSamples;
+
+    ClientSession(WireFormat format, boolean sequenced, SlowClientPolicy policy, int maxQueuedMessages) {
+        this.format = format;
+        this.sequenced = sequenced;
+        this.policy = policy;
+        this.maxQueuedMessages = maxQueuedMessages;
+    }
+
+    /**
+     * Sends {@code message} to the client or holds it back according to the policy. The samples
+     * of the message are passed as well for conflation.
+     *
+     * @return {@code false} if the client is too slow and must be disconnected
+     */
+    boolean offer(WebSocket conn, Message message, int[] patientIds, long[] timestamps,
+                  String[] labels, String[] values, int count) {
+        if (policy == SlowClientPolicy.CONFLATE) {
+            if (conflated.isEmpty() && !isBehind(conn)) {
+                send(conn, message);
+                return true;
+            }
+            if (conflated.isEmpty()) {
+                conflatingSinceNanos = message.createdNanos;
+            }
+            for (int i = 0; i < count; i++) {
+                if (conflated.put(new SeriesKey(patientIds[i], labels[i]), new Latest(timestamps[i], values[i])) != null) {
+                    conflatedSamples++;
+                }
+            }
+            drain(conn);
+            return true;
+        }
+        if (queue.isEmpty() && !isBehind(conn)) {
+            send(conn, message);
+            return true;
+        }
+        if (queue.size() >= maxQueuedMessages) {
+            if (policy == SlowClientPolicy.DISCONNECT) {
+                return false;
+            }
+            Message oldest = queue.poll();
+            queuedSamples -= oldest.sampleCount;
+            droppedSamples += oldest.sampleCount;
+        }
+        queue.add(message);
+        queuedSamples += message.sampleCount;
+        drain(conn);
+        return true;
+    }
+
+    /**
+     * Hands waiting messages to the socket as far as its backlog allows. Conflated samples are
+     * sent as one message without sequence number, since they are not consecutive.
+     */
+    void drain(WebSocket conn) {
+        while (!queue.isEmpty() && !isBehind(conn)) {
+            Message message = queue.poll();
+            queuedSamples -= message.sampleCount;
+            send(conn, message);
+        }
+        if (!conflated.isEmpty() && !isBehind(conn)) {
+            int count = conflated.size();
+            int[] patientIds = new int[count];
+            long[] timestamps = new long[count];
+            String[] labels = new String[count];
+            String[] values = new String[count];
+            int i = 0;
+            for (Map.Entry<SeriesKey, Latest> entry : conflated.entrySet()) {
+                patientIds[i] = entry.getKey().patientId;
+                labels[i] = entry.getKey().label;
+                timestamps[i] = entry.getValue().timestamp;
+                values[i] = entry.getValue().value;
+                i++;
+            }
+            conflated.clear();
+            Object payload = format == WireFormat.BINARY
+                    ? WebSocketOutputStrategy.encodeFrames(patientIds, timestamps, labels, values, count, -1)
+                    : WebSocketOutputStrategy.textMessage(patientIds, timestamps, labels, values, count, -1).toString();
+            send(conn, new Message(payload, count));
+        }
+    }
+
+    /**
+     * @return {@code true} if messages are waiting, so {@link #drain} has work to do
+     */
+    boolean hasWaiting() {
+        return !queue.isEmpty() || !conflated.isEmpty();
+    }
+
+    ClientStats stats(WebSocket conn) {
+        long oldestNanos = !queue.isEmpty() ? queue.peek().createdNanos
+                : !conflated.isEmpty() ? conflatingSinceNanos : 0;
+        long lagMillis = oldestNanos == 0 ? 0 : (System.nanoTime() - oldestNanos) / 1_000_000;
+        return new ClientStats(String.valueOf(conn.getRemoteSocketAddress()), queue.size(),
+                queuedSamples + conflated.size(), lagMillis, sentMessages, droppedSamples, conflatedSamples);
+    }
+
+    private void send(WebSocket conn, Message message) {
+        try {
+            conn.sendFrame(message.framesFor(conn.getDraft()));
+            sentMessages++;
+        } catch (WebsocketNotConnectedException e) {
+            // closed meanwhile; the server forgets the connection
+        }
+    }
+
+    private static boolean isBehind(WebSocket conn) {
+        return conn instanceof WebSocketImpl && ((WebSocketImpl) conn).outQueue.size() >= SOCKET_BACKLOG_LIMIT;
+    }
+
+    /**
+     * One outbound message, a text {@code String} or binary {@code ByteBuffer}, shared by all
+     * clients it is sent to. The WebSocket frames are built once per protocol draft, except for
+     * connections with permessage-deflate: their extension compresses frames in place with the
+     * connection's own compression context, so those get frames of their own.
+     */
+    static final class Message {
+        private final Object payload;
+        final int sampleCount;
+        final long createdNanos = System.nanoTime();
+        private final Map<Draft, List<Framedata>> frames = new HashMap<>(2);
+
+        Message(Object payload, int sampleCount) {
+            this.payload = payload;
+            this.sampleCount = sampleCount;
+        }
+
+        Object payload() {
+            return payload;
+        }
+
+        List<Framedata> framesFor(Draft draft) {
+            if (draft instanceof Draft_6455 && ((Draft_6455) draft).getExtension() instanceof CompressionExtension) {
+                return createFrames(draft);
+            }
+            return frames.computeIfAbsent(draft, this::createFrames);
+        }
+
+        private List<Framedata> createFrames(Draft draft) {
+            return payload instanceof String
+                    ? draft.createFrames((String) payload, false)
+                    : draft.createFrames(((ByteBuffer) payload).duplicate(), false);
+        }
+    }
+
+    private static final class Latest {
+        final long timestamp;
+        final String value;
+
+        Latest(long timestamp, String value) {
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+    }
+
+    private static final class SeriesKey {
+        final int patientId;
+        final String label;
+
+        SeriesKey(int patientId, String label) {
+            this.patientId = patientId;
+            this.label = label;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SeriesKey)) {
+                return false;
+            }
+            SeriesKey other = (SeriesKey) o;
+            return patientId == other.patientId && label.equals(other.label);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(patientId, label);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.cardio_generator.outputs;
+
+/**
+ * Snapshot of the outbound state of one client of {@link WebSocketOutputStrategy}.
+ */
+public final class ClientStats {
+    private final String remoteAddress;
+    private final int queuedMessages;
+    private final int queuedSamples;
+    private final long lagMillis;
+    private final long sentMessages;
+    private final long droppedSamples;
+    private final long conflatedSamples;
+
+    ClientStats(String remoteAddress, int queuedMessages, int queuedSamples, long lagMillis,
+                long sentMessages, long droppedSamples, long conflatedSamples) {
+        this.remoteAddress = remoteAddress;
+        this.queuedMessages = queuedMessages;
+        this.queuedSamples = queuedSamples;
+        this.lagMillis = lagMillis;
+        this.sentMessages = sentMessages;
+        this.droppedSamples = droppedSamples;
+        this.conflatedSamples = conflatedSamples;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * @return the number of messages waiting in the client's queue
+     */
+    public int getQueuedMessages() {
+        return queuedMessages;
+    }
+
+    /**
+     * @return the number of samples waiting for the client, queued or conflated
+     */
+    public int getQueuedSamples() {
+        return queuedSamples;
+    }
+
+    /**
+     * @return how long the oldest waiting sample has been waiting, 0 if none is
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getSentMessages() {
+        return sentMessages;
+    }
+
+    /**
+     * @return the number of samples discarded by {@link SlowClientPolicy#DROP_OLDEST}
+     */
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    /**
+     * @return the number of samples replaced by a newer one under {@link SlowClientPolicy#CONFLATE}
+     */
+    public long getConflatedSamples() {
+        return conflatedSamples;
+    }
+
+    @Override
+    public String toString() {
+        return remoteAddress + ": queued=" + queuedMessages + " messages/" + queuedSamples + " samples, lag="
+                + lagMillis + "ms, sent=" + sentMessages + ", dropped=" + droppedSamples + ", conflated=" + conflatedSamples;
+    }
+}
@@ -1,20 +1,43 @@
-
 package com.cardio_generator.outputs;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Implements the {@link OutputStrategy} interface to handle output of patient data for text files.
  * This class writes the patient data (including ID, timestamp, label, and data) to a specified directory.
  * If the directory doesn't exist, it creates it.
+ * <p>
+ * In compressed mode each label is written to rotating gzip segments,
+ * {@code <label>-00000.txt.gz}, {@code <label>-00001.txt.gz}, ..., instead of one growing
+ * {@code <label>.txt}. A segment stays open and lines go through a buffer into its deflater; it
+ * is closed and the next one started once {@code segmentBytes} of text went into it. Open
+ * segments are sync-flushed every {@code flushMillis}, so readers see every line older than
+ * that even before the segment is finished. Segment numbers continue after those already in
+ * the directory, so a restart never overwrites data.
+ * </p>
  */
 
-public class FileOutputStrategy implements OutputStrategy {
+public class FileOutputStrategy implements OutputStrategy, Closeable {
+    /** Default number of uncompressed bytes written to a compressed segment before the next one is started. */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    /** Default interval at which open compressed segments are flushed. */
+    public static final long DEFAULT_FLUSH_MILLIS = 1000;
+
+    private static final int DEFLATE_BUFFER_SIZE = 64 * 1024;
 
     //Base directory where the output files are stored.
     private String baseDirectory;
@@ -22,6 +45,12 @@ public class FileOutputStrategy implements OutputStrategy {
     // Map that associates each label with a specific file path.
     public final ConcurrentHashMap<String, String> file_map = new ConcurrentHashMap<>();
 
+    private final boolean compressed;
+    private final long segmentBytes;
+    // Open segment per label in compressed mode
+    private final ConcurrentHashMap<String, Segment> segments = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
     /**
      * Constructs a {@link FileOutputStrategy} instance with the specified base directory.
      *
@@ -29,7 +58,41 @@ public class FileOutputStrategy implements OutputStrategy {
      */
 
     public FileOutputStrategy(String baseDirectory) {
+        this(baseDirectory, false);
+    }
+
+    /**
+     * @param baseDirectory base directory where output files are stored
+     * @param compressed    {@code true} to write rotating gzip segments instead of plain text files
+     */
+    public FileOutputStrategy(String baseDirectory, boolean compressed) {
+        this(baseDirectory, compressed, DEFAULT_SEGMENT_BYTES, DEFAULT_FLUSH_MILLIS);
+    }
+
+    /**
+     * @param baseDirectory base directory where output files are stored
+     * @param compressed    {@code true} to write rotating gzip segments instead of plain text files
+     * @param segmentBytes  the uncompressed size after which a segment is finished
+     * @param flushMillis   the interval at which open segments are flushed; 0 to flush only when
+     *                      a segment is finished or the strategy is closed
+     */
+    public FileOutputStrategy(String baseDirectory, boolean compressed, long segmentBytes, long flushMillis) {
+        if (segmentBytes <= 0 || flushMillis < 0) {
+            throw new IllegalArgumentException("segmentBytes must be positive and flushMillis non-negative");
+        }
         this.baseDirectory = baseDirectory;
+        this.compressed = compressed;
+        this.segmentBytes = segmentBytes;
+        if (compressed && flushMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "file-output-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
     }
 
     /**
@@ -47,6 +110,12 @@ public class FileOutputStrategy implements OutputStrategy {
 
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
+        if (compressed) {
+            byte[] line = String.format("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n",
+                    patientId, timestamp, label, data).getBytes(StandardCharsets.UTF_8);
+            segments.computeIfAbsent(label, Segment::new).write(line);
+            return;
+        }
         try {
             // Create the directory
             Files.createDirectories(Paths.get(baseDirectory));
@@ -66,4 +135,120 @@ public class FileOutputStrategy implements OutputStrategy {
             System.err.println("Error writing to file " + filePath + ": " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Sync-flushes the open compressed segments, so everything output so far can be read back.
+     * Does nothing in plain mode, where every line is written at once.
+     */
+    public void flush() {
+        for (Segment segment : segments.values()) {
+            segment.flush();
+        }
+    }
+
+    /**
+     * Finishes the open compressed segments. A later output starts a new segment.
+     */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    // The open gzip segment of one label; all methods are synchronized, as labels are output from many threads
+    private final class Segment {
+        private final String label;
+        private int nextIndex;
+        private OutputStream out;
+        private String path;
+        private long written;
+        private boolean dirty;
+
+        Segment(String label) {
+            this.label = label;
+        }
+
+        synchronized void write(byte[] line) {
+            try {
+                if (out == null) {
+                    open();
+                }
+                out.write(line);
+                written += line.length;
+                dirty = true;
+                if (written >= segmentBytes) {
+                    finish();
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing to file " + path + ": " + e.getMessage());
+                abandon();
+            }
+        }
+
+        synchronized void flush() {
+            if (out == null || !dirty) {
+                return;
+            }
+            try {
+                out.flush();
+                dirty = false;
+            } catch (IOException e) {
+                System.err.println("Error flushing file " + path + ": " + e.getMessage());
+                abandon();
+            }
+        }
+
+        synchronized void close() {
+            if (out == null) {
+                return;
+            }
+            try {
+                finish();
+            } catch (IOException e) {
+                System.err.println("Error closing file " + path + ": " + e.getMessage());
+                abandon();
+            }
+        }
+
+        private void open() throws IOException {
+            Path directory = Paths.get(baseDirectory);
+            Files.createDirectories(directory);
+            Path file;
+            do {
+                file = directory.resolve(String.format("%s-%05d.txt.gz", label, nextIndex++));
+            } while (Files.exists(file));
+            path = file.toString();
+            // syncFlush: flush() ends the deflate block on a byte boundary, so the data can be inflated
+            out = new BufferedOutputStream(new GZIPOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.CREATE_NEW), DEFLATE_BUFFER_SIZE, true),
+                    DEFLATE_BUFFER_SIZE);
+            written = 0;
+            file_map.put(label, path);
+        }
+
+        // Writes the gzip trailer and closes the segment
+        private void finish() throws IOException {
+            OutputStream finished = out;
+            out = null;
+            dirty = false;
+            finished.close();
+        }
+
+        // After an error the segment is left as it is; the next line starts a new one
+        private void abandon() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                    // already reported
+                }
+                out = null;
+            }
+            dirty = false;
+        }
+    }
+}
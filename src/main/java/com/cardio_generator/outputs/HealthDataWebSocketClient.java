@@ -1,10 +1,20 @@
 package com.cardio_generator.outputs;
 
 
+import com.data_management.BinaryRecordCodec;
+import com.data_management.CsvMessageParser;
 import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.RingBufferIngestStage;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
 import org.java_websocket.handshake.ServerHandshake;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 /**
@@ -17,12 +27,23 @@ import java.util.TimerTask;
  *   <li>patientId - integer identifier of the patient</li>
  *   <li>timestamp - long value representing measurement time in milliseconds</li>
  *   <li>label - string describing the measurement type (e.g., "HeartRate")</li>
- *   <li>measurement - double value of the actual measurement</li>
+ *   <li>measurement - double value of the actual measurement, optionally followed by a unit such as "%"</li>
  * </ul>
  *
+ * <p>Connecting with {@code ?format=binary} in the URI makes the server send
+ * {@link BinaryRecordCodec} frames instead; both kinds of message are accepted.
+ *
+ * <p>The client asks for sequence numbers ({@code ?seq=1}) and remembers the last one it
+ * received. When it reconnects it sends that number ({@code &from=<sequence>}), and the server
+ * replays the samples broadcast while it was away, as far as its replay buffer reaches.
+ *
+ * <p>A client constructed with {@code perMessageDeflate} offers the permessage-deflate extension
+ * in its handshake. The server compresses its frames if it supports the extension; otherwise the
+ * connection proceeds uncompressed.
+ *
  * <p>Key features:
  * <ul>
- *   <li>Automatic reconnection with 5-second delay on connection loss</li>
+ *   <li>Automatic reconnection with 5-second delay on connection loss, resuming where the stream was left</li>
  *   <li>Thread-safe reconnection mechanism</li>
  *   <li>Data validation and error logging</li>
  *   <li>Integration with DataStorage for persistent data management</li>
@@ -31,9 +52,16 @@ import java.util.TimerTask;
 public class HealthDataWebSocketClient extends WebSocketClient {
 
     private final DataStorage dataStorage;
+    private final RingBufferIngestStage<Object> ingestStage;
     private final URI serverUri;
+    private final boolean perMessageDeflate;
     private static final int reconnectDelay = 5000; // = 5 seconds
     private boolean reconnecting = false;
+    // Sequence number of the last sample received, -1 before the first one; handed to the next client on reconnect
+    private volatile long lastSequence;
+    // Messages arrive on the client's single read thread, so the parser is not shared
+    private final CsvMessageParser parser = new CsvMessageParser();
+    private final BinaryRecordCodec.Decoder decoder = new BinaryRecordCodec.Decoder();
 
     /**
      * Constructs a new WebSocket client for health data.
@@ -42,9 +70,74 @@ public class HealthDataWebSocketClient extends WebSocketClient {
      * @param storage the DataStorage instance where received data will be persisted
      */
     public HealthDataWebSocketClient(URI serverUri, DataStorage storage) {
-        super(serverUri);
+        this(serverUri, storage, null);
+    }
+
+    /**
+     * Constructs a client that hands messages to an ingest stage instead of storing them on the
+     * socket's read thread, so a slow storage call cannot stall the socket. Text messages are
+     * queued as they are; binary messages are decoded on the read thread, which is cheap and
+     * tracks their sequence numbers, and queued as one {@code List<PatientRecord>} each. Create
+     * the stage with {@link RingBufferIngestStage#forMessages}; its consumers store the records
+     * in {@code storage}.
+     *
+     * @param serverUri   the WebSocket server URI
+     * @param storage     the DataStorage the stage writes to; kept for reconnections
+     * @param ingestStage the stage receiving the messages, or {@code null} to store them directly
+     */
+    public HealthDataWebSocketClient(URI serverUri, DataStorage storage, RingBufferIngestStage<Object> ingestStage) {
+        this(serverUri, storage, ingestStage, false);
+    }
+
+    /**
+     * Constructs a client that optionally asks the server for compressed frames.
+     *
+     * @param serverUri         the WebSocket server URI
+     * @param storage           the DataStorage where received data will be persisted
+     * @param ingestStage       the stage receiving the messages, or {@code null} to store them directly
+     * @param perMessageDeflate whether to offer the permessage-deflate extension; kept for reconnections
+     */
+    public HealthDataWebSocketClient(URI serverUri, DataStorage storage, RingBufferIngestStage<Object> ingestStage,
+                                     boolean perMessageDeflate) {
+        this(serverUri, storage, ingestStage, perMessageDeflate, -1);
+    }
+
+    private HealthDataWebSocketClient(URI serverUri, DataStorage storage, RingBufferIngestStage<Object> ingestStage,
+                                      boolean perMessageDeflate, long lastSequence) {
+        super(resumeUri(serverUri, lastSequence), draft(perMessageDeflate));
         this.serverUri = serverUri;
+        this.perMessageDeflate = perMessageDeflate;
         this.dataStorage = storage;
+        this.ingestStage = ingestStage;
+        this.lastSequence = lastSequence;
+    }
+
+    // A fresh draft per client: the extension keeps the connection's compression state
+    private static Draft draft(boolean perMessageDeflate) {
+        return perMessageDeflate ? new Draft_6455(new PerMessageDeflateExtension()) : new Draft_6455();
+    }
+
+    // Adds the sequence options to the query of the server URI
+    private static URI resumeUri(URI serverUri, long lastSequence) {
+        String uri = serverUri.toString();
+        uri += (serverUri.getRawQuery() == null ? "?" : "&") + "seq=1";
+        if (lastSequence >= 0) {
+            uri += "&from=" + lastSequence;
+        }
+        return URI.create(uri);
+    }
+
+    /**
+     * @return the sequence number of the last sample received, or {@code -1} if the server sent none
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    private void updateLastSequence(long sequence) {
+        if (sequence > lastSequence) {
+            lastSequence = sequence;
+        }
     }
     /**
      * Called when the WebSocket connection is successfully established.
@@ -59,7 +152,8 @@ public class HealthDataWebSocketClient extends WebSocketClient {
     }
     /**
      * Processes incoming WebSocket messages containing health data.
-     * Parses messages in format "patientId,timestamp,label,measurement" and stores them.
+     * Parses messages in format "patientId,timestamp,label,measurement", one or more
+     * newline-separated lines per message, and stores them.
      *
      * <p>Error handling:
      * <ul>
@@ -75,26 +169,64 @@ public class HealthDataWebSocketClient extends WebSocketClient {
         // Here we convert and store parsed data(patientIds, timestamp, labels and measurements
         // Each part is parsed into its appropriate data type
         //Then after successful parsing the data is passed to the DataStorage instance
+        updateLastSequence(CsvMessageParser.lastSequenceOf(message));
+        if (ingestStage != null) {
+            try {
+                // waits while the ring is full, pushing back on the server instead of dropping data
+                ingestStage.put(message);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IllegalStateException e) {
+                System.err.println("Ingest stage closed, dropping message: " + message);
+            }
+            return;
+        }
         try {
-            String[] parts = message.split(",", 4);
-            if (parts.length != 4) {
+            // A batching server sends several newline-separated samples per message
+            List<PatientRecord> records = new ArrayList<>();
+            if (parser.parseLinesTo(message, (id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts))) > 0) {
                 System.err.println("Invalid message format: " + message);
-                return;
             }
 
-            int patientId = Integer.parseInt(parts[0]);
-            long timestamp = Long.parseLong(parts[1]);
-            String label = parts[2];
-            double measurement = Double.parseDouble(parts[3]);
-
             // Store the data in the DataStorage instance
-            dataStorage.addPatientData(patientId, measurement, label, timestamp);
+            dataStorage.addPatientRecords(records);
             System.out.println("Stored: " + message);
         } catch (Exception e) {
             System.err.println("Failed to parse or store message: " + message);
             e.printStackTrace();
         }
     }
+    /**
+     * Processes a binary message of one or more {@link BinaryRecordCodec} frames.
+     * The frames are decoded on the read thread, which is cheap, and stored as one batch, through
+     * the ingest stage if there is one.
+     *
+     * @param bytes the raw message received from WebSocket
+     */
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        List<PatientRecord> records = new ArrayList<>();
+        // every message is a separate frame stream
+        decoder.reset();
+        try {
+            decoder.decode(bytes, (id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts)));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Failed to decode binary message: " + e.getMessage());
+            return;
+        }
+        updateLastSequence(decoder.getLastSequence());
+        if (ingestStage == null) {
+            dataStorage.addPatientRecords(records);
+            return;
+        }
+        try {
+            ingestStage.put(records);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            System.err.println("Ingest stage closed, dropping " + records.size() + " records");
+        }
+    }
     /**
      * Handles connection closure events.
      * Triggers automatic reconnection after the specified delay.
@@ -145,7 +277,8 @@ public class HealthDataWebSocketClient extends WebSocketClient {
             @Override
             public void run() {
                 try {
-                    HealthDataWebSocketClient newClient = new HealthDataWebSocketClient(serverUri, dataStorage);
+                    HealthDataWebSocketClient newClient = new HealthDataWebSocketClient(serverUri, dataStorage, ingestStage,
+                            perMessageDeflate, lastSequence);
                     newClient.connect();
                 } catch (Exception e) {
                     System.err.println("Failed to reconnect:");
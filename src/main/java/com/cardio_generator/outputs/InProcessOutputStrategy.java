@@ -0,0 +1,107 @@
+package com.cardio_generator.outputs;
+
+import com.data_management.BinaryRecordCodec;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.RingBufferIngestStage;
+import com.data_management.WaitStrategy;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementation of the {@link OutputStrategy} interface that hands samples straight to a
+ * {@link DataStorage} in the same process, for load tests and single-box deployments.
+ * <p>
+ * Numeric samples, which the generators output through
+ * {@link #output(int, long, String, double)}, become {@link PatientRecord}s without being
+ * formatted, framed or parsed, and are put into a {@link RingBufferIngestStage} whose consumer
+ * stores them in batches. The generator threads never touch the storage themselves; while the
+ * ring is full they wait, so a storage that falls behind slows the simulation instead of
+ * losing samples. Text samples (Alert states) are converted with
+ * {@link BinaryRecordCodec#parseValue}, as the network readers would.
+ * </p>
+ */
+public class InProcessOutputStrategy implements OutputStrategy, Closeable {
+    /** Default capacity of the ingest ring. */
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final RingBufferIngestStage<PatientRecord> stage;
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Creates a strategy storing into {@code storage} through a ring of {@link #DEFAULT_CAPACITY}
+     * samples with one consumer, so every patient's samples are stored in order.
+     *
+     * @param storage the storage receiving the samples
+     */
+    public InProcessOutputStrategy(DataStorage storage) {
+        this(RingBufferIngestStage.forRecords(storage, DEFAULT_CAPACITY, 1, WaitStrategy.PARK));
+    }
+
+    /**
+     * @param stage the ingest stage receiving the samples, e.g. from {@link RingBufferIngestStage#forRecords}
+     */
+    public InProcessOutputStrategy(RingBufferIngestStage<PatientRecord> stage) {
+        if (stage == null) {
+            throw new IllegalArgumentException("stage cannot be null");
+        }
+        this.stage = stage;
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, String label, double value) {
+        try {
+            stage.put(new PatientRecord(patientId, value, label, timestamp));
+        } catch (InterruptedException e) {
+            dropped.increment();
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            // closed; the simulator keeps generating until it exits
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        double value;
+        try {
+            value = BinaryRecordCodec.parseValue(data);
+        } catch (NumberFormatException e) {
+            malformed.increment();
+            System.err.println("Cannot store non-numeric value in process: " + data);
+            return;
+        }
+        output(patientId, timestamp, label, value);
+    }
+
+    /**
+     * @return the ingest stage, for its queue and storage metrics
+     */
+    public RingBufferIngestStage<PatientRecord> getStage() {
+        return stage;
+    }
+
+    /**
+     * @return the number of text samples that were not numbers and were dropped
+     */
+    public long getMalformedCount() {
+        return malformed.sum();
+    }
+
+    /**
+     * @return the number of samples dropped because the stage was closed or the generator interrupted
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops accepting samples and waits until the queued ones are stored.
+     */
+    @Override
+    public void close() {
+        stage.close();
+    }
+}
@@ -17,4 +17,32 @@ public interface OutputStrategy {
      * @param data       actual data to be output
      */
     void output(int patientId, long timestamp, String label, String data);
+
+    /**
+     * Outputs a numeric data record for a patient. Strategies that deliver numbers rather than
+     * text, such as {@link InProcessOutputStrategy}, override this to skip formatting; by default
+     * the value is formatted with {@link #formatValue} and passed to
+     * {@link #output(int, long, String, String)}.
+     *
+     * @param patientId  unique id for patient
+     * @param timestamp  timestamp at which the data was generated
+     * @param label      label indicating the type of data
+     * @param value      the measured value
+     */
+    default void output(int patientId, long timestamp, String label, double value) {
+        output(patientId, timestamp, label, formatValue(label, value));
+    }
+
+    /**
+     * Formats a value the way the generators always have: {@link Double#toString(double)},
+     * with a {@code %} unit for saturation.
+     *
+     * @param label the label of the value
+     * @param value the value to format
+     * @return the text sent or written for the value
+     */
+    static String formatValue(String label, double value) {
+        String text = Double.toString(value);
+        return "Saturation".equals(label) ? text + "%" : text;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.cardio_generator.outputs;
+
+/**
+ * Bounded ring of the most recently sent samples, keyed by their stream sequence number, so a
+ * client that reconnects can be sent what it missed.
+ * <p>
+ * Sequence numbers start at 1. Once the ring is full, every new sample overwrites the oldest
+ * one, so memory stays bounded by the capacity whatever the length of the stream.
+ * Not thread-safe; {@link WebSocketOutputStrategy} only uses it while holding its lock.
+ * </p>
+ */
+final class ReplayBuffer {
+    private final int[] patientIds;
+    private final long[] timestamps;
+    private final String[] labels;
+    private final String[] values;
+    private long nextSequence = 1;
+
+    ReplayBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        patientIds = new int[capacity];
+        timestamps = new long[capacity];
+        labels = new String[capacity];
+        values = new String[capacity];
+    }
+
+    /**
+     * @return the sequence number assigned to the sample
+     */
+    long append(int patientId, long timestamp, String label, String value) {
+        int slot = slot(nextSequence);
+        patientIds[slot] = patientId;
+        timestamps[slot] = timestamp;
+        labels[slot] = label;
+        values[slot] = value;
+        return nextSequence++;
+    }
+
+    /**
+     * @return the sequence number the next sample will get
+     */
+    long getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * @return the sequence number of the oldest sample still held
+     */
+    long getFirstSequence() {
+        return Math.max(1, nextSequence - patientIds.length);
+    }
+
+    /**
+     * Copies the samples {@code [from, from + count)} into the given arrays, which must hold
+     * {@code count} elements. The range must lie between {@link #getFirstSequence()} and
+     * {@link #getNextSequence()}.
+     */
+    void copy(long from, int count, int[] patientIdsOut, long[] timestampsOut, String[] labelsOut, String[] valuesOut) {
+        if (from < getFirstSequence() || from + count > nextSequence) {
+            throw new IllegalArgumentException("Samples " + from + " to " + (from + count - 1) + " are not held");
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = slot(from + i);
+            patientIdsOut[i] = patientIds[slot];
+            timestampsOut[i] = timestamps[slot];
+            labelsOut[i] = labels[slot];
+            valuesOut[i] = values[slot];
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % patientIds.length);
+    }
+}
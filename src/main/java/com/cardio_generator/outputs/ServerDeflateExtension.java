@@ -0,0 +1,77 @@
+package com.cardio_generator.outputs;
+
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.ContinuousFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.FramedataImpl1;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * The server side of permessage-deflate for {@link WebSocketOutputStrategy}. Negotiation and
+ * decoding are inherited from Java-WebSocket's {@link PerMessageDeflateExtension}; encoding is
+ * replaced.
+ * <p>
+ * The inherited encoder compresses the whole backing array of a frame's payload buffer rather
+ * than the bytes between its position and limit, which corrupts binary messages encoded into a
+ * larger buffer. This one compresses just the payload. It also keeps one {@link Deflater} per
+ * connection and resets it after every message, as the always negotiated
+ * {@code server_no_context_takeover} requires, where the inherited one allocates a new deflater.
+ * </p>
+ * Like every extension instance it belongs to one connection and is not thread-safe.
+ */
+final class ServerDeflateExtension extends PerMessageDeflateExtension {
+    // Every sync-flushed deflate block ends with these bytes, which RFC 7692 has the sender drop
+    private static final byte[] TAIL = {0x00, 0x00, (byte) 0xff, (byte) 0xff};
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private byte[] output = new byte[4096];
+
+    @Override
+    public void encodeFrame(Framedata frame) {
+        if (!(frame instanceof DataFrame)) {
+            return;
+        }
+        if (!(frame instanceof ContinuousFrame)) {
+            ((DataFrame) frame).setRSV1(true);
+        }
+        deflater.setInput(frame.getPayloadData());
+        int length = 0;
+        while (true) {
+            length += deflater.deflate(output, length, output.length - length, Deflater.SYNC_FLUSH);
+            if (length < output.length) {
+                break;
+            }
+            output = Arrays.copyOf(output, output.length * 2);
+        }
+        if (frame.isFin()) {
+            if (endsWithTail(length)) {
+                length -= TAIL.length;
+            }
+            // no context takeover, as negotiated
+            deflater.reset();
+        }
+        ((FramedataImpl1) frame).setPayload(ByteBuffer.wrap(Arrays.copyOf(output, length)));
+    }
+
+    private boolean endsWithTail(int length) {
+        if (length < TAIL.length) {
+            return false;
+        }
+        for (int i = 0; i < TAIL.length; i++) {
+            if (output[length - TAIL.length + i] != TAIL[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public IExtension copyInstance() {
+        return new ServerDeflateExtension();
+    }
+}
@@ -0,0 +1,17 @@
+package com.cardio_generator.outputs;
+
+/**
+ * What {@link WebSocketOutputStrategy} does when a client reads more slowly than samples are
+ * produced and its outbound queue is full.
+ */
+public enum SlowClientPolicy {
+    /** Discard the oldest queued messages to make room; the client sees gaps. */
+    DROP_OLDEST,
+    /**
+     * Keep only the latest sample per patient and record type while the client is behind and
+     * send them together once it catches up; suits dashboards that only show current values.
+     */
+    CONFLATE,
+    /** Close the connection; the client can reconnect and resume from its last sequence number. */
+    DISCONNECT
+}
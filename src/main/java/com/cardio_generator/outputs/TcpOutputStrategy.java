@@ -1,10 +1,18 @@
 package com.cardio_generator.outputs;
 
+import com.data_management.BinaryRecordCodec;
+import com.data_management.WireFormat;
+
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 /**
  * Implementation of the {@link OutputStrategy} interface for TCP socket communication.
  * <p>
@@ -13,17 +21,31 @@ import java.util.concurrent.Executors;
  * </p>
  * <p>
  * The output data is formatted as a CSV string containing the patient ID, timestamp, label, and the health data.
+ * With {@link WireFormat#BINARY} it is sent as a stream of {@link BinaryRecordCodec} frames instead,
+ * delta-encoded against the previous sample of the connection. Frames collect in a buffer that
+ * is sent when it fills up and at least every {@code flushIntervalMillis}, so small frames do not
+ * each cost a socket write.
  * </p>
  *
  * @author Oryna Yukhymenko
  * @author Elena Gostiukhina
  */
 public class TcpOutputStrategy implements OutputStrategy {
+    /** Default maximum time a binary frame waits in the buffer before it is sent. */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
 
+    private static final int BINARY_BUFFER_SIZE = 64 * 1024;
 
     private ServerSocket serverSocket;
     private Socket clientSocket;
     private PrintWriter out;
+    private final WireFormat format;
+    private OutputStream binaryOut;
+    private final BinaryRecordCodec.Encoder encoder = new BinaryRecordCodec.Encoder();
+    private final ByteBuffer frame = ByteBuffer.allocate(1024);
+    // Set when frames were written since the last flush; guarded by encoder
+    private boolean dirty;
+    private ScheduledExecutorService flusher;
     /**
      * Constructs a {@link TcpOutputStrategy} that listens for client connections on the specified port.
      * <p>
@@ -36,6 +58,31 @@ public class TcpOutputStrategy implements OutputStrategy {
      */
 
     public TcpOutputStrategy(int port) {
+        this(port, WireFormat.TEXT);
+    }
+
+    /**
+     * Constructs a {@link TcpOutputStrategy} that sends data in the given wire format.
+     *
+     * @param port   The port on which the TCP server will listen for incoming connections.
+     * @param format The encoding of the samples sent to the client.
+     */
+    public TcpOutputStrategy(int port, WireFormat format) {
+        this(port, format, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Constructs a {@link TcpOutputStrategy} that sends data in the given wire format.
+     *
+     * @param port                The port on which the TCP server will listen for incoming connections.
+     * @param format              The encoding of the samples sent to the client.
+     * @param flushIntervalMillis The maximum time a binary frame waits in the buffer before it is sent.
+     */
+    public TcpOutputStrategy(int port, WireFormat format, long flushIntervalMillis) {
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("flushIntervalMillis must be positive");
+        }
+        this.format = format;
         try {
             serverSocket = new ServerSocket(port);
             System.out.println("TCP Server started on port " + port);
@@ -44,7 +91,14 @@ public class TcpOutputStrategy implements OutputStrategy {
             Executors.newSingleThreadExecutor().submit(() -> {
                 try {
                     clientSocket = serverSocket.accept();
-                    out = new PrintWriter(clientSocket.getOutputStream(), true);
+                    if (format == WireFormat.BINARY) {
+                        synchronized (encoder) {
+                            encoder.reset();
+                            binaryOut = new BufferedOutputStream(clientSocket.getOutputStream(), BINARY_BUFFER_SIZE);
+                        }
+                    } else {
+                        out = new PrintWriter(clientSocket.getOutputStream(), true);
+                    }
                     System.out.println("Client connected: " + clientSocket.getInetAddress());
                 } catch (IOException e) {
                     e.printStackTrace();
@@ -53,6 +107,33 @@ public class TcpOutputStrategy implements OutputStrategy {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        if (format == WireFormat.BINARY) {
+            flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "tcp-output-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends the binary frames still in the buffer. Does nothing in text format, where every
+     * line is sent at once.
+     */
+    public void flush() {
+        synchronized (encoder) {
+            if (binaryOut == null || !dirty) {
+                return;
+            }
+            try {
+                binaryOut.flush();
+                dirty = false;
+            } catch (IOException e) {
+                System.err.println("Error sending to TCP client: " + e.getMessage());
+                binaryOut = null;
+            }
+        }
     }
     /**
      * Outputs the health data for a specific patient to the connected TCP client.
@@ -69,9 +150,54 @@ public class TcpOutputStrategy implements OutputStrategy {
      */
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
-        if (out != null) {
+        if (format == WireFormat.BINARY) {
+            outputBinary(patientId, timestamp, label, data);
+        } else if (out != null) {
             String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
             out.println(message);
         }
     }
+
+    /**
+     * Sends a numeric sample. In binary format the value is encoded as it is, without the text
+     * round trip of {@link #output(int, long, String, String)}.
+     */
+    @Override
+    public void output(int patientId, long timestamp, String label, double value) {
+        if (format == WireFormat.BINARY) {
+            outputBinary(patientId, timestamp, label, value);
+        } else {
+            output(patientId, timestamp, label, OutputStrategy.formatValue(label, value));
+        }
+    }
+
+    private void outputBinary(int patientId, long timestamp, String label, String data) {
+        double value;
+        try {
+            value = BinaryRecordCodec.parseValue(data);
+        } catch (NumberFormatException e) {
+            System.err.println("Cannot send non-numeric value in binary format: " + data);
+            return;
+        }
+        outputBinary(patientId, timestamp, label, value);
+    }
+
+    private void outputBinary(int patientId, long timestamp, String label, double value) {
+        // generators call from many threads; frames of one stream must not interleave
+        synchronized (encoder) {
+            if (binaryOut == null || BinaryRecordCodec.maxFrameSize(label) > frame.capacity()) {
+                return;
+            }
+            frame.clear();
+            encoder.encode(patientId, timestamp, label, value, frame);
+            try {
+                // sent by the buffer once it is full, or by the flusher
+                binaryOut.write(frame.array(), 0, frame.position());
+                dirty = true;
+            } catch (IOException e) {
+                System.err.println("Error sending to TCP client: " + e.getMessage());
+                binaryOut = null;
+            }
+        }
+    }
 }
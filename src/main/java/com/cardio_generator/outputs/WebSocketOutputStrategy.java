@@ -1,9 +1,22 @@
 package com.cardio_generator.outputs;
 
+import com.data_management.BinaryRecordCodec;
+import com.data_management.WireFormat;
 import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.server.WebSocketServer;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 /**
  * An {@link OutputStrategy} implementation that broadcasts patient data to connected WebSocket clients.
  * This strategy creates and manages a WebSocket server that accepts connections and broadcasts
@@ -16,10 +29,55 @@ import java.util.Collection;
  *   <li><b>label</b> - type of measurement (e.g., "HeartRate", "BloodPressure" or smth like this)</li>
  *   <li><b>data</b> - the actual measurement value (String)</li>
  * </ul>
+ *
+ * <p>Clients that connect with {@code ?format=binary} in the URI (see {@link WireFormat}) receive
+ * {@link BinaryRecordCodec} full frames instead, with the value converted to a number.
+ *
+ * <p>With batching enabled (see {@link #WebSocketOutputStrategy(int, int, long)}), samples are
+ * collected and sent as one message per flush: newline-separated lines for text clients and a
+ * delta-encoded frame stream for binary clients. Each message is built once and broadcast to
+ * all connections of its format.
+ *
+ * <p>Every sample gets a stream sequence number, starting at 1, and the most recent samples are
+ * kept in a bounded replay buffer. Clients that connect with {@code ?seq=1} receive the number of
+ * the first sample of each message: a {@code #<sequence>} first line for text clients and a
+ * sequence frame for binary clients. A client that reconnects with {@code ?seq=1&from=<last
+ * sequence seen>} is first sent the samples it missed that are still in the buffer, then the
+ * live stream.
+ *
+ * <p>Every client has a bounded outbound queue (see {@link ClientSession}). When a client reads
+ * too slowly, its {@link SlowClientPolicy} decides whether the oldest queued messages are
+ * dropped, samples are conflated to the latest value per patient and type, or the client is
+ * disconnected; {@link #getClientStats()} reports each client's lag and losses.
+ *
+ * <p>A server created with {@link #createDefaultServer(int, boolean)} offers the
+ * permessage-deflate extension (RFC 7692). Clients that request it receive compressed frames;
+ * others are served uncompressed as before.
  */
 public class WebSocketOutputStrategy implements OutputStrategy {
 
-    private static WebSocketServer server;
+    /** Default number of samples kept for clients that resume after a reconnect. */
+    public static final int DEFAULT_REPLAY_CAPACITY = 65_536;
+    /** Default maximum number of messages queued for a slow client. */
+    public static final int DEFAULT_MAX_QUEUED_MESSAGES = 1024;
+    private static final int REPLAY_CHUNK_SAMPLES = 1024;
+    private static final long DRAIN_INTERVAL_MILLIS = 10;
+
+    private final WebSocketServer server;
+    private final int maxBatchSamples;
+    private final ReplayBuffer replay;
+    private final SlowClientPolicy slowClientPolicy;
+    private final int maxQueuedMessages;
+    // Flushes batches and drains the queues of slow clients
+    private final ScheduledExecutorService scheduler;
+    private long slowClientDisconnects;
+    // Pending samples of the current batch, guarded by 'this'
+    private int pending;
+    private int[] patientIds;
+    private long[] timestamps;
+    private String[] labels;
+    private String[] values;
+    private long batchFirstSequence;
     /**
      * Creates a WebSocket output strategy on the specified port.
      * Initializes a default WebSocket server instance.
@@ -30,6 +88,43 @@ public class WebSocketOutputStrategy implements OutputStrategy {
     public WebSocketOutputStrategy(int port) {
         this(createDefaultServer(port));
     }
+    /**
+     * Creates a WebSocket output strategy that sends samples in batches. A batch is sent when it
+     * holds {@code maxBatchSamples} samples or {@code flushIntervalMillis} after the previous flush,
+     * whichever comes first.
+     *
+     * @param port                the TCP port to listen for connections
+     * @param maxBatchSamples     the maximum number of samples per message
+     * @param flushIntervalMillis the maximum time a sample waits before it is sent
+     */
+    public WebSocketOutputStrategy(int port, int maxBatchSamples, long flushIntervalMillis) {
+        this(port, maxBatchSamples, flushIntervalMillis, DEFAULT_REPLAY_CAPACITY);
+    }
+    /**
+     * Creates a WebSocket output strategy with a replay buffer of the given size.
+     *
+     * @param port                the TCP port to listen for connections
+     * @param maxBatchSamples     the maximum number of samples per message; 1 disables batching
+     * @param flushIntervalMillis the maximum time a sample waits before it is sent, when batching
+     * @param replayCapacity      the number of recent samples kept for resuming clients
+     */
+    public WebSocketOutputStrategy(int port, int maxBatchSamples, long flushIntervalMillis, int replayCapacity) {
+        this(port, maxBatchSamples, flushIntervalMillis, replayCapacity, SlowClientPolicy.DROP_OLDEST, DEFAULT_MAX_QUEUED_MESSAGES);
+    }
+    /**
+     * Creates a WebSocket output strategy with a given treatment of slow clients.
+     *
+     * @param port                the TCP port to listen for connections
+     * @param maxBatchSamples     the maximum number of samples per message; 1 disables batching
+     * @param flushIntervalMillis the maximum time a sample waits before it is sent, when batching
+     * @param replayCapacity      the number of recent samples kept for resuming clients
+     * @param slowClientPolicy    what to do when a client's queue is full
+     * @param maxQueuedMessages   the maximum number of messages queued per client
+     */
+    public WebSocketOutputStrategy(int port, int maxBatchSamples, long flushIntervalMillis, int replayCapacity,
+                                   SlowClientPolicy slowClientPolicy, int maxQueuedMessages) {
+        this(createDefaultServer(port), maxBatchSamples, flushIntervalMillis, replayCapacity, slowClientPolicy, maxQueuedMessages);
+    }
     /**
      * Package-private constructor for testing purposes.
      * Allows injection of a custom WebSocketServer instance.
@@ -38,7 +133,52 @@ public class WebSocketOutputStrategy implements OutputStrategy {
      */
     // Package-private constructor for testing
     WebSocketOutputStrategy(WebSocketServer server) {
+        this(server, 1, 0, DEFAULT_REPLAY_CAPACITY, SlowClientPolicy.DROP_OLDEST, DEFAULT_MAX_QUEUED_MESSAGES);
+    }
+
+    /**
+     * Creates a WebSocket output strategy on a given server, e.g. one from
+     * {@link #createDefaultServer(int, boolean)} with compression.
+     *
+     * @param server              the WebSocket server to start and broadcast on
+     * @param maxBatchSamples     the maximum number of samples per message; 1 disables batching
+     * @param flushIntervalMillis the maximum time a sample waits before it is sent, when batching
+     * @param replayCapacity      the number of recent samples kept for resuming clients
+     * @param slowClientPolicy    what to do when a client's queue is full
+     * @param maxQueuedMessages   the maximum number of messages queued per client
+     */
+    public WebSocketOutputStrategy(WebSocketServer server, int maxBatchSamples, long flushIntervalMillis, int replayCapacity,
+                                   SlowClientPolicy slowClientPolicy, int maxQueuedMessages) {
+        if (maxBatchSamples <= 0) {
+            throw new IllegalArgumentException("maxBatchSamples must be positive");
+        }
+        if (maxBatchSamples > 1 && flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("flushIntervalMillis must be positive when batching");
+        }
+        if (slowClientPolicy == null || maxQueuedMessages <= 0) {
+            throw new IllegalArgumentException("slowClientPolicy is required and maxQueuedMessages must be positive");
+        }
         this.server = server;
+        this.maxBatchSamples = maxBatchSamples;
+        this.replay = new ReplayBuffer(replayCapacity);
+        this.slowClientPolicy = slowClientPolicy;
+        this.maxQueuedMessages = maxQueuedMessages;
+        if (server instanceof SimpleWebSocketServer) {
+            ((SimpleWebSocketServer) server).strategy = this;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "websocket-output-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (maxBatchSamples > 1) {
+            patientIds = new int[maxBatchSamples];
+            timestamps = new long[maxBatchSamples];
+            labels = new String[maxBatchSamples];
+            values = new String[maxBatchSamples];
+            scheduler.scheduleAtFixedRate(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(this::drainSlowClients, DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
         System.out.println("WebSocket server created on port: " + server.getPort() + ", listening for connections...");
         server.start();
     }
@@ -59,9 +199,26 @@ public class WebSocketOutputStrategy implements OutputStrategy {
     public static WebSocketServer createDefaultServer(int port) {
         return new SimpleWebSocketServer(new InetSocketAddress(port));
     }
+    /**
+     * Creates a default WebSocket server that optionally offers permessage-deflate compression.
+     *
+     * @param port              the port to bind the server to
+     * @param perMessageDeflate whether clients may negotiate compressed frames
+     * @return a new WebSocketServer instance
+     */
+    public static WebSocketServer createDefaultServer(int port, boolean perMessageDeflate) {
+        if (!perMessageDeflate) {
+            return createDefaultServer(port);
+        }
+        // Draft_6455 keeps accepting clients that do not ask for the extension
+        List<Draft> drafts = Collections.singletonList(new Draft_6455(new ServerDeflateExtension()));
+        return new SimpleWebSocketServer(new InetSocketAddress(port), drafts);
+    }
     /**
      * Broadcasts patient data to all connected WebSocket clients.
-     * Formats the data into a comma-separated string and sends it to each active connection.
+     * Formats the data into a comma-separated string, or a binary frame for clients that asked
+     * for {@link WireFormat#BINARY}, and broadcasts it to the connections of each format.
+     * With batching enabled the sample is only queued; it is sent by the next flush.
      *
      * @param patientId the patient identifier
      * @param timestamp the measurement timestamp
@@ -71,17 +228,242 @@ public class WebSocketOutputStrategy implements OutputStrategy {
      */
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
-        String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
+        if (maxBatchSamples == 1) {
+            String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
+            // numbering and sending under one lock keeps the stream in sequence order
+            synchronized (this) {
+                long sequence = replay.append(patientId, timestamp, label, data);
+                broadcast(new int[]{patientId}, new long[]{timestamp}, new String[]{label}, new String[]{data}, 1, sequence);
+            }
+            System.out.println("Broadcasting message: " + message);
+            return;
+        }
+        synchronized (this) {
+            long sequence = replay.append(patientId, timestamp, label, data);
+            if (pending == 0) {
+                batchFirstSequence = sequence;
+            }
+            patientIds[pending] = patientId;
+            timestamps[pending] = timestamp;
+            labels[pending] = label;
+            values[pending] = data;
+            if (++pending == maxBatchSamples) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Sends the samples queued so far. Does nothing when batching is disabled or nothing is queued.
+     */
+    public synchronized void flush() {
+        if (pending == 0) {
+            return;
+        }
+        try {
+            broadcast(patientIds, timestamps, labels, values, pending, batchFirstSequence);
+        } catch (RuntimeException e) {
+            // runs on the scheduler thread too, where an exception would cancel the schedule
+            System.err.println("Error broadcasting batch: " + e.getMessage());
+        }
+        Arrays.fill(labels, 0, pending, null);
+        Arrays.fill(values, 0, pending, null);
+        pending = 0;
+    }
+
+    private ClientSession newSession(WireFormat format, boolean sequenced) {
+        return new ClientSession(format, sequenced, slowClientPolicy, maxQueuedMessages);
+    }
+
+    /**
+     * Registers a new connection. A client resuming after {@code lastSequence} is first sent the
+     * samples it missed, then joins the live stream; holding the lock meanwhile keeps live
+     * messages from overtaking the replay.
+     */
+    private synchronized void open(WebSocket conn, ClientSession session, long lastSequence) {
+        if (lastSequence >= 0) {
+            replay(conn, session, lastSequence + 1);
+        }
+        session.live = true;
+    }
+
+    // Sends the already broadcast samples from 'from' on, in chunks; queued batch samples follow live
+    private void replay(WebSocket conn, ClientSession session, long from) {
+        long first = Math.max(from, replay.getFirstSequence());
+        long end = replay.getNextSequence() - pending;
+        if (first > from) {
+            System.err.println("Samples " + from + " to " + (first - 1) + " are no longer held, "
+                    + conn.getRemoteSocketAddress() + " resumes at " + first);
+        }
+        int[] chunkIds = new int[REPLAY_CHUNK_SAMPLES];
+        long[] chunkTimestamps = new long[REPLAY_CHUNK_SAMPLES];
+        String[] chunkLabels = new String[REPLAY_CHUNK_SAMPLES];
+        String[] chunkValues = new String[REPLAY_CHUNK_SAMPLES];
+        for (long sequence = first; sequence < end; sequence += REPLAY_CHUNK_SAMPLES) {
+            int count = (int) Math.min(REPLAY_CHUNK_SAMPLES, end - sequence);
+            replay.copy(sequence, count, chunkIds, chunkTimestamps, chunkLabels, chunkValues);
+            Object payload = session.format == WireFormat.BINARY
+                    ? encodeFrames(chunkIds, chunkTimestamps, chunkLabels, chunkValues, count, sequence)
+                    : textMessage(chunkIds, chunkTimestamps, chunkLabels, chunkValues, count, sequence).toString();
+            // framed like live messages, which handles compressed connections
+            conn.sendFrame(new ClientSession.Message(payload, count).framesFor(conn.getDraft()));
+        }
+        if (end > first) {
+            System.out.println("Replayed samples " + first + " to " + (end - 1) + " to " + conn.getRemoteSocketAddress());
+        }
+    }
+
+    // Encodes the samples once per format in use and offers each message to its connections.
+    // Clients without sequence numbers get the same message minus its header.
+    private void broadcast(int[] patientIds, long[] timestamps, String[] labels, String[] values,
+                           int count, long firstSequence) {
+        String text = null;
+        ByteBuffer frames = null;
+        ClientSession.Message[] messages = new ClientSession.Message[4];
+        List<WebSocket> tooSlow = null;
+        for (WebSocket conn : server.getConnections()) {
+            ClientSession session = conn.getAttachment();
+            if (session != null && !session.live) {
+                continue;
+            }
+            boolean binary = session != null && session.format == WireFormat.BINARY;
+            boolean sequenced = session != null && session.sequenced;
+            int variant = (binary ? 2 : 0) + (sequenced ? 1 : 0);
+            if (messages[variant] == null) {
+                Object payload;
+                if (binary) {
+                    if (frames == null) {
+                        frames = encodeFrames(patientIds, timestamps, labels, values, count, firstSequence);
+                    }
+                    ByteBuffer view = frames.duplicate();
+                    if (!sequenced) {
+                        view.position(BinaryRecordCodec.SEQUENCE_FRAME_SIZE);
+                    }
+                    payload = view.slice();
+                } else {
+                    if (text == null) {
+                        text = textMessage(patientIds, timestamps, labels, values, count, firstSequence).toString();
+                    }
+                    payload = sequenced ? text : text.substring(text.indexOf('\n') + 1);
+                }
+                messages[variant] = new ClientSession.Message(payload, count);
+            }
+            if (session == null) {
+                // not through onOpen yet, or a server that does not track sessions
+                conn.send((String) messages[variant].payload());
+            } else if (!session.offer(conn, messages[variant], patientIds, timestamps, labels, values, count)) {
+                if (tooSlow == null) {
+                    tooSlow = new ArrayList<>();
+                }
+                tooSlow.add(conn);
+            }
+        }
+        if (tooSlow != null) {
+            for (WebSocket conn : tooSlow) {
+                slowClientDisconnects++;
+                System.err.println("Disconnecting slow client " + conn.getRemoteSocketAddress());
+                // a close handshake would queue behind the backlog the client is not reading
+                conn.closeConnection(CloseFrame.TRY_AGAIN_LATER, "Client too slow");
+            }
+        }
+    }
+
+    private synchronized void drainSlowClients() {
+        try {
+            for (WebSocket conn : server.getConnections()) {
+                ClientSession session = conn.getAttachment();
+                if (session != null && session.hasWaiting()) {
+                    session.drain(conn);
+                }
+            }
+        } catch (RuntimeException e) {
+            // an exception would cancel the schedule
+            System.err.println("Error sending to slow clients: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return a snapshot of every connected client's queue, lag and losses
+     */
+    public synchronized List<ClientStats> getClientStats() {
+        List<ClientStats> stats = new ArrayList<>();
         for (WebSocket conn : server.getConnections()) {
-            conn.send(message);
+            ClientSession session = conn.getAttachment();
+            if (session != null) {
+                stats.add(session.stats(conn));
+            }
         }
-        System.out.println("Broadcasting message: " + message);
+        return stats;
+    }
+
+    /**
+     * @return the number of clients closed by {@link SlowClientPolicy#DISCONNECT}
+     */
+    public synchronized long getSlowClientDisconnects() {
+        return slowClientDisconnects;
+    }
+
+    // A "#<first sequence>" header line, unless firstSequence is negative, and one line per sample
+    static StringBuilder textMessage(int[] patientIds, long[] timestamps, String[] labels, String[] values,
+                                     int count, long firstSequence) {
+        StringBuilder message = new StringBuilder(count * 40 + 21);
+        if (firstSequence >= 0) {
+            message.append('#').append(firstSequence).append('\n');
+        }
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                message.append('\n');
+            }
+            message.append(patientIds[i]).append(',').append(timestamps[i]).append(',')
+                    .append(labels[i]).append(',').append(values[i]);
+        }
+        return message;
+    }
+
+    // One message is one frame stream: a sequence frame unless firstSequence is negative, a full
+    // frame and delta frames
+    static ByteBuffer encodeFrames(int[] patientIds, long[] timestamps, String[] labels, String[] values,
+                                   int count, long firstSequence) {
+        int capacity = BinaryRecordCodec.SEQUENCE_FRAME_SIZE;
+        for (int i = 0; i < count; i++) {
+            capacity += BinaryRecordCodec.maxFrameSize(labels[i]);
+        }
+        ByteBuffer frames = ByteBuffer.allocate(capacity);
+        BinaryRecordCodec.Encoder encoder = new BinaryRecordCodec.Encoder();
+        if (firstSequence >= 0) {
+            encoder.encodeSequence(firstSequence, frames);
+        }
+        for (int i = 0; i < count; i++) {
+            try {
+                double value = BinaryRecordCodec.parseValue(values[i]);
+                encoder.encode(patientIds[i], timestamps[i], labels[i], value, frames);
+            } catch (NumberFormatException e) {
+                System.err.println("Cannot send non-numeric value in binary format: " + values[i]);
+            }
+        }
+        frames.flip();
+        return frames;
+    }
+
+    // Returns the value of a query parameter of a request path such as /?seq=1&from=42, or null
+    private static String queryParameter(String resource, String name) {
+        int query = resource == null ? -1 : resource.indexOf('?');
+        if (query < 0) {
+            return null;
+        }
+        for (String parameter : resource.substring(query + 1).split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                return parameter.substring(name.length() + 1);
+            }
+        }
+        return null;
     }
     /**
      * Internal WebSocket server implementation for handling connections.
      * Provides basic connection lifecycle logging and message broadcasting capabilities.
      */
     private static class SimpleWebSocketServer extends WebSocketServer {
+        private volatile WebSocketOutputStrategy strategy;
         /**
          * Creates a new WebSocket server bound to the specified address.
          *
@@ -89,17 +471,51 @@ public class WebSocketOutputStrategy implements OutputStrategy {
          */
         public SimpleWebSocketServer(InetSocketAddress address) {
             super(address);
+            // rebind at once after a restart, while closed connections are still in TIME_WAIT
+            setReuseAddr(true);
+        }
+        /**
+         * Creates a new WebSocket server that speaks the given protocol drafts.
+         *
+         * @param address the network address to bind to
+         * @param drafts  the drafts offered to clients, e.g. with extensions
+         */
+        public SimpleWebSocketServer(InetSocketAddress address, List<Draft> drafts) {
+            super(address, drafts);
+            setReuseAddr(true);
         }
         /**
          * Handles new WebSocket connections.
-         * Logs the remote address of new connections.
+         * Records the wire format and sequence options requested in the URI, replays missed samples
+         * to a resuming client and logs the remote address of new connections.
          *
          * @param conn the new WebSocket connection
          * @param handshake the handshake data
          */
         @Override
         public void onOpen(WebSocket conn, org.java_websocket.handshake.ClientHandshake handshake) {
-            System.out.println("New connection: " + conn.getRemoteSocketAddress());
+            String resource = handshake.getResourceDescriptor();
+            try {
+                WireFormat format = WireFormat.fromQuery(resource);
+                String from = queryParameter(resource, "from");
+                long lastSequence = from == null ? -1 : Long.parseLong(from);
+                // resuming implies sequence numbers, the client needs them to resume again
+                boolean sequenced = "1".equals(queryParameter(resource, "seq"))
+                        || "true".equals(queryParameter(resource, "seq")) || from != null;
+                ClientSession session = strategy != null
+                        ? strategy.newSession(format, sequenced)
+                        : new ClientSession(format, sequenced, SlowClientPolicy.DROP_OLDEST, DEFAULT_MAX_QUEUED_MESSAGES);
+                conn.setAttachment(session);
+                System.out.println("New connection: " + conn.getRemoteSocketAddress() + " (" + format
+                        + (from != null ? ", resuming after " + from : "") + ")");
+                if (strategy != null) {
+                    strategy.open(conn, session, lastSequence);
+                } else {
+                    session.live = true;
+                }
+            } catch (IllegalArgumentException e) {
+                conn.close(CloseFrame.POLICY_VALIDATION, e.getMessage());
+            }
         }
         /**
          * Handles connection closures.
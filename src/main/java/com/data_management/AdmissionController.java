@@ -0,0 +1,166 @@
+package com.data_management;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link IngestFilter} that sheds low-priority record types when ingestion falls behind, so the
+ * vitals alerts are evaluated on keep flowing.
+ * <p>
+ * Load is read from a queue latency, typically {@link RingBufferIngestStage#getQueueLatencyNanos()}.
+ * At or below the target latency every sample is stored. Above it, the overload level is the
+ * number of doublings of the target that the latency reaches: level 1 up to twice the target,
+ * level 2 up to four times, and so on. Every record type has a priority in a configurable
+ * table, 0 being the most important. Priority 0 is never shed. With {@code n} the largest
+ * priority in the table, priority {@code p} is downsampled from level {@code n - p + 1} on,
+ * keeping one sample in 2, then 4, 8, ... with each further level, until it is shed entirely.
+ * The lowest priority is thus thinned first and most.
+ * </p>
+ * <p>
+ * Downsampling hashes each sample's patient and timestamp, so it needs no state, spreads evenly
+ * over patients and is safe from concurrent ingesting threads. Shed samples are counted per
+ * record type.
+ * </p>
+ * <p>
+ * Registered with {@link DataStorage#addIngestFilter} on the storage behind a ring stage, e.g.
+ * {@code new AdmissionController(stage::getQueueLatencyNanos, target)}, shedding lets the
+ * stage's consumers drain faster, which brings the latency back down and shedding to an end.
+ * </p>
+ */
+public class AdmissionController implements IngestFilter {
+    /** Past this many halvings a record type is shed entirely rather than downsampled. */
+    public static final int MAX_DOWNSAMPLING_SHIFT = 6;
+
+    private final LongSupplier queueLatencyNanos;
+    private final long targetLatencyNanos;
+    private final Map<String, Integer> priorities;
+    private final int defaultPriority;
+    private final int lowestPriority;
+    private final LongAdder admitted = new LongAdder();
+    private final Map<String, LongAdder> shed = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a controller with {@link #defaultPriorities()}.
+     *
+     * @param queueLatencyNanos  the current queue latency in nanoseconds
+     * @param targetLatencyNanos the latency up to which nothing is shed
+     */
+    public AdmissionController(LongSupplier queueLatencyNanos, long targetLatencyNanos) {
+        this(queueLatencyNanos, targetLatencyNanos, defaultPriorities(), 1);
+    }
+
+    /**
+     * @param queueLatencyNanos  the current queue latency in nanoseconds
+     * @param targetLatencyNanos the latency up to which nothing is shed
+     * @param priorities         the priority of each record type; 0 is never shed, larger values are shed earlier
+     * @param defaultPriority    the priority of record types missing from the table
+     */
+    public AdmissionController(LongSupplier queueLatencyNanos, long targetLatencyNanos,
+                               Map<String, Integer> priorities, int defaultPriority) {
+        if (queueLatencyNanos == null || priorities == null) {
+            throw new IllegalArgumentException("queueLatencyNanos and priorities are required");
+        }
+        if (targetLatencyNanos <= 0) {
+            throw new IllegalArgumentException("targetLatencyNanos must be positive");
+        }
+        int lowest = defaultPriority;
+        for (int priority : priorities.values()) {
+            lowest = Math.max(lowest, priority);
+            if (priority < 0) {
+                throw new IllegalArgumentException("Priorities cannot be negative");
+            }
+        }
+        if (defaultPriority < 0) {
+            throw new IllegalArgumentException("Priorities cannot be negative");
+        }
+        this.queueLatencyNanos = queueLatencyNanos;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.priorities = new HashMap<>(priorities);
+        this.defaultPriority = defaultPriority;
+        this.lowestPriority = lowest;
+    }
+
+    /**
+     * @return the vitals used by the alert strategies and alerts themselves at priority 0, blood
+     *         cell counts at 1 and cholesterol at 2
+     */
+    public static Map<String, Integer> defaultPriorities() {
+        Map<String, Integer> priorities = new HashMap<>();
+        for (String vital : new String[]{"ECG", "HeartRate", "Saturation", "SystolicPressure", "DiastolicPressure", "Alert"}) {
+            priorities.put(vital, 0);
+        }
+        priorities.put("WhiteBloodCells", 1);
+        priorities.put("RedBloodCells", 1);
+        priorities.put("Cholesterol", 2);
+        return priorities;
+    }
+
+    @Override
+    public boolean accept(int patientId, String recordType, long timestamp, double measurementValue) {
+        int priority = priorities.getOrDefault(recordType, defaultPriority);
+        if (priority == 0) {
+            admitted.increment();
+            return true;
+        }
+        int shift = getOverloadLevel() - (lowestPriority - priority);
+        if (shift <= 0 || (shift <= MAX_DOWNSAMPLING_SHIFT && (mix(patientId, timestamp) & ((1L << shift) - 1)) == 0)) {
+            admitted.increment();
+            return true;
+        }
+        shed.computeIfAbsent(recordType, type -> new LongAdder()).increment();
+        return false;
+    }
+
+    /**
+     * @return 0 at or below the target latency, 1 up to twice the target, 2 up to four times, and so on
+     */
+    public int getOverloadLevel() {
+        long latency = queueLatencyNanos.getAsLong();
+        if (latency <= targetLatencyNanos) {
+            return 0;
+        }
+        return 64 - Long.numberOfLeadingZeros((latency - 1) / targetLatencyNanos);
+    }
+
+    /**
+     * @return the number of samples this controller admitted; a later filter may still drop them
+     */
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    /**
+     * @return the number of samples shed over all record types
+     */
+    public long getShedCount() {
+        long total = 0;
+        for (LongAdder count : shed.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of samples shed per record type, sorted by type
+     */
+    public Map<String, Long> getShedCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        shed.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+
+    // Finalizer of MurmurHash3's 64-bit variant over patient and timestamp
+    private static long mix(int patientId, long timestamp) {
+        long h = timestamp * 0x9e3779b97f4a7c15L ^ patientId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,72 @@
+package com.data_management;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link RecordSink} that collects samples and hands them to
+ * {@link DataStorage#addPatientRecords} in fixed-size batches, so a parser can stream any
+ * amount of data into storage while holding at most one batch in memory.
+ * <p>
+ * Not thread-safe: use one instance per parsing thread and call {@link #flush()} at the end.
+ * </p>
+ */
+public class BatchingRecordSink implements RecordSink {
+    /** Default number of samples per batch. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final DataStorage storage;
+    private final int batchSize;
+    private List<PatientRecord> batch;
+    private long total;
+    private long latestTimestamp;
+
+    public BatchingRecordSink(DataStorage storage) {
+        this(storage, DEFAULT_BATCH_SIZE);
+    }
+
+    public BatchingRecordSink(DataStorage storage, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.storage = storage;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void accept(int patientId, double measurementValue, String recordType, long timestamp) {
+        batch.add(new PatientRecord(patientId, measurementValue, recordType, timestamp));
+        if (timestamp > latestTimestamp) {
+            latestTimestamp = timestamp;
+        }
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Stores the samples collected so far.
+     */
+    public void flush() {
+        if (!batch.isEmpty()) {
+            storage.addPatientRecords(batch);
+            total += batch.size();
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * @return the number of samples flushed to storage so far
+     */
+    public long getFlushedCount() {
+        return total;
+    }
+
+    /**
+     * @return the newest timestamp among the samples accepted so far, or 0 if none
+     */
+    public long getLatestTimestamp() {
+        return latestTimestamp;
+    }
+}
@@ -0,0 +1,279 @@
+package com.data_management;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary frame format for streaming samples, the {@link WireFormat#BINARY} alternative to the
+ * {@code patientId,timestamp,label,value} text messages.
+ *
+ * <h2>Frames</h2>
+ * All numbers are big-endian.
+ * <ul>
+ *     <li><b>Full frame</b> ({@value #FULL_FRAME_SIZE} bytes): {@code 0x01}, patient ID
+ *     ({@code int}), timestamp ({@code long}), {@link RecordTypes} code ({@code short}), value
+ *     ({@code double}). With code {@link RecordTypes#UNKNOWN} the label follows inline as a
+ *     {@code short} length and UTF-8 bytes.</li>
+ *     <li><b>Delta frame</b> (usually 12-14 bytes): {@code 0x02}, the differences of patient ID
+ *     and timestamp to the previous frame as zigzag varints, the type code ({@code byte}) and the
+ *     value ({@code double}). Only written after another frame of the same stream, and only for
+ *     known labels.</li>
+ *     <li><b>Sequence frame</b> ({@value #SEQUENCE_FRAME_SIZE} bytes): {@code 0x03} and the
+ *     stream sequence number ({@code long}) of the sample in the next frame. Sent at the start of a
+ *     message to clients that asked for sequence numbers; the following samples are numbered
+ *     consecutively.</li>
+ * </ul>
+ * An {@link Encoder} and a {@link Decoder} keep the previous frame of their stream. They are
+ * reset together: per message for WebSocket (every message starts with a full frame), and per
+ * connection for TCP. Neither is thread-safe.
+ */
+public final class BinaryRecordCodec {
+    public static final byte FULL_FRAME = 0x01;
+    public static final byte DELTA_FRAME = 0x02;
+    public static final byte SEQUENCE_FRAME = 0x03;
+    /** Size of a full frame of a known record type. */
+    public static final int FULL_FRAME_SIZE = 23;
+    public static final int SEQUENCE_FRAME_SIZE = 9;
+
+    private BinaryRecordCodec() {
+    }
+
+    /**
+     * @return the largest number of bytes {@link Encoder#encode} may write for {@code recordType}
+     */
+    public static int maxFrameSize(String recordType) {
+        if (RecordTypes.codeOf(recordType) != RecordTypes.UNKNOWN) {
+            return FULL_FRAME_SIZE;
+        }
+        return FULL_FRAME_SIZE + 2 + recordType.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Converts the text value produced by the generators to a number: a decimal optionally
+     * followed by a unit ({@code 95.0%}), or an Alert state ({@code triggered} is 1,
+     * {@code resolved} is 0), as {@link CsvMessageParser} reads it.
+     *
+     * @throws NumberFormatException if {@code data} does not start with a number
+     */
+    public static double parseValue(String data) {
+        String trimmed = data.trim();
+        if (trimmed.equals("triggered")) {
+            return 1;
+        }
+        if (trimmed.equals("resolved")) {
+            return 0;
+        }
+        int end = 0;
+        while (end < trimmed.length() && "0123456789.-+eE".indexOf(trimmed.charAt(end)) >= 0) {
+            end++;
+        }
+        return Double.parseDouble(trimmed.substring(0, end));
+    }
+
+    /** Writes frames of one stream. */
+    public static final class Encoder {
+        private boolean hasPrevious;
+        private int previousPatientId;
+        private long previousTimestamp;
+
+        /**
+         * Writes one sample to {@code out} as a delta frame when that is shorter than a full one.
+         *
+         * @throws java.nio.BufferOverflowException if {@code out} has less than
+         *                                          {@link #maxFrameSize} bytes remaining
+         */
+        public void encode(int patientId, long timestamp, String recordType, double value, ByteBuffer out) {
+            int code = RecordTypes.codeOf(recordType);
+            if (hasPrevious && code != RecordTypes.UNKNOWN) {
+                long patientDelta = zigzag((long) patientId - previousPatientId);
+                long timestampDelta = zigzag(timestamp - previousTimestamp);
+                if (1 + varintSize(patientDelta) + varintSize(timestampDelta) + 1 + 8 < FULL_FRAME_SIZE) {
+                    out.put(DELTA_FRAME);
+                    putVarint(out, patientDelta);
+                    putVarint(out, timestampDelta);
+                    out.put((byte) code);
+                    out.putDouble(value);
+                    remember(patientId, timestamp);
+                    return;
+                }
+            }
+            out.put(FULL_FRAME);
+            out.putInt(patientId);
+            out.putLong(timestamp);
+            out.putShort((short) code);
+            out.putDouble(value);
+            if (code == RecordTypes.UNKNOWN) {
+                byte[] label = recordType.getBytes(StandardCharsets.UTF_8);
+                out.putShort((short) label.length);
+                out.put(label);
+            }
+            remember(patientId, timestamp);
+        }
+
+        /**
+         * Writes a sequence frame numbering the samples that follow, starting with {@code sequence}.
+         */
+        public void encodeSequence(long sequence, ByteBuffer out) {
+            out.put(SEQUENCE_FRAME);
+            out.putLong(sequence);
+        }
+
+        /**
+         * Starts a new stream: the next frame is a full frame.
+         */
+        public void reset() {
+            hasPrevious = false;
+        }
+
+        private void remember(int patientId, long timestamp) {
+            hasPrevious = true;
+            previousPatientId = patientId;
+            previousTimestamp = timestamp;
+        }
+    }
+
+    /** Reads frames of one stream. */
+    public static final class Decoder {
+        private boolean hasPrevious;
+        private int previousPatientId;
+        private long previousTimestamp;
+        private long nextSequence = -1;
+        private long lastSequence = -1;
+
+        /**
+         * Decodes the complete frames in {@code in} and sends them to {@code sink}. An incomplete
+         * frame at the end is left in the buffer, so stream readers can append more bytes and
+         * call again.
+         *
+         * @return the number of samples decoded
+         * @throws IllegalArgumentException if the bytes are not a valid frame sequence
+         */
+        public int decode(ByteBuffer in, RecordSink sink) {
+            int count = 0;
+            while (in.hasRemaining()) {
+                int start = in.position();
+                try {
+                    if (decodeFrame(in, sink)) {
+                        count++;
+                    }
+                } catch (BufferUnderflowException e) {
+                    in.position(start);
+                    break;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return the sequence number of the last sample decoded after a sequence frame, or
+         * {@code -1} if the stream carries no sequence numbers
+         */
+        public long getLastSequence() {
+            return lastSequence;
+        }
+
+        /**
+         * Starts a new stream: the next frame must be a full frame. The last sequence number is kept.
+         */
+        public void reset() {
+            hasPrevious = false;
+            nextSequence = -1;
+        }
+
+        // Returns false for a sequence frame, which carries no sample
+        private boolean decodeFrame(ByteBuffer in, RecordSink sink) {
+            byte type = in.get();
+            if (type == SEQUENCE_FRAME) {
+                nextSequence = in.getLong();
+                return false;
+            }
+            int patientId;
+            long timestamp;
+            String recordType;
+            double value;
+            if (type == FULL_FRAME) {
+                patientId = in.getInt();
+                timestamp = in.getLong();
+                int code = in.getShort();
+                value = in.getDouble();
+                if (code == RecordTypes.UNKNOWN) {
+                    int length = in.getShort() & 0xFFFF;
+                    if (in.remaining() < length) {
+                        throw new BufferUnderflowException();
+                    }
+                    byte[] label = new byte[length];
+                    in.get(label);
+                    recordType = new String(label, StandardCharsets.UTF_8);
+                } else {
+                    recordType = labelOf(code);
+                }
+            } else if (type == DELTA_FRAME) {
+                if (!hasPrevious) {
+                    throw new IllegalArgumentException("Delta frame without a preceding full frame");
+                }
+                long patientDelta = unzigzag(getVarint(in));
+                long timestampDelta = unzigzag(getVarint(in));
+                recordType = labelOf(in.get());
+                value = in.getDouble();
+                patientId = (int) (previousPatientId + patientDelta);
+                timestamp = previousTimestamp + timestampDelta;
+            } else {
+                throw new IllegalArgumentException("Unknown frame type " + type);
+            }
+            hasPrevious = true;
+            previousPatientId = patientId;
+            previousTimestamp = timestamp;
+            if (nextSequence >= 0) {
+                lastSequence = nextSequence++;
+            }
+            sink.accept(patientId, value, recordType, timestamp);
+            return true;
+        }
+
+        private static String labelOf(int code) {
+            String label = RecordTypes.labelOf(code);
+            if (label == null) {
+                throw new IllegalArgumentException("Unknown record type code " + code);
+            }
+            return label;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long getVarint(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Varint longer than 10 bytes");
+    }
+}
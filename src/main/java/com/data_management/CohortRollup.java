@@ -0,0 +1,344 @@
+package com.data_management;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Ward-level, per-minute statistics across all patients, maintained as records are stored.
+ * <p>
+ * Register the rollup as a {@link RecordListener} on a {@link DataStorage}. For every tracked
+ * record type it keeps a ring of per-minute aggregates (count, sum, min, max and a fixed-width
+ * histogram). All of them are striped accumulators ({@link LongAdder}, {@link DoubleAdder},
+ * {@link DoubleAccumulator}), so ingest threads for different patients do not contend on a
+ * single counter. Publishing ward statistics is then a read of at most {@code N} minute slots
+ * instead of a scan over {@link DataStorage#getAllPatients()}.
+ * </p>
+ * <p>
+ * Minutes are taken from the record timestamps. Samples older than the retention window behind
+ * the newest minute seen, and samples whose minute slot was recycled for a newer minute while
+ * they were being added, are counted in {@link #getLateSamples()} and otherwise ignored.
+ * </p>
+ */
+public class CohortRollup implements RecordListener {
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    /**
+     * Immutable statistics of one record type over one or more minutes.
+     */
+    public static final class MinuteStats {
+        private final long startMillis;
+        private final long endMillis;
+        private final long count;
+        private final double sum;
+        private final double min;
+        private final double max;
+        private final double histogramLower;
+        private final double bucketWidth;
+        private final long[] histogram;
+
+        MinuteStats(long startMillis, long endMillis, long count, double sum, double min, double max,
+                    double histogramLower, double bucketWidth, long[] histogram) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.histogramLower = histogramLower;
+            this.bucketWidth = bucketWidth;
+            this.histogram = histogram;
+        }
+
+        /** @return the start of the first minute covered, in milliseconds since epoch */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /** @return the end of the last minute covered (exclusive), in milliseconds since epoch */
+        public long getEndMillis() {
+            return endMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /** @return the mean value, or {@code NaN} when there were no samples */
+        public double getMean() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+
+        /** @return the smallest value, or {@code NaN} when there were no samples */
+        public double getMin() {
+            return count == 0 ? Double.NaN : min;
+        }
+
+        /** @return the largest value, or {@code NaN} when there were no samples */
+        public double getMax() {
+            return count == 0 ? Double.NaN : max;
+        }
+
+        /**
+         * Returns the histogram counts. Index 0 counts values below the lower bound, the last
+         * index counts values at or above the upper bound, and index {@code i} in between counts
+         * values in {@code [lower + (i-1) * width, lower + i * width)}.
+         *
+         * @return a copy of the bucket counts
+         */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        /** @return the lower bound of the first regular histogram bucket */
+        public double getHistogramLower() {
+            return histogramLower;
+        }
+
+        /** @return the width of each regular histogram bucket */
+        public double getBucketWidth() {
+            return bucketWidth;
+        }
+
+        MinuteStats merge(MinuteStats other) {
+            long[] merged = histogram.clone();
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] += other.histogram[i];
+            }
+            return new MinuteStats(Math.min(startMillis, other.startMillis), Math.max(endMillis, other.endMillis),
+                    count + other.count, sum + other.sum, Math.min(min, other.min), Math.max(max, other.max),
+                    histogramLower, bucketWidth, merged);
+        }
+    }
+
+    // Fixed-width histogram layout of one tracked record type
+    private static final class Track {
+        final double lower;
+        final double width;
+        final int buckets;
+        final AtomicReferenceArray<MinuteAggregate> slots;
+        // Newest minute a sample arrived for; the retention window ends there
+        final AtomicLong newestMinute = new AtomicLong(Long.MIN_VALUE);
+
+        Track(double lower, double upper, int buckets, int retentionMinutes) {
+            this.lower = lower;
+            this.width = (upper - lower) / buckets;
+            this.buckets = buckets;
+            this.slots = new AtomicReferenceArray<>(retentionMinutes);
+        }
+
+        // Moves the newest minute forward if needed and returns it; only writes once per minute
+        long advance(long minute) {
+            long newest = newestMinute.get();
+            while (minute > newest) {
+                if (newestMinute.compareAndSet(newest, minute)) {
+                    return minute;
+                }
+                newest = newestMinute.get();
+            }
+            return newest;
+        }
+
+        int bucketOf(double value) {
+            if (value < lower) {
+                return 0;
+            }
+            int index = (int) ((value - lower) / width) + 1;
+            return Math.min(index, buckets + 1);
+        }
+    }
+
+    // Striped accumulators for one record type during one minute
+    private static final class MinuteAggregate {
+        final long minute;
+        final LongAdder count = new LongAdder();
+        final DoubleAdder sum = new DoubleAdder();
+        final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+        final LongAdder[] histogram;
+
+        MinuteAggregate(long minute, int buckets) {
+            this.minute = minute;
+            this.histogram = new LongAdder[buckets + 2];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        MinuteStats snapshot(Track track) {
+            long[] counts = new long[histogram.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = histogram[i].sum();
+            }
+            return new MinuteStats(minute * MINUTE_MILLIS, (minute + 1) * MINUTE_MILLIS, count.sum(), sum.sum(),
+                    min.get(), max.get(), track.lower, track.width, counts);
+        }
+    }
+
+    private final int retentionMinutes;
+    private final LongSupplier clock;
+    private final Map<String, Track> tracks = new ConcurrentHashMap<>();
+    private final LongAdder lateSamples = new LongAdder();
+
+    /**
+     * Creates a rollup keeping the last 60 minutes of SpO2, heart rate and blood pressure.
+     */
+    public CohortRollup() {
+        this(60, System::currentTimeMillis);
+        track("Saturation", 80, 100, 20);
+        track("HeartRate", 30, 210, 18);
+        track("SystolicPressure", 60, 220, 16);
+        track("DiastolicPressure", 30, 150, 12);
+    }
+
+    /**
+     * Creates a rollup that tracks no record types yet; add them with {@link #track}.
+     *
+     * @param retentionMinutes how many minutes of history to keep
+     * @param clock            source of the current time for {@link #lastMinutes}, in milliseconds
+     */
+    public CohortRollup(int retentionMinutes, LongSupplier clock) {
+        if (retentionMinutes <= 0) {
+            throw new IllegalArgumentException("retentionMinutes must be positive");
+        }
+        this.retentionMinutes = retentionMinutes;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts (or restarts) tracking a record type with a histogram of equal-width buckets.
+     *
+     * @param recordType the record type, e.g. "Saturation"
+     * @param lower      lower bound of the histogram
+     * @param upper      upper bound of the histogram
+     * @param buckets    number of buckets between the bounds
+     * @return this rollup
+     */
+    public CohortRollup track(String recordType, double lower, double upper, int buckets) {
+        if (!(upper > lower) || buckets <= 0) {
+            throw new IllegalArgumentException("Invalid histogram for " + recordType);
+        }
+        tracks.put(recordType, new Track(lower, upper, buckets, retentionMinutes));
+        return this;
+    }
+
+    @Override
+    public void onRecordAdded(PatientRecord record) {
+        Track track = tracks.get(record.getRecordType());
+        if (track == null) {
+            return;
+        }
+        double value = record.getMeasurementValue();
+        long minute = Math.floorDiv(record.getTimestamp(), MINUTE_MILLIS);
+        if (minute <= track.advance(minute) - retentionMinutes) {
+            lateSamples.increment();
+            return;
+        }
+        MinuteAggregate aggregate = aggregateFor(track, minute);
+        if (aggregate == null) {
+            lateSamples.increment();
+            return;
+        }
+        aggregate.count.increment();
+        aggregate.sum.add(value);
+        aggregate.min.accumulate(value);
+        aggregate.max.accumulate(value);
+        aggregate.histogram[track.bucketOf(value)].increment();
+        if (track.slots.get(slotOf(minute)) != aggregate) {
+            // the slot went to a newer minute while the sample was added; it was lost with the old aggregate
+            lateSamples.increment();
+        }
+    }
+
+    /**
+     * Returns per-minute statistics for the last {@code n} minutes up to and including the
+     * current one, oldest first. Minutes without samples are left out.
+     *
+     * @param recordType the record type
+     * @param n          the number of minutes, at most the retention
+     * @return the statistics of each minute that had samples
+     */
+    public List<MinuteStats> lastMinutes(String recordType, int n) {
+        List<MinuteStats> result = new ArrayList<>();
+        Track track = tracks.get(recordType);
+        if (track == null) {
+            return result;
+        }
+        long current = Math.floorDiv(clock.getAsLong(), MINUTE_MILLIS);
+        int span = Math.min(n, retentionMinutes);
+        for (long minute = current - span + 1; minute <= current; minute++) {
+            MinuteAggregate aggregate = track.slots.get(slotOf(minute));
+            if (aggregate != null && aggregate.minute == minute) {
+                result.add(aggregate.snapshot(track));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Combines the last {@code n} minutes into one set of statistics.
+     *
+     * @param recordType the record type
+     * @param n          the number of minutes, at most the retention
+     * @return the combined statistics, with a count of 0 if there were no samples
+     */
+    public MinuteStats summary(String recordType, int n) {
+        Track track = tracks.get(recordType);
+        if (track == null) {
+            throw new IllegalArgumentException("Record type is not tracked: " + recordType);
+        }
+        long end = (Math.floorDiv(clock.getAsLong(), MINUTE_MILLIS) + 1) * MINUTE_MILLIS;
+        MinuteStats total = new MinuteStats(end - Math.min(n, retentionMinutes) * MINUTE_MILLIS, end, 0, 0,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, track.lower, track.width,
+                new long[track.buckets + 2]);
+        for (MinuteStats minute : lastMinutes(recordType, n)) {
+            total = total.merge(minute);
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of samples ignored because they were older than the retention window
+     */
+    public long getLateSamples() {
+        return lateSamples.sum();
+    }
+
+    /**
+     * @return the record types being tracked
+     */
+    public List<String> getTrackedTypes() {
+        List<String> types = new ArrayList<>(tracks.keySet());
+        types.sort(null);
+        return types;
+    }
+
+    // Finds the aggregate of the given minute, recycling the slot if it still holds an older minute
+    private MinuteAggregate aggregateFor(Track track, long minute) {
+        int slot = slotOf(minute);
+        while (true) {
+            MinuteAggregate current = track.slots.get(slot);
+            if (current != null && current.minute == minute) {
+                return current;
+            }
+            if (current != null && current.minute > minute) {
+                return null;
+            }
+            MinuteAggregate fresh = new MinuteAggregate(minute, track.buckets);
+            if (track.slots.compareAndSet(slot, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private int slotOf(long minute) {
+        return (int) Math.floorMod(minute, (long) retentionMinutes);
+    }
+}
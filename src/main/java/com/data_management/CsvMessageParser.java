@@ -0,0 +1,344 @@
+package com.data_management;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parser for the {@code patientId,timestamp,label,value} messages sent by
+ * {@code WebSocketOutputStrategy}, reading the fields directly from the message characters or
+ * bytes.
+ * <p>
+ * Numbers are decoded in place and the label is resolved to a {@link RecordTypes} code, so
+ * parsing a message with one of the simulator's labels allocates nothing (apart from values too
+ * long for the exact fast path of {@link FastNumbers#parseDouble}). The value may carry a
+ * unit, either {@code %} ({@code 95.0%}) or a word after a space ({@code 120 mmHg}), which is
+ * ignored; any other text after the number makes the message malformed. Alert values are mapped to
+ * {@code 1} for {@code triggered} and {@code 0} for {@code resolved}, as in
+ * {@link TextFileDataReader}. Spaces around fields are allowed.
+ * </p>
+ * <p>
+ * The parsed fields are kept in the parser until the next call, so an instance must not be
+ * shared between threads; each WebSocket client reads messages on a single thread and can own one.
+ * </p>
+ */
+public final class CsvMessageParser {
+    private static final char[] TRIGGERED = "triggered".toCharArray();
+    private static final char[] RESOLVED = "resolved".toCharArray();
+
+    private char[] scratch = new char[64];
+    private int length;
+
+    private int patientId;
+    private long timestamp;
+    private int typeCode;
+    private int labelStart;
+    private int labelEnd;
+    private double value;
+    private String label;
+
+    /**
+     * Parses a message.
+     *
+     * @return {@code true} if the message was well-formed; the getters then describe it
+     */
+    public boolean parse(CharSequence message) {
+        return parse(message, 0, message.length());
+    }
+
+    /**
+     * Parses the message in {@code message[start, end)}.
+     *
+     * @return {@code true} if the message was well-formed
+     */
+    public boolean parse(CharSequence message, int start, int end) {
+        int n = end - start;
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            scratch[i] = message.charAt(start + i);
+        }
+        length = n;
+        return parseScratch();
+    }
+
+    /**
+     * Parses a message encoded as UTF-8 (or ASCII) in {@code bytes[offset, offset + count)}.
+     *
+     * @return {@code true} if the message was well-formed
+     */
+    public boolean parse(byte[] bytes, int offset, int count) {
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            byte b = bytes[offset + i];
+            if (b < 0) {
+                return false; // the simulator only sends ASCII
+            }
+            scratch[i] = (char) b;
+        }
+        length = count;
+        return parseScratch();
+    }
+
+    /**
+     * Parses the remaining bytes of {@code buffer} without changing its position.
+     *
+     * @return {@code true} if the message was well-formed
+     */
+    public boolean parse(ByteBuffer buffer) {
+        return parse(buffer, buffer.position(), buffer.limit());
+    }
+
+    /**
+     * Parses the bytes {@code buffer[start, end)} with absolute reads, so a reader can parse the
+     * lines of a receive buffer in place without slicing it or moving its position.
+     *
+     * @return {@code true} if the message was well-formed
+     */
+    public boolean parse(ByteBuffer buffer, int start, int end) {
+        int count = end - start;
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            byte b = buffer.get(start + i);
+            if (b < 0) {
+                return false;
+            }
+            scratch[i] = (char) b;
+        }
+        length = count;
+        return parseScratch();
+    }
+
+    /**
+     * Parses a message and hands it to {@code sink} if it is well-formed.
+     *
+     * @return {@code true} if the message was well-formed and delivered
+     */
+    public boolean parseTo(CharSequence message, RecordSink sink) {
+        if (!parse(message)) {
+            return false;
+        }
+        sink.accept(patientId, value, getRecordType(), timestamp);
+        return true;
+    }
+
+    /**
+     * Parses a batched message of newline-separated lines, as sent by a batching
+     * {@code WebSocketOutputStrategy}, and hands every well-formed line to {@code sink}.
+     * A message without newline is a batch of one. Empty lines and header lines starting with
+     * {@code #} (see {@link #lastSequenceOf}) are ignored.
+     *
+     * @return the number of malformed lines, which are skipped
+     */
+    public int parseLinesTo(CharSequence message, RecordSink sink) {
+        int malformed = 0;
+        int lineStart = 0;
+        int n = message.length();
+        while (lineStart < n) {
+            int lineEnd = lineStart;
+            while (lineEnd < n && message.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd > lineStart && message.charAt(lineStart) != '#') {
+                if (parse(message, lineStart, lineEnd)) {
+                    sink.accept(patientId, value, getRecordType(), timestamp);
+                } else {
+                    malformed++;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return malformed;
+    }
+
+    /**
+     * Reads the sequence number of a message sent to a client that asked for sequence numbers:
+     * such a message starts with a {@code #<sequence>} line giving the number of its first
+     * sample, and the following lines are numbered consecutively.
+     *
+     * @return the sequence number of the last sample line of the message, or {@code -1} if the
+     * message has no valid sequence header
+     */
+    public static long lastSequenceOf(CharSequence message) {
+        int n = message.length();
+        if (n < 2 || message.charAt(0) != '#') {
+            return -1;
+        }
+        int i = 1;
+        long first = 0;
+        while (i < n && message.charAt(i) >= '0' && message.charAt(i) <= '9') {
+            first = first * 10 + (message.charAt(i) - '0');
+            i++;
+        }
+        if (i == 1 || (i < n && message.charAt(i) != '\n' && message.charAt(i) != '\r')) {
+            return -1;
+        }
+        long samples = 0;
+        boolean lineHasContent = false;
+        for (; i < n; i++) {
+            char c = message.charAt(i);
+            if (c == '\n') {
+                lineHasContent = false;
+            } else if (!lineHasContent && c != '\r') {
+                lineHasContent = true;
+                samples++;
+            }
+        }
+        return first + samples - 1;
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the {@link RecordTypes} code of the label, or {@link RecordTypes#UNKNOWN}
+     */
+    public int getTypeCode() {
+        return typeCode;
+    }
+
+    /**
+     * @return the label; a shared constant for known labels, a new string otherwise
+     */
+    public String getRecordType() {
+        if (label == null) {
+            label = new String(scratch, labelStart, labelEnd - labelStart);
+        }
+        return label;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    private boolean parseScratch() {
+        label = null;
+        int firstComma = indexOf(',', 0);
+        int secondComma = firstComma < 0 ? -1 : indexOf(',', firstComma + 1);
+        int thirdComma = secondComma < 0 ? -1 : indexOf(',', secondComma + 1);
+        if (thirdComma < 0 || indexOf(',', thirdComma + 1) >= 0) {
+            return false;
+        }
+        try {
+            long id = parseInteger(0, firstComma);
+            if (id < Integer.MIN_VALUE || id > Integer.MAX_VALUE) {
+                return false;
+            }
+            patientId = (int) id;
+            timestamp = parseInteger(firstComma + 1, secondComma);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        labelStart = skipSpaces(secondComma + 1, thirdComma);
+        labelEnd = trimSpaces(labelStart, thirdComma);
+        if (labelStart == labelEnd) {
+            return false;
+        }
+        typeCode = RecordTypes.codeOf(scratch, labelStart, labelEnd);
+        if (typeCode != RecordTypes.UNKNOWN) {
+            label = RecordTypes.labelOf(typeCode);
+        }
+        return parseValue(skipSpaces(thirdComma + 1, length), trimSpaces(thirdComma + 1, length));
+    }
+
+    private boolean parseValue(int start, int end) {
+        if (regionIs(start, end, TRIGGERED)) {
+            value = 1;
+            return true;
+        }
+        if (regionIs(start, end, RESOLVED)) {
+            value = 0;
+            return true;
+        }
+        // the number ends at the first character that cannot belong to it; the rest must be a unit
+        int numberEnd = start;
+        while (numberEnd < end && isNumberChar(scratch[numberEnd])) {
+            numberEnd++;
+        }
+        if (numberEnd == start || !isUnit(numberEnd, end)) {
+            return false;
+        }
+        try {
+            value = FastNumbers.parseDouble(scratch, start, numberEnd);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private long parseInteger(int start, int end) {
+        return FastNumbers.parseLong(scratch, skipSpaces(start, end), trimSpaces(start, end));
+    }
+
+    private int indexOf(char c, int from) {
+        for (int i = from; i < length; i++) {
+            if (scratch[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int skipSpaces(int start, int end) {
+        while (start < end && scratch[start] == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimSpaces(int start, int end) {
+        while (end > start && (scratch[end - 1] == ' ' || scratch[end - 1] == '\r' || scratch[end - 1] == '\n')) {
+            end--;
+        }
+        return end;
+    }
+
+    private boolean regionIs(int start, int end, char[] word) {
+        if (end - start != word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (scratch[start + i] != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Nothing, a '%' right after the number, or a word such as mmHg or mg/dL after a space
+    private boolean isUnit(int start, int end) {
+        if (start == end) {
+            return true;
+        }
+        if (scratch[start] == '%') {
+            return start + 1 == end;
+        }
+        if (scratch[start] != ' ' && scratch[start] != '\t') {
+            return false;
+        }
+        int unitStart = start;
+        while (unitStart < end && (scratch[unitStart] == ' ' || scratch[unitStart] == '\t')) {
+            unitStart++;
+        }
+        for (int i = unitStart; i < end; i++) {
+            char c = scratch[i];
+            if (!Character.isLetter(c) && c != '%' && c != '/') {
+                return false;
+            }
+        }
+        return unitStart < end;
+    }
+
+    private static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E';
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > scratch.length) {
+            scratch = new char[Math.max(n, scratch.length * 2)];
+        }
+    }
+}
@@ -6,6 +6,9 @@ import org.json.JSONTokener;
 
 import java.io.File;
 import java.io.FileReader;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -13,13 +16,34 @@ import java.util.ArrayList;
 import java.util.List;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DataReaderClass implements DataReader {
 
     private final String outputDirectory;
+    private final boolean streaming;
 
     public DataReaderClass(String outputDirectory) {
+        this(outputDirectory, false);
+    }
+
+    /**
+     * @param outputDirectory the directory holding the exported files
+     * @param streaming       if {@code true}, files are parsed with {@link JsonRecordStreamParser}
+     *                        and stored in batches instead of being loaded as a whole
+     *                        {@code JSONArray}; {@code .ndjson} and {@code .jsonl} files are read too
+     *                        <p>
+     *                        In both modes, files with an additional {@code .gz} suffix are
+     *                        decompressed while they are read.
+     *                        </p>
+     */
+    public DataReaderClass(String outputDirectory, boolean streaming) {
         this.outputDirectory = outputDirectory;
+        this.streaming = streaming;
     }
 
     @Override
@@ -38,10 +62,14 @@ public class DataReaderClass implements DataReader {
 
         if (files != null) {
             for (File file : files) {
-                if (file.isFile() && file.getName().endsWith(".json")) {
+                if (file.isFile() && isDataFile(file)) {
                     try {
-                        List<PatientRecord> records = parseFile(file);
-                        storeRecords(dataStorage, records);
+                        if (streaming) {
+                            streamFile(file, dataStorage);
+                        } else {
+                            List<PatientRecord> records = parseFile(file);
+                            storeRecords(dataStorage, records);
+                        }
                     } catch (Exception e) {
                         // Логируем ошибку, но не бросаем IOException, чтобы не прерывать обработку других файлов
                         System.err.println("⚠️ Error processing file " + file.getName() + ": " + e.getMessage());
@@ -51,6 +79,86 @@ public class DataReaderClass implements DataReader {
         }
     }
 
+    /**
+     * Reads every {@code .json} file of the directory on a bounded pool of worker threads.
+     * Files are parsed concurrently and each file's records go into the storage through the
+     * batched {@link DataStorage#addPatientRecords} path. As in {@link #readData}, a file that
+     * cannot be parsed is logged and skipped without affecting the others.
+     *
+     * @param dataStorage the storage receiving the records
+     * @param threads     the number of worker threads
+     * @return file and record counts and throughput of the run
+     * @throws IOException if the directory does not exist or the run is interrupted
+     */
+    public IngestionStats readDataParallel(DataStorage dataStorage, int threads) throws IOException {
+        if (dataStorage == null) {
+            throw new IllegalArgumentException("DataStorage cannot be null");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        if (!Files.isDirectory(Paths.get(outputDirectory))) {
+            throw new IOException("Directory not found: " + outputDirectory);
+        }
+
+        long start = System.nanoTime();
+        AtomicInteger files = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong recordCount = new AtomicLong();
+
+        // Bounded queue + caller-runs: the listing thread helps out instead of queueing every file
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            for (File file : listJsonFiles()) {
+                pool.execute(() -> {
+                    try {
+                        if (streaming) {
+                            recordCount.addAndGet(streamFile(file, dataStorage));
+                        } else {
+                            List<PatientRecord> records = parseFile(file);
+                            dataStorage.addPatientRecords(records);
+                            recordCount.addAndGet(records.size());
+                        }
+                        files.incrementAndGet();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        System.err.println("⚠️ Error processing file " + file.getName() + ": " + e.getMessage());
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+        }
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Parallel ingestion interrupted", e);
+        }
+        return new IngestionStats(files.get(), failed.get(), recordCount.get(), System.nanoTime() - start);
+    }
+
+    private List<File> listJsonFiles() {
+        List<File> jsonFiles = new ArrayList<>();
+        File[] files = new File(outputDirectory).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && isDataFile(file)) {
+                    jsonFiles.add(file);
+                }
+            }
+        }
+        return jsonFiles;
+    }
+
+    private boolean isDataFile(File file) {
+        String name = GzipFiles.baseName(file);
+        return name.endsWith(".json")
+                || (streaming && (name.endsWith(".ndjson") || name.endsWith(".jsonl")));
+    }
+
     @Override
     public void stopReading() {
 
@@ -59,7 +167,8 @@ public class DataReaderClass implements DataReader {
     public List<PatientRecord> parseFile(File file) throws IOException {
         List<PatientRecord> records = new ArrayList<>();
 
-        try (FileReader reader = new FileReader(file)) {
+        try (Reader reader = GzipFiles.isCompressed(file)
+                ? new InputStreamReader(GzipFiles.open(file), StandardCharsets.UTF_8) : new FileReader(file)) {
             JSONTokener token = new JSONTokener(reader);
             Object json = token.nextValue();
 
@@ -89,6 +198,49 @@ public class DataReaderClass implements DataReader {
         return records;
     }
 
+    /**
+     * Parses a JSON array or newline-delimited JSON file with {@link JsonRecordStreamParser} and
+     * stores its records in batches of {@link BatchingRecordSink#DEFAULT_BATCH_SIZE}, so memory
+     * use does not depend on the file size.
+     *
+     * @return the number of records stored
+     * @throws IOException if the file cannot be read or is not well-formed JSON; records of
+     *                     earlier batches are already stored in that case
+     */
+    public long streamFile(File file, DataStorage dataStorage) throws IOException {
+        BatchingRecordSink sink = new BatchingRecordSink(dataStorage);
+        try {
+            streamFile(file, sink);
+        } finally {
+            sink.flush();
+        }
+        return sink.getFlushedCount();
+    }
+
+    /**
+     * Parses a JSON array or newline-delimited JSON file, sending each record to {@code sink}
+     * as soon as it is read. A {@code .gz} file is decompressed on the fly; one whose end is
+     * missing yields the records up to its last flushed block.
+     *
+     * @return the number of records sent to the sink
+     * @throws IOException if the file cannot be read or is not well-formed JSON
+     */
+    public long streamFile(File file, RecordSink sink) throws IOException {
+        try (Reader reader = GzipFiles.isCompressed(file)
+                ? new InputStreamReader(GzipFiles.open(file), StandardCharsets.UTF_8)
+                : Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            JsonRecordStreamParser parser = new JsonRecordStreamParser(reader);
+            long count = parser.parse(sink);
+            if (parser.getSkippedRecords() > 0) {
+                System.err.println("Skipped " + parser.getSkippedRecords()
+                        + " records with missing or invalid fields in file: " + file.getName());
+            }
+            return count;
+        } catch (IOException e) {
+            throw new IOException("Invalid JSON format in file: " + file.getName() + " (" + e.getMessage() + ")", e);
+        }
+    }
+
     public PatientRecord parseRecord(JSONObject jsonRecord) {
         try {
             if (!jsonRecord.has("patientId") ||
@@ -3,13 +3,20 @@ package com.data_management;
 import com.alerts.AlertGenerator;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoublePredicate;
 
 
 //Singleton class for managing storage and retrieval of patient data in a healthcare monitoring system.
 public class DataStorage {
     private static DataStorage instance;
     private final Map<Integer, Patient> patientMap;
+    private final List<RecordListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<IngestFilter> filters = new CopyOnWriteArrayList<>();
+    private final PatientTypeIndex typeIndex = new PatientTypeIndex();
+    private final SubscriptionRegistry subscriptions = new SubscriptionRegistry();
 
     // Modified constructor to be protected for testing
     public DataStorage() {
@@ -38,14 +45,111 @@ public class DataStorage {
     public void addPatientData(int patientId, double measurementValue,
                                String recordType, long timestamp) {
         patientMap.compute(patientId, (id, patient) -> {
+            if (!accepts(id, recordType, timestamp, measurementValue)) {
+                return patient;
+            }
             if (patient == null) {
                 patient = new Patient(id);
             }
-            patient.addRecord(measurementValue, recordType, timestamp);
+            indexAndNotify(patient, patient.addRecord(measurementValue, recordType, timestamp));
             return patient;
         });
     }
 
+    // Batched ingest path: records are grouped by patient and each patient's entry is updated once
+    // per batch. Records of one patient keep the order they have in the list.
+    public void addPatientRecords(List<PatientRecord> records) {
+        Map<Integer, List<PatientRecord>> byPatient = new LinkedHashMap<>();
+        for (PatientRecord record : records) {
+            byPatient.computeIfAbsent(record.getPatientId(), id -> new ArrayList<>()).add(record);
+        }
+        for (Map.Entry<Integer, List<PatientRecord>> entry : byPatient.entrySet()) {
+            patientMap.compute(entry.getKey(), (id, patient) -> {
+                for (PatientRecord record : entry.getValue()) {
+                    if (!accepts(id, record.getRecordType(), record.getTimestamp(), record.getMeasurementValue())) {
+                        continue;
+                    }
+                    if (patient == null) {
+                        patient = new Patient(id);
+                    }
+                    indexAndNotify(patient, patient.addRecord(record));
+                }
+                return patient;
+            });
+        }
+    }
+
+    // Must run inside the patient's compute, like listeners, so filters see per-patient order
+    private boolean accepts(int patientId, String recordType, long timestamp, double measurementValue) {
+        for (IngestFilter filter : filters) {
+            if (!filter.accept(patientId, recordType, timestamp, measurementValue)) {
+                return false;
+            }
+        }
+        for (IngestFilter filter : filters) {
+            filter.onAccepted(patientId, recordType, timestamp, measurementValue);
+        }
+        return true;
+    }
+
+    // Must run inside the patient's compute so index updates and listeners see per-patient order
+    private void indexAndNotify(Patient patient, PatientRecord record) {
+        long bucket = PatientTypeIndex.bucketOf(record.getTimestamp());
+        if (patient.markIndexed(record.getRecordType(), bucket)) {
+            typeIndex.add(patient.getPatientId(), record.getRecordType(), bucket);
+        }
+        notifyListeners(record);
+    }
+
+    // Registers a listener that is told about every stored record (see RecordListener for threading rules)
+    public void addRecordListener(RecordListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    public void removeRecordListener(RecordListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Registers a filter that can drop samples before they are stored (see IngestFilter for threading
+    // rules). Filters run in registration order; the first one that rejects a sample wins.
+    public void addIngestFilter(IngestFilter filter) {
+        filters.add(Objects.requireNonNull(filter, "filter"));
+    }
+
+    public void removeIngestFilter(IngestFilter filter) {
+        filters.remove(filter);
+    }
+
+    // Registers a continuous query: every stored record of recordType (null = any type) from one of
+    // patientIds (null or empty = all patients) whose value passes condition (null = any value)
+    // is pushed to callback on the ingesting thread, under the same rules as a RecordListener.
+    public Subscription subscribe(String recordType, Set<Integer> patientIds,
+                                  DoublePredicate condition, RecordListener callback) {
+        Objects.requireNonNull(callback, "callback");
+        return subscriptions.add(new Subscription(recordType, patientIds, condition, callback, subscriptions));
+    }
+
+    // Same as above, but matching records are offered to a queue so the subscriber can consume them
+    // on its own thread. Records that do not fit into a bounded queue are dropped.
+    public Subscription subscribe(String recordType, Set<Integer> patientIds,
+                                  DoublePredicate condition, BlockingQueue<PatientRecord> queue) {
+        Objects.requireNonNull(queue, "queue");
+        return subscribe(recordType, patientIds, condition, (RecordListener) queue::offer);
+    }
+
+    // Number of active subscriptions
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    // Package-private so ShardedDataStorage can fan out the records its shards store
+    void notifyListeners(PatientRecord record) {
+        for (RecordListener listener : listeners) {
+            listener.onRecordAdded(record);
+        }
+        subscriptions.dispatch(record);
+    }
+
     //Retrieves patient records for a specific time range
     public List<PatientRecord> getRecords(int patientId, long startTime, long endTime) {
         Patient patient = patientMap.get(patientId);
@@ -53,7 +157,59 @@ public class DataStorage {
     }
 
 
+    // Returns all records of the patient, copied inside its compute: listeners have already been told
+    // about every record in the copy and about none stored after it. Empty if the patient is unknown.
+    public List<PatientRecord> copyRecords(int patientId) {
+        List<PatientRecord> copy = new ArrayList<>();
+        patientMap.computeIfPresent(patientId, (id, patient) -> {
+            copy.addAll(patient.getRecords(Long.MIN_VALUE, Long.MAX_VALUE));
+            return patient;
+        });
+        return copy;
+    }
+
+    // Removes every patient, for storages that rebuild their contents, e.g. a replica re-syncing
+    // from a snapshot. Must not run while records are being added.
+    protected void clear() {
+        patientMap.clear();
+        typeIndex.clear();
+    }
+
+    // Returns the patient's entry, or null if nothing was stored for it
+    Patient getPatient(int patientId) {
+        return patientMap.get(patientId);
+    }
+
      //Returns all patients in storage
     public List<Patient> getAllPatients() {
         return new ArrayList<>(patientMap.values());
-    }}
\ No newline at end of file
+    }
+
+    // Returns the patients with at least one record of the given type in the time range.
+    // Uses the per-hour type index, so patients without matching data are never visited.
+    public List<Patient> getPatientsWithRecords(String recordType, long startTime, long endTime) {
+        List<Patient> result = new ArrayList<>();
+        typeIndex.candidates(recordType, startTime, endTime).forEach(id -> {
+            Patient patient = patientMap.get(id);
+            if (patient != null && !patient.getRecords(recordType, startTime, endTime).isEmpty()) {
+                result.add(patient);
+            }
+        });
+        return result;
+    }
+
+    // Retrieves the records of one type across all patients, keyed by patient ID
+    public Map<Integer, List<PatientRecord>> getRecordsByType(String recordType, long startTime, long endTime) {
+        Map<Integer, List<PatientRecord>> result = new TreeMap<>();
+        typeIndex.candidates(recordType, startTime, endTime).forEach(id -> {
+            Patient patient = patientMap.get(id);
+            if (patient != null) {
+                List<PatientRecord> records = patient.getRecords(recordType, startTime, endTime);
+                if (!records.isEmpty()) {
+                    result.put(id, records);
+                }
+            }
+        });
+        return result;
+    }
+}
\ No newline at end of file
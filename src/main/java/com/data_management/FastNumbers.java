@@ -0,0 +1,145 @@
+package com.data_management;
+
+/**
+ * Number parsing straight from character buffers, used by the streaming parsers.
+ * <p>
+ * {@link #parseDouble} takes the exact fast path (Clinger) when the decimal mantissa fits in
+ * 53 bits and the power of ten is at most 22: the result is then a single correctly rounded
+ * multiplication or division and nothing is allocated. Longer inputs, e.g. the 17-digit
+ * output of {@link Double#toString(double)}, fall back to {@link Double#parseDouble(String)}.
+ * </p>
+ */
+final class FastNumbers {
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private FastNumbers() {
+    }
+
+    /**
+     * Parses a decimal integer from {@code chars[start, end)}.
+     *
+     * @throws NumberFormatException if the text is not an integer or overflows a {@code long}
+     */
+    static long parseLong(char[] chars, int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("Empty number");
+        }
+        int i = start;
+        boolean negative = chars[i] == '-';
+        if (negative || chars[i] == '+') {
+            i++;
+        }
+        if (i == end) {
+            throw invalid(chars, start, end);
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(chars, start, end);
+            }
+            // accumulate negatively so Long.MIN_VALUE fits
+            if (result < (Long.MIN_VALUE + digit) / 10) {
+                throw invalid(chars, start, end);
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                throw invalid(chars, start, end);
+            }
+            return -result;
+        }
+        return result;
+    }
+
+    /**
+     * Parses a decimal floating point number from {@code chars[start, end)}.
+     *
+     * @throws NumberFormatException if the text is not a number
+     */
+    static double parseDouble(char[] chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean sawDigit = false;
+        boolean exact = true;
+
+        for (; i < end && isDigit(chars[i]); i++) {
+            sawDigit = true;
+            if (mantissa != 0 || chars[i] != '0') {
+                if (++digits > 18) {
+                    exact = false;
+                    break;
+                }
+                mantissa = mantissa * 10 + (chars[i] - '0');
+            }
+        }
+        if (exact && i < end && chars[i] == '.') {
+            for (i++; i < end && isDigit(chars[i]); i++) {
+                sawDigit = true;
+                if (mantissa != 0 || chars[i] != '0') {
+                    if (++digits > 18) {
+                        exact = false;
+                        break;
+                    }
+                    mantissa = mantissa * 10 + (chars[i] - '0');
+                }
+                exponent--;
+            }
+        }
+        if (exact && i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < end && (chars[j] == '-' || chars[j] == '+')) {
+                negativeExponent = chars[j] == '-';
+                j++;
+            }
+            int explicit = 0;
+            int digitsStart = j;
+            for (; j < end && isDigit(chars[j]) && explicit < 10_000; j++) {
+                explicit = explicit * 10 + (chars[j] - '0');
+            }
+            if (j == digitsStart) {
+                throw invalid(chars, start, end);
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+            i = j;
+        }
+
+        if (exact && sawDigit && i == end) {
+            if (mantissa == 0) {
+                return negative ? -0.0 : 0.0;
+            }
+            if (mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+                double value = exponent >= 0
+                        ? mantissa * POWERS_OF_TEN[exponent]
+                        : mantissa / POWERS_OF_TEN[-exponent];
+                return negative ? -value : value;
+            }
+        }
+        try {
+            return Double.parseDouble(new String(chars, start, end - start));
+        } catch (NumberFormatException e) {
+            throw invalid(chars, start, end);
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static NumberFormatException invalid(char[] chars, int start, int end) {
+        return new NumberFormatException("Invalid number: " + new String(chars, start, end - start));
+    }
+}
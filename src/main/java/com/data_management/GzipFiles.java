@@ -0,0 +1,91 @@
+package com.data_management;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens data files that may be gzip-compressed, as written by {@code FileOutputStrategy} in
+ * compressed mode. A file is compressed if its name ends with {@link #SUFFIX}.
+ * <p>
+ * Compressed files are decompressed while they are read, so memory use does not depend on their
+ * size. A segment that is still being written, or was cut off by a crash, ends without the gzip
+ * trailer; its stream simply ends after the last data that was flushed, instead of failing.
+ * </p>
+ */
+final class GzipFiles {
+    static final String SUFFIX = ".gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private GzipFiles() {
+    }
+
+    static boolean isCompressed(File file) {
+        return file.getName().endsWith(SUFFIX);
+    }
+
+    /**
+     * @return the file name without {@link #SUFFIX}, e.g. {@code ECG-00001.txt} for {@code ECG-00001.txt.gz}
+     */
+    static String baseName(File file) {
+        String name = file.getName();
+        return name.endsWith(SUFFIX) ? name.substring(0, name.length() - SUFFIX.length()) : name;
+    }
+
+    /**
+     * Opens a buffered stream of the file's contents, decompressed if the file is compressed.
+     *
+     * @throws IOException if the file cannot be opened or does not start with a gzip header
+     */
+    static InputStream open(File file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE);
+        if (!isCompressed(file)) {
+            return in;
+        }
+        try {
+            return new TruncationTolerantInputStream(in);
+        } catch (EOFException e) {
+            // created, but not even the header was written yet
+            in.close();
+            return InputStream.nullInputStream();
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return {@code true} if {@code in} was returned by {@link #open} and has ended because the
+     *         rest of the compressed file is missing; its last line may then be incomplete
+     */
+    static boolean isTruncated(InputStream in) {
+        return in instanceof TruncationTolerantInputStream && ((TruncationTolerantInputStream) in).truncated;
+    }
+
+    // Ends the stream at the last complete deflate block when the rest of the file is missing
+    private static final class TruncationTolerantInputStream extends GZIPInputStream {
+        boolean truncated;
+
+        TruncationTolerantInputStream(InputStream in) throws IOException {
+            super(in, BUFFER_SIZE);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (truncated) {
+                return -1;
+            }
+            try {
+                return super.read(buffer, offset, length);
+            } catch (EOFException e) {
+                truncated = true;
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.data_management;
+
+/**
+ * Decides whether {@link DataStorage} stores an incoming sample.
+ * <p>
+ * Filters are consulted on the ingesting thread while the patient's entry is being updated,
+ * before the record is created, so calls for one patient never overlap and arrive in ingest
+ * order. Calls for different patients may run concurrently. Like a {@link RecordListener}, a
+ * filter must be quick and must not call back into the storage.
+ * </p>
+ */
+public interface IngestFilter {
+
+    /**
+     * @return {@code true} to store the sample, {@code false} to drop it
+     */
+    boolean accept(int patientId, String recordType, long timestamp, double measurementValue);
+
+    /**
+     * Called under the same rules as {@link #accept} once every filter has accepted the sample, so
+     * it is stored. Filters that remember the samples they let through, such as a
+     * {@link SampleDeduplicator}, record them here rather than in {@code accept}, where a later
+     * filter may still drop the sample. Does nothing by default.
+     */
+    default void onAccepted(int patientId, String recordType, long timestamp, double measurementValue) {
+    }
+}
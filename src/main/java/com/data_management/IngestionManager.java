@@ -0,0 +1,215 @@
+package com.data_management;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs many {@link DataReader}s at once, all storing into one {@link DataStorage}, and reports
+ * per source how much it stored, how fast and how far behind it is.
+ * <p>
+ * The storage is the shared pipeline: configure it, e.g. with {@link DataStorage#addIngestFilter}
+ * for deduplication, before starting the sources. {@link #start()} starts every source without
+ * waiting for any: a {@link WebSocketDataReader} connects asynchronously with
+ * {@link WebSocketDataReader#connect}, and other readers run {@link DataReader#readData} on a
+ * thread of their own, since a reader such as {@link DataReaderClass} only returns when it has
+ * read everything. A source that fails to start is reported as {@link SourceState#FAILED} and
+ * does not affect the others.
+ * </p>
+ * <p>
+ * Counters come from readers implementing {@link ReaderMetrics}; the lag of a source is the age
+ * of the newest sample it stored, which for a live stream is its delay plus any silence.
+ * </p>
+ */
+public class IngestionManager implements Closeable {
+
+    /** Lifecycle of one source. */
+    public enum SourceState {
+        /** Not started, or started and not connected yet. */
+        CONNECTING,
+        /** Connected and reading; for readers without {@link ReaderMetrics}, {@code readData} returned. */
+        READING,
+        /** Stopped by {@link #stop()} or closed by its endpoint. */
+        STOPPED,
+        /** Could not be started; see {@link SourceStats#getError()}. */
+        FAILED
+    }
+
+    private final DataStorage storage;
+    private final Map<String, Source> sources = new LinkedHashMap<>();
+    // Runs readData of readers that block while connecting or reading
+    private final ExecutorService starter = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ingestion-source");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private boolean started;
+
+    /**
+     * @param storage the storage all sources write to
+     */
+    public IngestionManager(DataStorage storage) {
+        if (storage == null) {
+            throw new IllegalArgumentException("DataStorage cannot be null");
+        }
+        this.storage = storage;
+    }
+
+    /**
+     * Adds a source. A source added after {@link #start()} is started at once.
+     *
+     * @param name   a unique name for reporting
+     * @param reader the reader of the source; it must not have been started
+     * @return a future completed when the source reads or has failed to start
+     */
+    public synchronized CompletableFuture<Void> addSource(String name, DataReader reader) {
+        if (name == null || reader == null) {
+            throw new IllegalArgumentException("name and reader are required");
+        }
+        if (sources.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate source name: " + name);
+        }
+        Source source = new Source(name, reader);
+        sources.put(name, source);
+        return started ? source.start() : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Starts all sources without waiting for them.
+     *
+     * @return a future completed when every source reads or has failed to start; it never completes exceptionally
+     */
+    public synchronized CompletableFuture<Void> start() {
+        if (started) {
+            throw new IllegalStateException("Already started");
+        }
+        started = true;
+        List<CompletableFuture<Void>> startups = new ArrayList<>();
+        for (Source source : sources.values()) {
+            startups.add(source.start());
+        }
+        return CompletableFuture.allOf(startups.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Stops reading from all sources.
+     */
+    public synchronized void stop() {
+        for (Source source : sources.values()) {
+            source.stop();
+        }
+    }
+
+    /**
+     * Stops all sources and releases the manager's threads.
+     */
+    @Override
+    public void close() {
+        stop();
+        starter.shutdownNow();
+    }
+
+    /**
+     * @return a snapshot of every source, in the order they were added
+     */
+    public synchronized List<SourceStats> getSourceStats() {
+        List<SourceStats> stats = new ArrayList<>(sources.size());
+        long nowNanos = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        for (Source source : sources.values()) {
+            stats.add(source.stats(nowNanos, nowMillis));
+        }
+        return stats;
+    }
+
+    /**
+     * @return the number of records stored by all sources that implement {@link ReaderMetrics}
+     */
+    public synchronized long getStoredCount() {
+        long total = 0;
+        for (Source source : sources.values()) {
+            if (source.reader instanceof ReaderMetrics) {
+                total += ((ReaderMetrics) source.reader).getStoredCount();
+            }
+        }
+        return total;
+    }
+
+    private final class Source {
+        private final String name;
+        private final DataReader reader;
+        private volatile SourceState state = SourceState.CONNECTING;
+        private volatile long readingSinceNanos;
+        private volatile String error;
+
+        Source(String name, DataReader reader) {
+            this.name = name;
+            this.reader = reader;
+        }
+
+        CompletableFuture<Void> start() {
+            CompletableFuture<Void> startup;
+            try {
+                startup = reader instanceof WebSocketDataReader
+                        ? ((WebSocketDataReader) reader).connect(storage)
+                        : CompletableFuture.runAsync(this::readData, starter);
+            } catch (RuntimeException e) {
+                startup = CompletableFuture.failedFuture(e);
+            }
+            return startup.handle((ignored, failure) -> {
+                if (failure == null) {
+                    readingSinceNanos = System.nanoTime();
+                    if (state == SourceState.CONNECTING) {
+                        state = SourceState.READING;
+                    }
+                } else {
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure;
+                    error = cause.getMessage();
+                    state = SourceState.FAILED;
+                    System.err.println("Source " + name + " failed to start: " + error);
+                }
+                return null;
+            });
+        }
+
+        private void readData() {
+            try {
+                reader.readData(storage);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }
+
+        void stop() {
+            if (state != SourceState.FAILED) {
+                state = SourceState.STOPPED;
+            }
+            reader.stopReading();
+        }
+
+        SourceStats stats(long nowNanos, long nowMillis) {
+            SourceState current = state;
+            if (!(reader instanceof ReaderMetrics)) {
+                return new SourceStats(name, current, -1, -1, -1, -1, error);
+            }
+            ReaderMetrics metrics = (ReaderMetrics) reader;
+            if (current == SourceState.READING && !metrics.isReading()) {
+                current = SourceState.STOPPED;
+            }
+            long stored = metrics.getStoredCount();
+            long since = readingSinceNanos;
+            double perSecond = since == 0 || nowNanos == since ? 0 : stored * 1e9 / (nowNanos - since);
+            long latest = metrics.getLatestTimestamp();
+            return new SourceStats(name, current, stored, metrics.getMalformedCount(), perSecond,
+                    latest == 0 ? -1 : Math.max(0, nowMillis - latest), error);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.data_management;
+
+/**
+ * Summary of one bulk ingestion run: how much was read and how fast.
+ */
+public class IngestionStats {
+    private final int files;
+    private final int failedFiles;
+    private final long records;
+    private final long elapsedNanos;
+
+    public IngestionStats(int files, int failedFiles, long records, long elapsedNanos) {
+        this.files = files;
+        this.failedFiles = failedFiles;
+        this.records = records;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of files that were ingested successfully
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * @return the number of files skipped because they could not be read or parsed
+     */
+    public int getFailedFiles() {
+        return failedFiles;
+    }
+
+    /**
+     * @return the number of records stored
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getFilesPerSecond() {
+        return perSecond(files + failedFiles);
+    }
+
+    public double getRecordsPerSecond() {
+        return perSecond(records);
+    }
+
+    private double perSecond(double count) {
+        return elapsedNanos == 0 ? 0 : count * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files (%d failed), %d records in %.1f ms: %.0f files/s, %.0f records/s",
+                files, failedFiles, records, elapsedNanos / 1e6, getFilesPerSecond(), getRecordsPerSecond());
+    }
+}
@@ -0,0 +1,340 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Streaming pull parser for exports of {@code {patientId, recordType, measurementValue, timestamp}} objects.
+ * <p>
+ * Unlike {@link DataReaderClass#parseFile}, which first builds the whole {@code JSONArray} tree,
+ * this parser reads the input through a fixed character buffer and hands each object to a
+ * {@link RecordSink} as soon as its closing brace is read. Memory use is constant: one read
+ * buffer plus a scratch buffer as long as the longest token. Known record types are resolved
+ * to shared constants via {@link RecordTypes}.
+ * </p>
+ *
+ * <h2>Accepted input</h2>
+ * <ul>
+ *     <li>a top-level array of objects: {@code [{...}, {...}]}</li>
+ *     <li>newline-delimited JSON: one object per line</li>
+ *     <li>a single object, or any mix of the above</li>
+ * </ul>
+ * Between objects, {@code [}, {@code ]}, commas and whitespace are skipped. Unknown fields are
+ * ignored, including nested values. Objects missing one of the four fields, or whose values
+ * have the wrong type, are skipped and counted in {@link #getSkippedRecords()}; malformed JSON
+ * syntax fails with an {@link IOException} naming the character offset.
+ */
+public class JsonRecordStreamParser {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Fields of the schema, as returned by fieldOf()
+    private static final int OTHER = 0;
+    private static final int PATIENT_ID = 1;
+    private static final int RECORD_TYPE = 2;
+    private static final int MEASUREMENT_VALUE = 3;
+    private static final int TIMESTAMP = 4;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private char[] scratch = new char[64];
+    private int scratchLength;
+    private int position;
+    private int limit;
+    private long offset;
+    private long skippedRecords;
+
+    // Fields of the object being parsed
+    private boolean hasPatientId;
+    private boolean hasRecordType;
+    private boolean hasValue;
+    private boolean hasTimestamp;
+    private boolean invalid;
+    private int patientId;
+    private String recordType;
+    private double value;
+    private long timestamp;
+
+    /**
+     * @param reader the input; it is read to the end but not closed
+     */
+    public JsonRecordStreamParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Parses the whole input and sends every valid record to {@code sink}.
+     *
+     * @param sink the receiver of the records
+     * @return the number of records sent to the sink
+     * @throws IOException if the input cannot be read or is not well-formed JSON
+     */
+    public long parse(RecordSink sink) throws IOException {
+        long count = 0;
+        int c;
+        while ((c = nextNonWhitespace()) != -1) {
+            if (c == '[' || c == ']' || c == ',') {
+                continue;
+            }
+            if (c != '{') {
+                throw syntaxError("Expected '{'");
+            }
+            if (parseObject()) {
+                sink.accept(patientId, value, recordType, timestamp);
+                count++;
+            } else {
+                skippedRecords++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of objects skipped because a field was missing or invalid
+     */
+    public long getSkippedRecords() {
+        return skippedRecords;
+    }
+
+    // Called after '{'; returns whether the object held a complete, valid record
+    private boolean parseObject() throws IOException {
+        hasPatientId = hasRecordType = hasValue = hasTimestamp = invalid = false;
+        int c = nextNonWhitespace();
+        if (c == '}') {
+            return false;
+        }
+        while (true) {
+            if (c != '"') {
+                throw syntaxError("Expected field name");
+            }
+            readString();
+            int field = fieldOf();
+            if (nextNonWhitespace() != ':') {
+                throw syntaxError("Expected ':'");
+            }
+            readFieldValue(field);
+            c = nextNonWhitespace();
+            if (c == '}') {
+                break;
+            }
+            if (c != ',') {
+                throw syntaxError("Expected ',' or '}'");
+            }
+            c = nextNonWhitespace();
+        }
+        return !invalid && hasPatientId && hasRecordType && hasValue && hasTimestamp;
+    }
+
+    private int fieldOf() {
+        if (scratchIs("patientId")) return PATIENT_ID;
+        if (scratchIs("recordType")) return RECORD_TYPE;
+        if (scratchIs("measurementValue")) return MEASUREMENT_VALUE;
+        if (scratchIs("timestamp")) return TIMESTAMP;
+        return OTHER;
+    }
+
+    private void readFieldValue(int field) throws IOException {
+        int c = nextNonWhitespace();
+        if (c == '"') {
+            readString();
+            if (field == RECORD_TYPE) {
+                recordType = RecordTypes.intern(scratch, 0, scratchLength);
+                hasRecordType = true;
+            } else if (field != OTHER) {
+                // numbers exported as strings, e.g. "measurementValue": "98.6"
+                assignNumber(field);
+            }
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            readNumber(c);
+            if (field == RECORD_TYPE) {
+                invalid = true;
+            } else if (field != OTHER) {
+                assignNumber(field);
+            }
+        } else if (c == '{' || c == '[') {
+            skipNested(c);
+            invalid |= field != OTHER;
+        } else if (c == 't' || c == 'f' || c == 'n') {
+            readLiteral(c);
+            invalid |= field != OTHER;
+        } else {
+            throw syntaxError("Unexpected value");
+        }
+    }
+
+    private void assignNumber(int field) {
+        try {
+            switch (field) {
+                case PATIENT_ID:
+                    patientId = Math.toIntExact(integral());
+                    hasPatientId = true;
+                    break;
+                case TIMESTAMP:
+                    timestamp = integral();
+                    hasTimestamp = true;
+                    break;
+                case MEASUREMENT_VALUE:
+                    value = FastNumbers.parseDouble(scratch, 0, scratchLength);
+                    hasValue = true;
+                    break;
+                default:
+                    break;
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            invalid = true;
+        }
+    }
+
+    // Integer fields may be written as 12 or 12.0, as org.json accepts both
+    private long integral() {
+        try {
+            return FastNumbers.parseLong(scratch, 0, scratchLength);
+        } catch (NumberFormatException e) {
+            double d = FastNumbers.parseDouble(scratch, 0, scratchLength);
+            if (d != Math.rint(d) || Math.abs(d) > 0x1p63) {
+                throw e;
+            }
+            return (long) d;
+        }
+    }
+
+    private void readString() throws IOException {
+        scratchLength = 0;
+        while (true) {
+            int c = next();
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                c = next();
+                switch (c) {
+                    case '"': case '\\': case '/': break;
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(next(), 16);
+                            if (digit < 0) {
+                                throw syntaxError("Invalid unicode escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        c = code;
+                        break;
+                    default:
+                        throw syntaxError("Invalid escape");
+                }
+            }
+            append((char) c);
+        }
+    }
+
+    private void readNumber(int first) throws IOException {
+        scratchLength = 0;
+        append((char) first);
+        while (true) {
+            int c = peek();
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                append((char) c);
+                position++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void readLiteral(int first) throws IOException {
+        String expected = first == 't' ? "true" : first == 'f' ? "false" : "null";
+        for (int i = 1; i < expected.length(); i++) {
+            if (next() != expected.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+        }
+    }
+
+    // Skips a nested object or array, keeping track of strings so brackets inside them are ignored
+    private void skipNested(int open) throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = next();
+            if (c == -1) {
+                throw syntaxError("Unterminated " + (open == '{' ? "object" : "array"));
+            }
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        }
+    }
+
+    private boolean scratchIs(String name) {
+        if (scratchLength != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < scratchLength; i++) {
+            if (scratch[i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void append(char c) {
+        if (scratchLength == scratch.length) {
+            scratch = Arrays.copyOf(scratch, scratch.length * 2);
+        }
+        scratch[scratchLength++] = c;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            int c = next();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        position = 0;
+        limit = 0;
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at character " + (offset + position));
+    }
+}
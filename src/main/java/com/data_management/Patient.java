@@ -1,7 +1,9 @@
 package com.data_management;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a patient and manages their medical records.
@@ -12,6 +14,8 @@ import java.util.List;
 public class Patient {
     private int patientId;
     private List<PatientRecord> patientRecords;
+    // Last hour bucket reported to the storage's PatientTypeIndex, per record type
+    private final Map<String, Long> lastIndexedBucket = new HashMap<>();
 
     /**
      * Constructs a new Patient with a specified ID.
@@ -34,10 +38,27 @@ public class Patient {
      *                         "BloodPressure"
      * @param timestamp        the time at which the measurement was taken, in
      *                         milliseconds since UNIX epoch
+     * @return the record that was created and stored
      */
-    public void addRecord(double measurementValue, String recordType, long timestamp) {
+    public PatientRecord addRecord(double measurementValue, String recordType, long timestamp) {
         PatientRecord record = new PatientRecord(this.patientId, measurementValue, recordType, timestamp);
         this.patientRecords.add(record);
+        return record;
+    }
+
+    /**
+     * Adds an already created record to this patient's list of medical records.
+     *
+     * @param record the record to add; it must belong to this patient
+     * @return the record that was stored
+     */
+    PatientRecord addRecord(PatientRecord record) {
+        if (record.getPatientId() != patientId) {
+            throw new IllegalArgumentException("Record of patient " + record.getPatientId()
+                    + " added to patient " + patientId);
+        }
+        this.patientRecords.add(record);
+        return record;
     }
 
     /**
@@ -63,6 +84,37 @@ public class Patient {
         }
         return filteredRecords;
     }
+
+    /**
+     * Retrieves the records of one type that fall within a specified time range.
+     *
+     * @param recordType the type of record to return, e.g., "ECG"
+     * @param startTime  the start of the time range, in milliseconds since UNIX epoch
+     * @param endTime    the end of the time range, in milliseconds since UNIX epoch
+     * @return the matching records in insertion order
+     */
+    public List<PatientRecord> getRecords(String recordType, long startTime, long endTime) {
+        List<PatientRecord> filteredRecords = new ArrayList<>();
+        for (PatientRecord record : patientRecords) {
+            long timestamp = record.getTimestamp();
+            if (timestamp >= startTime && timestamp <= endTime && record.getRecordType().equals(recordType)) {
+                filteredRecords.add(record);
+            }
+        }
+        return filteredRecords;
+    }
+
+    /**
+     * Remembers the last index bucket reported for a record type, so the storage only touches
+     * its shared index when a patient starts a new hour.
+     *
+     * @return {@code true} if the bucket differs from the last one reported for this type
+     */
+    boolean markIndexed(String recordType, long bucket) {
+        Long previous = lastIndexedBucket.put(recordType, bucket);
+        return previous == null || previous != bucket;
+    }
+
     /**
      * Returns the patient's unique identifier
      * @return the patient ID
@@ -0,0 +1,175 @@
+package com.data_management;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of patient IDs, laid out like a Roaring bitmap.
+ * <p>
+ * IDs are split into a 16-bit high part, which selects a container, and a 16-bit low part
+ * stored inside it. Sparse containers are sorted {@code char} arrays; once a container holds
+ * more than {@value #ARRAY_LIMIT} IDs it switches to a plain 65536-bit bitmap. Patient IDs are
+ * usually small and dense, so a whole ward fits in one container of a few hundred bytes.
+ * </p>
+ * <p>
+ * All methods are synchronized; the set is shared between ingesting threads.
+ * </p>
+ */
+public class PatientBitmap {
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys = new char[0];
+    private Object[] containers = new Object[0]; // char[] (array container) or long[] (bitmap container)
+    private int[] sizes = new int[0];
+
+    /**
+     * Adds a patient ID to the set.
+     *
+     * @param patientId the ID to add
+     * @return {@code true} if the ID was not present before
+     */
+    public synchronized boolean add(int patientId) {
+        char high = (char) (patientId >>> 16);
+        char low = (char) patientId;
+        int index = Arrays.binarySearch(keys, high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high);
+        }
+
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            long[] words = (long[]) container;
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) != 0) {
+                return false;
+            }
+            words[low >>> 6] |= bit;
+            sizes[index]++;
+            return true;
+        }
+
+        char[] values = (char[]) container;
+        int size = sizes[index];
+        int pos = Arrays.binarySearch(values, 0, size, low);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -pos - 1;
+        if (size == ARRAY_LIMIT) {
+            long[] words = toBitmap(values, size);
+            words[low >>> 6] |= 1L << low;
+            containers[index] = words;
+        } else {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, size * 2)));
+                containers[index] = values;
+            }
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+            values[pos] = low;
+        }
+        sizes[index] = size + 1;
+        return true;
+    }
+
+    /**
+     * @param patientId the ID to look up
+     * @return {@code true} if the ID is in the set
+     */
+    public synchronized boolean contains(int patientId) {
+        int index = Arrays.binarySearch(keys, (char) (patientId >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) patientId;
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, sizes[index], low) >= 0;
+    }
+
+    /**
+     * @return the number of IDs in the set
+     */
+    public synchronized int cardinality() {
+        int total = 0;
+        for (int size : sizes) {
+            total += size;
+        }
+        return total;
+    }
+
+    /**
+     * Adds every ID of this set to {@code target}.
+     *
+     * @param target the set receiving the IDs
+     */
+    public void addAllTo(PatientBitmap target) {
+        forEach(target::add);
+    }
+
+    /**
+     * Calls {@code action} for every ID in ascending unsigned order.
+     *
+     * @param action the callback receiving each ID
+     */
+    public synchronized void forEach(IntConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            int base = keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof long[]) {
+                long[] words = (long[]) container;
+                for (int w = 0; w < words.length; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        action.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) container;
+                for (int j = 0; j < sizes[i]; j++) {
+                    action.accept(base | values[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the IDs in ascending unsigned order
+     */
+    public synchronized int[] toArray() {
+        int[] result = new int[cardinality()];
+        int[] next = {0};
+        forEach(id -> result[next[0]++] = id);
+        return result;
+    }
+
+    private void insertContainer(int index, char high) {
+        int n = keys.length;
+        char[] newKeys = new char[n + 1];
+        Object[] newContainers = new Object[n + 1];
+        int[] newSizes = new int[n + 1];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(containers, 0, newContainers, 0, index);
+        System.arraycopy(sizes, 0, newSizes, 0, index);
+        System.arraycopy(keys, index, newKeys, index + 1, n - index);
+        System.arraycopy(containers, index, newContainers, index + 1, n - index);
+        System.arraycopy(sizes, index, newSizes, index + 1, n - index);
+        newKeys[index] = high;
+        newContainers[index] = new char[4];
+        keys = newKeys;
+        containers = newContainers;
+        sizes = newSizes;
+    }
+
+    private static long[] toBitmap(char[] values, int size) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < size; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+}
@@ -0,0 +1,71 @@
+package com.data_management;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index of which patients have samples of which record type in which hour.
+ * <p>
+ * For every (record type, hour bucket) pair the index keeps a {@link PatientBitmap} of the
+ * patient IDs that stored at least one sample of that type during that hour. Cross-patient
+ * queries in {@link DataStorage} use it to visit only the patients that can match.
+ * </p>
+ */
+public class PatientTypeIndex {
+    /** Width of one bucket: one hour in milliseconds. */
+    public static final long BUCKET_MILLIS = 3_600_000L;
+
+    private final Map<String, NavigableMap<Long, PatientBitmap>> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param timestamp a sample timestamp in milliseconds since epoch
+     * @return the hour bucket the timestamp falls into
+     */
+    public static long bucketOf(long timestamp) {
+        return Math.floorDiv(timestamp, BUCKET_MILLIS);
+    }
+
+    /**
+     * Records that a patient has a sample of the given type in the given hour bucket.
+     *
+     * @param patientId  the patient ID
+     * @param recordType the record type
+     * @param bucket     the hour bucket, see {@link #bucketOf(long)}
+     */
+    public void add(int patientId, String recordType, long bucket) {
+        buckets.computeIfAbsent(recordType, type -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(bucket, b -> new PatientBitmap())
+                .add(patientId);
+    }
+
+    /**
+     * Forgets every patient, e.g. when the storage is rebuilt from a snapshot.
+     */
+    public void clear() {
+        buckets.clear();
+    }
+
+    /**
+     * Returns the patients with samples of {@code recordType} in any hour overlapping the range.
+     * The result may contain patients whose samples in those hours fall just outside the range,
+     * so callers still filter the records themselves.
+     *
+     * @param recordType the record type
+     * @param startTime  the start of the range, inclusive
+     * @param endTime    the end of the range, inclusive
+     * @return the candidate patient IDs
+     */
+    public PatientBitmap candidates(String recordType, long startTime, long endTime) {
+        PatientBitmap result = new PatientBitmap();
+        NavigableMap<Long, PatientBitmap> byHour = buckets.get(recordType);
+        if (byHour == null || startTime > endTime) {
+            return result;
+        }
+        for (PatientBitmap bitmap : byHour.subMap(bucketOf(startTime), true, bucketOf(endTime), true).values()) {
+            bitmap.addAllTo(result);
+        }
+        return result;
+    }
+}
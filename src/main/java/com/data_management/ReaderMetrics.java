@@ -0,0 +1,28 @@
+package com.data_management;
+
+/**
+ * Counters of a {@link DataReader} that streams from a live source, as reported per source by
+ * {@link IngestionManager}. Getters may be called from any thread while the reader runs.
+ */
+public interface ReaderMetrics {
+
+    /**
+     * @return {@code true} while the reader receives data from its source
+     */
+    boolean isReading();
+
+    /**
+     * @return the number of records handed to the storage
+     */
+    long getStoredCount();
+
+    /**
+     * @return the number of malformed messages or lines that were skipped
+     */
+    long getMalformedCount();
+
+    /**
+     * @return the newest sample timestamp handed to the storage, in milliseconds since epoch, or 0 if none
+     */
+    long getLatestTimestamp();
+}
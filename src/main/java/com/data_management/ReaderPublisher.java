@@ -0,0 +1,79 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Publishes the records of any {@link DataReader} as a {@link java.util.concurrent.Flow.Publisher}
+ * of record batches, the source of a reactive ingestion pipeline:
+ * <pre>{@code
+ * ReaderPublisher source = new ReaderPublisher(reader, sourceExecutor, 64);
+ * RecordStage<List<PatientRecord>, List<PatientRecord>> validate = RecordStage.validate(validateExecutor, 64);
+ * RecordStage<List<PatientRecord>, List<PatientRecord>> dedup = RecordStage.filter(dedupExecutor, 64, new SampleDeduplicator());
+ * source.subscribe(validate);
+ * validate.subscribe(dedup);
+ * dedup.subscribe(new StorageSubscriber(storage));
+ * source.start();
+ * }</pre>
+ * <p>
+ * The reader is given a storage of its own whose add methods publish instead of storing: every
+ * {@link DataStorage#addPatientRecords} call becomes one item, every
+ * {@link DataStorage#addPatientData} call an item of one record. Publishing blocks while a
+ * subscriber's buffer of {@code maxBufferCapacity} items is full, and it blocks the reader's own
+ * thread, so the demand of the slowest stage reaches the reader: a socket reader stops reading
+ * and lets TCP flow control hold back the sender, a file reader stops reading the file.
+ * </p>
+ */
+public class ReaderPublisher extends SubmissionPublisher<List<PatientRecord>> {
+    private final DataReader reader;
+    private final DataStorage capture = new DataStorage() {
+        @Override
+        public void addPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+            submit(Collections.singletonList(new PatientRecord(patientId, measurementValue, recordType, timestamp)));
+        }
+
+        @Override
+        public void addPatientRecords(List<PatientRecord> records) {
+            // callers may reuse their list once the call returns
+            submit(new ArrayList<>(records));
+        }
+    };
+
+    /**
+     * @param reader            the reader to publish
+     * @param executor          delivers batches to the subscribers, i.e. runs the first stage
+     * @param maxBufferCapacity the number of batches buffered per subscriber before the reader waits
+     */
+    public ReaderPublisher(DataReader reader, Executor executor, int maxBufferCapacity) {
+        super(executor, maxBufferCapacity);
+        if (reader == null) {
+            throw new IllegalArgumentException("reader cannot be null");
+        }
+        this.reader = reader;
+    }
+
+    /**
+     * Starts the reader. A reader that reads in the background returns at once; one that reads
+     * everything in {@code readData}, such as {@link DataReaderClass}, returns when done, and
+     * {@link #close()} then completes the subscribers.
+     *
+     * @throws IOException if the reader fails to start
+     */
+    public void start() throws IOException {
+        reader.readData(capture);
+    }
+
+    /**
+     * Stops the reader and completes the subscribers once they have received the batches
+     * published so far.
+     */
+    @Override
+    public void close() {
+        reader.stopReading();
+        super.close();
+    }
+}
@@ -0,0 +1,20 @@
+package com.data_management;
+
+/**
+ * Callback notified by {@link DataStorage} every time a record is stored.
+ * <p>
+ * Listeners are invoked on the ingesting thread while the patient's entry is
+ * being updated, so records of one patient are always seen in the same order
+ * they were stored. Implementations must therefore be quick and must not call
+ * back into the storage that notified them.
+ * </p>
+ */
+public interface RecordListener {
+
+    /**
+     * Called after a record has been added to a patient.
+     *
+     * @param record the record that was just stored
+     */
+    void onRecordAdded(PatientRecord record);
+}
@@ -0,0 +1,19 @@
+package com.data_management;
+
+/**
+ * Receives parsed samples as primitive values, without requiring a {@link PatientRecord}
+ * object per sample. {@code dataStorage::addPatientData} is a valid sink.
+ */
+@FunctionalInterface
+public interface RecordSink {
+
+    /**
+     * Accepts one sample.
+     *
+     * @param patientId        the patient ID
+     * @param measurementValue the measured value
+     * @param recordType       the record type, e.g. "ECG"
+     * @param timestamp        the sample time in milliseconds since epoch
+     */
+    void accept(int patientId, double measurementValue, String recordType, long timestamp);
+}
@@ -0,0 +1,175 @@
+package com.data_management;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * One processing step of a reactive ingestion pipeline: a {@link Flow.Processor} that applies a
+ * function to every item and publishes the result, or nothing when the function returns
+ * {@code null}.
+ * <p>
+ * The stage requests one item at a time and requests the next only after its result was
+ * published. Publishing blocks while the downstream buffer is full, so a slow stage stops the
+ * stages before it from receiving, and the demand propagates back to the source. Each stage has
+ * its own executor and buffer; the executor delivers the stage's results, so it runs the step of
+ * the next stage. Consecutive steps thus run concurrently on different threads, each step on
+ * one thread at a time.
+ * </p>
+ * <p>
+ * The factories build the steps of record ingestion on batches of records, as published by
+ * {@link ReaderPublisher}: parse, validate, filter (e.g. deduplicate) and enrich. A batch that
+ * a step empties is not passed on.
+ * </p>
+ *
+ * @param <T> the type of items received
+ * @param <R> the type of items published
+ */
+public class RecordStage<T, R> extends SubmissionPublisher<R> implements Flow.Processor<T, R> {
+    private final Function<? super T, ? extends R> step;
+    private Flow.Subscription subscription;
+    private volatile long processed;
+    private volatile long dropped;
+    private volatile long failed;
+
+    /**
+     * @param executor          delivers the results to the subscribers
+     * @param maxBufferCapacity the number of results buffered per subscriber before the stage waits
+     * @param step              the function applied to every item; {@code null} drops the item
+     */
+    public RecordStage(Executor executor, int maxBufferCapacity, Function<? super T, ? extends R> step) {
+        super(executor, maxBufferCapacity);
+        if (step == null) {
+            throw new IllegalArgumentException("step cannot be null");
+        }
+        this.step = step;
+    }
+
+    /**
+     * @return a stage parsing CSV messages of one or more {@code patientId,timestamp,label,value}
+     *         lines into batches; malformed lines are skipped
+     */
+    public static RecordStage<String, List<PatientRecord>> parseCsv(Executor executor, int maxBufferCapacity) {
+        // steps run on one thread at a time, so the stage can own a parser
+        CsvMessageParser parser = new CsvMessageParser();
+        return new RecordStage<>(executor, maxBufferCapacity, message -> {
+            List<PatientRecord> records = new ArrayList<>();
+            parser.parseLinesTo(message, (id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts)));
+            return records.isEmpty() ? null : records;
+        });
+    }
+
+    /**
+     * @return a stage dropping records with a negative patient ID or timestamp, no record type or
+     *         a value that is not finite
+     */
+    public static RecordStage<List<PatientRecord>, List<PatientRecord>> validate(Executor executor, int maxBufferCapacity) {
+        return new RecordStage<>(executor, maxBufferCapacity, records -> retain(records, record ->
+                record.getPatientId() >= 0 && record.getTimestamp() >= 0
+                        && record.getRecordType() != null && !record.getRecordType().isEmpty()
+                        && Double.isFinite(record.getMeasurementValue())));
+    }
+
+    /**
+     * @return a stage keeping the records {@code filter} accepts, e.g. a {@link SampleDeduplicator};
+     *         the filter is called from one thread at a time
+     */
+    public static RecordStage<List<PatientRecord>, List<PatientRecord>> filter(Executor executor, int maxBufferCapacity,
+                                                                               IngestFilter filter) {
+        return new RecordStage<>(executor, maxBufferCapacity, records -> retain(records, record -> {
+            if (!filter.accept(record.getPatientId(), record.getRecordType(), record.getTimestamp(),
+                    record.getMeasurementValue())) {
+                return false;
+            }
+            filter.onAccepted(record.getPatientId(), record.getRecordType(), record.getTimestamp(),
+                    record.getMeasurementValue());
+            return true;
+        }));
+    }
+
+    /**
+     * @return a stage replacing every record with the result of {@code enricher}, e.g. with a
+     *         normalised value
+     */
+    public static RecordStage<List<PatientRecord>, List<PatientRecord>> enrich(Executor executor, int maxBufferCapacity,
+                                                                               UnaryOperator<PatientRecord> enricher) {
+        return new RecordStage<>(executor, maxBufferCapacity, records -> {
+            List<PatientRecord> enriched = new ArrayList<>(records.size());
+            for (PatientRecord record : records) {
+                enriched.add(enricher.apply(record));
+            }
+            return enriched;
+        });
+    }
+
+    private static List<PatientRecord> retain(List<PatientRecord> records, Predicate<PatientRecord> keep) {
+        List<PatientRecord> kept = new ArrayList<>(records.size());
+        for (PatientRecord record : records) {
+            if (keep.test(record)) {
+                kept.add(record);
+            }
+        }
+        return kept.isEmpty() ? null : kept;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(T item) {
+        R result = null;
+        try {
+            result = step.apply(item);
+        } catch (RuntimeException e) {
+            failed++;
+            System.err.println("Error in ingestion stage: " + e.getMessage());
+        }
+        processed++;
+        if (result == null) {
+            dropped++;
+        } else {
+            // blocks while a subscriber's buffer is full, holding back the next request
+            submit(result);
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        close();
+    }
+
+    /**
+     * @return the number of items received
+     */
+    public long getProcessedCount() {
+        return processed;
+    }
+
+    /**
+     * @return the number of items that produced no result, failures included
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * @return the number of items whose step threw an exception
+     */
+    public long getFailedCount() {
+        return failed;
+    }
+}
@@ -0,0 +1,93 @@
+package com.data_management;
+
+/**
+ * Table of the record type labels produced by the simulator, with a small numeric code for each.
+ * <p>
+ * Parsers use it to turn label characters into the shared constant {@code String} without
+ * allocating a new one per sample. Labels that are not in the table get code {@link #UNKNOWN}
+ * and are materialised as a new {@code String} by the caller.
+ * </p>
+ */
+public final class RecordTypes {
+    public static final int UNKNOWN = 0;
+    public static final int ECG = 1;
+    public static final int SATURATION = 2;
+    public static final int SYSTOLIC_PRESSURE = 3;
+    public static final int DIASTOLIC_PRESSURE = 4;
+    public static final int CHOLESTEROL = 5;
+    public static final int WHITE_BLOOD_CELLS = 6;
+    public static final int RED_BLOOD_CELLS = 7;
+    public static final int ALERT = 8;
+    public static final int HEART_RATE = 9;
+
+    // Indexed by code; the entry for UNKNOWN is never matched
+    private static final String[] LABELS = {
+            null, "ECG", "Saturation", "SystolicPressure", "DiastolicPressure",
+            "Cholesterol", "WhiteBloodCells", "RedBloodCells", "Alert", "HeartRate"
+    };
+
+    private RecordTypes() {
+    }
+
+    /**
+     * @return the number of codes, including {@link #UNKNOWN}
+     */
+    public static int count() {
+        return LABELS.length;
+    }
+
+    /**
+     * @param code a record type code
+     * @return the label of the code, or {@code null} for {@link #UNKNOWN} or an invalid code
+     */
+    public static String labelOf(int code) {
+        return code > 0 && code < LABELS.length ? LABELS[code] : null;
+    }
+
+    /**
+     * @param label a record type label
+     * @return the code of the label, or {@link #UNKNOWN}
+     */
+    public static int codeOf(String label) {
+        for (int code = 1; code < LABELS.length; code++) {
+            if (LABELS[code].equals(label)) {
+                return code;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Looks up the label spelled by {@code chars[start, end)}.
+     *
+     * @return the code of the label, or {@link #UNKNOWN}
+     */
+    public static int codeOf(char[] chars, int start, int end) {
+        int length = end - start;
+        for (int code = 1; code < LABELS.length; code++) {
+            String label = LABELS[code];
+            if (label.length() == length && regionMatches(label, chars, start)) {
+                return code;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Returns the shared label constant for {@code chars[start, end)}, or a new string if the
+     * label is not in the table.
+     */
+    public static String intern(char[] chars, int start, int end) {
+        int code = codeOf(chars, start, end);
+        return code == UNKNOWN ? new String(chars, start, end - start) : LABELS[code];
+    }
+
+    private static boolean regionMatches(String label, char[] chars, int start) {
+        for (int i = 0; i < label.length(); i++) {
+            if (label.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,162 @@
+package com.data_management;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for handing elements from I/O threads to worker threads.
+ * <p>
+ * Any number of producers and consumers may use it concurrently. Each slot carries a sequence
+ * number (after D. Vyukov's bounded MPMC queue): a producer claims the tail with one CAS, writes
+ * the element and publishes it by advancing the slot's sequence; a consumer claims a run of
+ * published slots with one CAS on the head, so a batch costs a single atomic operation. The
+ * enqueue time of every element is kept next to it so consumers can measure queueing delay.
+ * </p>
+ *
+ * @param <E> the element type
+ */
+public class RingBuffer<E> {
+
+    /** Receives the elements of one {@link #drain} call, in queue order. */
+    @FunctionalInterface
+    public interface BatchHandler<E> {
+        /**
+         * @param element      the element
+         * @param enqueueNanos the {@link System#nanoTime()} at which it was enqueued
+         * @param endOfBatch   whether this is the last element of the batch
+         */
+        void onElement(E element, long enqueueNanos, boolean endOfBatch);
+    }
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final long[] enqueueNanos;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity the capacity, rounded up to a power of two
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        elements = new AtomicReferenceArray<>(size);
+        enqueueNanos = new long[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Enqueues {@code element} if there is room.
+     *
+     * @return {@code false} if the buffer is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new IllegalArgumentException("element cannot be null");
+        }
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    // plain writes, published by the release store of the sequence
+                    enqueueNanos[slot] = System.nanoTime();
+                    elements.lazySet(slot, element);
+                    sequences.lazySet(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Enqueues {@code element}, waiting with {@code waitStrategy} while the buffer is full.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void put(E element, WaitStrategy waitStrategy) throws InterruptedException {
+        int attempt = 0;
+        while (!offer(element)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitStrategy.idle(attempt++);
+        }
+    }
+
+    /**
+     * Removes up to {@code maxElements} published elements and hands them to {@code handler}.
+     * If the handler throws, the exception propagates and the rest of the batch is discarded.
+     *
+     * @return the number of elements removed; 0 if the buffer was empty
+     */
+    public int drain(BatchHandler<? super E> handler, int maxElements) {
+        long start;
+        int count;
+        while (true) {
+            start = head.get();
+            count = 0;
+            while (count < maxElements && sequences.get((int) (start + count) & mask) == start + count + 1) {
+                count++;
+            }
+            if (count == 0) {
+                return 0;
+            }
+            if (head.compareAndSet(start, start + count)) {
+                break;
+            }
+        }
+        int i = 0;
+        try {
+            for (; i < count; i++) {
+                long position = start + i;
+                int slot = (int) position & mask;
+                E element = elements.get(slot);
+                long nanos = enqueueNanos[slot];
+                release(slot, position);
+                handler.onElement(element, nanos, i == count - 1);
+            }
+        } finally {
+            // if the handler failed, the rest of the claimed batch is dropped so the slots are not lost
+            for (i++; i < count; i++) {
+                long position = start + i;
+                release((int) position & mask, position);
+            }
+        }
+        return count;
+    }
+
+    private void release(int slot, long position) {
+        elements.lazySet(slot, null);
+        sequences.lazySet(slot, position + mask + 1);
+    }
+
+    /**
+     * @return the number of elements currently queued; approximate while producers or consumers are active
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
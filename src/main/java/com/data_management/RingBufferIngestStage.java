@@ -0,0 +1,300 @@
+package com.data_management;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Decouples network I/O threads from storage: producers enqueue raw messages into a
+ * {@link RingBuffer}, and consumer threads drain them in batches, decode them and store them
+ * with one {@link DataStorage#addPatientRecords} call per batch.
+ * <p>
+ * With a single consumer, every patient's records are stored in arrival order. With several
+ * consumers, batches are stored concurrently and records of one patient from different batches
+ * may interleave; use one consumer where order matters (e.g. for alert evaluation).
+ * </p>
+ * <p>
+ * The stage exposes queue metrics: current and maximum depth, enqueued, rejected, stored and
+ * malformed counts, and an exponentially weighted average of the time messages wait in the queue.
+ * </p>
+ *
+ * @param <E> the raw message type, e.g. {@code String} for CSV text messages
+ */
+public class RingBufferIngestStage<E> implements Closeable {
+    /** Default number of messages a consumer stores per {@link DataStorage#addPatientRecords} call. */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /** Turns one raw message into records. */
+    @FunctionalInterface
+    public interface Decoder<E> {
+        /**
+         * @return {@code false} if the message is malformed
+         */
+        boolean decode(E message, RecordSink sink);
+    }
+
+    private final DataStorage storage;
+    private final RingBuffer<E> ring;
+    private final WaitStrategy waitStrategy;
+    private final int batchSize;
+    private final List<Thread> consumers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final AtomicLong maxDepth = new AtomicLong();
+    private final AtomicLong queueLatencyNanos = new AtomicLong();
+
+    /**
+     * Creates a stage for CSV text messages ({@code patientId,timestamp,label,value}, possibly
+     * several newline-separated lines per message) with {@link #DEFAULT_BATCH_SIZE} batches.
+     */
+    public static RingBufferIngestStage<String> forCsv(DataStorage storage, int capacity, int consumers,
+                                                       WaitStrategy waitStrategy) {
+        return new RingBufferIngestStage<>(storage, capacity, consumers, DEFAULT_BATCH_SIZE, waitStrategy, () -> {
+            CsvMessageParser parser = new CsvMessageParser();
+            return (message, sink) -> parser.parseLinesTo(message, sink) == 0;
+        });
+    }
+
+    /**
+     * Creates a stage for the messages of a WebSocket client, with {@link #DEFAULT_BATCH_SIZE}
+     * batches: CSV text messages ({@code String}) are parsed as by {@link #forCsv}, and batches
+     * of records the client already decoded from binary frames ({@code List<PatientRecord>}) are
+     * only batched into the storage. Any other message is counted as malformed.
+     */
+    public static RingBufferIngestStage<Object> forMessages(DataStorage storage, int capacity, int consumers,
+                                                            WaitStrategy waitStrategy) {
+        return new RingBufferIngestStage<>(storage, capacity, consumers, DEFAULT_BATCH_SIZE, waitStrategy, () -> {
+            CsvMessageParser parser = new CsvMessageParser();
+            return (message, sink) -> {
+                if (message instanceof String) {
+                    return parser.parseLinesTo((String) message, sink) == 0;
+                }
+                if (!(message instanceof List)) {
+                    return false;
+                }
+                for (Object element : (List<?>) message) {
+                    if (!(element instanceof PatientRecord)) {
+                        return false;
+                    }
+                    PatientRecord record = (PatientRecord) element;
+                    sink.accept(record.getPatientId(), record.getMeasurementValue(), record.getRecordType(),
+                            record.getTimestamp());
+                }
+                return true;
+            };
+        });
+    }
+
+    /**
+     * Creates a stage for records that are already typed, e.g. handed over in-process by the
+     * simulator, with {@link #DEFAULT_BATCH_SIZE} batches. Nothing is parsed; consumers only
+     * batch the records into the storage.
+     */
+    public static RingBufferIngestStage<PatientRecord> forRecords(DataStorage storage, int capacity, int consumers,
+                                                                  WaitStrategy waitStrategy) {
+        return new RingBufferIngestStage<>(storage, capacity, consumers, DEFAULT_BATCH_SIZE, waitStrategy,
+                () -> (record, sink) -> {
+                    sink.accept(record.getPatientId(), record.getMeasurementValue(), record.getRecordType(),
+                            record.getTimestamp());
+                    return true;
+                });
+    }
+
+    /**
+     * Creates the stage and starts its consumer threads.
+     *
+     * @param storage       the storage receiving the records
+     * @param capacity      the ring capacity, rounded up to a power of two
+     * @param consumerCount the number of consumer threads
+     * @param batchSize     the maximum number of messages per storage call
+     * @param waitStrategy  how consumers wait when the ring is empty and {@link #put} waits when it is full
+     * @param decoders      creates one decoder per consumer thread, so decoders need not be thread-safe
+     */
+    public RingBufferIngestStage(DataStorage storage, int capacity, int consumerCount, int batchSize,
+                                 WaitStrategy waitStrategy, Supplier<? extends Decoder<? super E>> decoders) {
+        if (storage == null) {
+            throw new IllegalArgumentException("DataStorage cannot be null");
+        }
+        if (consumerCount <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("consumerCount and batchSize must be positive");
+        }
+        this.storage = storage;
+        this.ring = new RingBuffer<>(capacity);
+        this.waitStrategy = waitStrategy;
+        this.batchSize = batchSize;
+        for (int i = 0; i < consumerCount; i++) {
+            Thread thread = new Thread(new Consumer(decoders.get()), "ingest-consumer-" + i);
+            thread.setDaemon(true);
+            consumers.add(thread);
+        }
+        for (Thread thread : consumers) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Enqueues a message without waiting.
+     *
+     * @return {@code false} if the ring is full or the stage is closed; the message is then counted as rejected
+     */
+    public boolean offer(E message) {
+        if (running && ring.offer(message)) {
+            onEnqueued();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Enqueues a message, waiting while the ring is full. This applies back-pressure to the
+     * calling I/O thread instead of dropping data.
+     *
+     * @throws IllegalStateException if the stage is closed
+     * @throws InterruptedException  if the thread is interrupted while waiting
+     */
+    public void put(E message) throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Ingest stage is closed");
+        }
+        ring.put(message, waitStrategy);
+        onEnqueued();
+    }
+
+    private void onEnqueued() {
+        enqueued.increment();
+        long depth = ring.size();
+        if (depth > maxDepth.get()) {
+            maxDepth.accumulateAndGet(depth, Math::max);
+        }
+    }
+
+    /**
+     * Stops accepting messages, lets the consumers store what is still queued and waits for them.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Thread thread : consumers) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return ring.size();
+    }
+
+    public long getMaxQueueDepth() {
+        return maxDepth.get();
+    }
+
+    public int getCapacity() {
+        return ring.capacity();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the number of records handed to the storage
+     */
+    public long getStoredCount() {
+        return stored.sum();
+    }
+
+    public long getMalformedCount() {
+        return malformed.sum();
+    }
+
+    /**
+     * @return the number of batches the storage failed to accept; their records are lost
+     */
+    public long getFailedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    /**
+     * @return the moving average, in nanoseconds, of how long the oldest message of each batch waited in the ring
+     */
+    public long getQueueLatencyNanos() {
+        return queueLatencyNanos.get();
+    }
+
+    private final class Consumer implements Runnable, RingBuffer.BatchHandler<E> {
+        private final Decoder<? super E> decoder;
+        private final List<PatientRecord> batch = new ArrayList<>();
+        private final RecordSink sink = (id, value, type, ts) -> batch.add(new PatientRecord(id, value, type, ts));
+        private boolean firstOfBatch = true;
+
+        Consumer(Decoder<? super E> decoder) {
+            this.decoder = decoder;
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                if (ring.drain(this, batchSize) > 0) {
+                    idle = 0;
+                } else if (!running && ring.size() == 0) {
+                    return;
+                } else {
+                    waitStrategy.idle(idle++);
+                }
+            }
+        }
+
+        @Override
+        public void onElement(E element, long enqueueNanos, boolean endOfBatch) {
+            if (firstOfBatch) {
+                recordLatency(System.nanoTime() - enqueueNanos);
+                firstOfBatch = false;
+            }
+            try {
+                if (!decoder.decode(element, sink)) {
+                    malformed.increment();
+                }
+            } catch (RuntimeException e) {
+                malformed.increment();
+            }
+            if (endOfBatch) {
+                firstOfBatch = true;
+                if (!batch.isEmpty()) {
+                    try {
+                        storage.addPatientRecords(batch);
+                        stored.add(batch.size());
+                    } catch (RuntimeException e) {
+                        failedBatches.increment();
+                        System.err.println("Error storing batch of " + batch.size() + " records: " + e.getMessage());
+                    }
+                    batch.clear();
+                }
+            }
+        }
+
+        // EWMA with weight 1/8, tolerant of concurrent updates from several consumers
+        private void recordLatency(long sample) {
+            long current = queueLatencyNanos.get();
+            long next = current == 0 ? sample : current + ((sample - current) >> 3);
+            queueLatencyNanos.compareAndSet(current, next);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.data_management;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link IngestFilter} that drops samples already stored with the same patient, record type and
+ * timestamp, as produced by reconnects, stream replays and files read twice.
+ * <p>
+ * Each patient and record type keeps the timestamps of its last {@code recentPerSeries}
+ * samples, which answers exactly for the recent past, where nearly all duplicates fall. A
+ * sample not newer than the timestamps already evicted from that window is checked against a
+ * Bloom filter of every accepted sample;
+ * there a rare false positive drops a new sample, with the configured probability. The Bloom
+ * filter has two generations: when the current one has taken {@code samplesPerGeneration}
+ * samples, the previous one is discarded, so memory is bounded and duplicates are recognised
+ * for between one and two generations' worth of samples.
+ * </p>
+ * <p>
+ * Every check is constant time, and memory is bounded by the number of patient series times
+ * {@code recentPerSeries} plus two Bloom filter generations. Register it with
+ * {@link DataStorage#addIngestFilter}, which never calls it concurrently for the same patient;
+ * the per-patient windows rely on that.
+ * </p>
+ * <p>
+ * {@link #accept} only checks a sample; it is remembered in {@link #onAccepted}, once every
+ * filter of the storage has accepted it. A sample that a later filter drops, e.g. one shed by an
+ * {@link AdmissionController}, is therefore not taken for a duplicate when it is sent again.
+ * Callers using the deduplicator on its own call {@link #onAccepted} for the samples they keep.
+ * </p>
+ */
+public class SampleDeduplicator implements IngestFilter {
+    /** Default number of exact timestamps kept per patient and record type. */
+    public static final int DEFAULT_RECENT_PER_SERIES = 32;
+    /** Default number of samples per Bloom filter generation. */
+    public static final int DEFAULT_SAMPLES_PER_GENERATION = 1_000_000;
+    /** Default false positive probability of a Bloom filter generation when full. */
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+
+    private final int recentPerSeries;
+    private final int samplesPerGeneration;
+    private final int bitCount;
+    private final int hashCount;
+    private final Map<Integer, Map<String, RecentTimestamps>> recent = new ConcurrentHashMap<>();
+
+    private volatile BloomGeneration current;
+    private volatile BloomGeneration previous;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder recentDuplicates = new LongAdder();
+    private final LongAdder olderDuplicates = new LongAdder();
+
+    public SampleDeduplicator() {
+        this(DEFAULT_RECENT_PER_SERIES, DEFAULT_SAMPLES_PER_GENERATION, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * @param recentPerSeries      the number of exact timestamps kept per patient and record type
+     * @param samplesPerGeneration the number of samples a Bloom filter generation takes before rotating
+     * @param falsePositiveRate    the probability that a full generation reports an unseen sample
+     */
+    public SampleDeduplicator(int recentPerSeries, int samplesPerGeneration, double falsePositiveRate) {
+        if (recentPerSeries <= 0 || samplesPerGeneration <= 0) {
+            throw new IllegalArgumentException("recentPerSeries and samplesPerGeneration must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        this.recentPerSeries = recentPerSeries;
+        this.samplesPerGeneration = samplesPerGeneration;
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-samplesPerGeneration * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / samplesPerGeneration * ln2));
+        this.current = new BloomGeneration(bitCount);
+        this.previous = new BloomGeneration(bitCount);
+    }
+
+    @Override
+    public boolean accept(int patientId, String recordType, long timestamp, double measurementValue) {
+        RecentTimestamps window = windowOf(patientId, recordType);
+        if (window.contains(timestamp)) {
+            recentDuplicates.increment();
+            return false;
+        }
+        if (window.mayHaveBeenEvicted(timestamp)) {
+            long hash = hash(patientId, recordType, timestamp);
+            if (current.mightContain(hash, hashCount) || previous.mightContain(hash, hashCount)) {
+                olderDuplicates.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onAccepted(int patientId, String recordType, long timestamp, double measurementValue) {
+        windowOf(patientId, recordType).add(timestamp);
+        long hash = hash(patientId, recordType, timestamp);
+        BloomGeneration generation = current;
+        generation.add(hash, hashCount);
+        if (generation.incrementCount() == samplesPerGeneration) {
+            rotate(generation);
+        }
+        accepted.increment();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    /**
+     * @return the number of samples dropped, found either in a recent window or in the Bloom filter
+     */
+    public long getDuplicateCount() {
+        return recentDuplicates.sum() + olderDuplicates.sum();
+    }
+
+    /**
+     * @return the number of samples dropped because the Bloom filter reported them; includes false positives
+     */
+    public long getOlderDuplicateCount() {
+        return olderDuplicates.sum();
+    }
+
+    private RecentTimestamps windowOf(int patientId, String recordType) {
+        return recent.computeIfAbsent(patientId, id -> new HashMap<>())
+                .computeIfAbsent(recordType, type -> new RecentTimestamps(recentPerSeries));
+    }
+
+    private synchronized void rotate(BloomGeneration full) {
+        if (current == full) {
+            previous = full;
+            current = new BloomGeneration(bitCount);
+        }
+    }
+
+    private static long hash(int patientId, String recordType, long timestamp) {
+        long h = mix(timestamp);
+        h = mix(h ^ patientId);
+        return mix(h ^ recordType.hashCode());
+    }
+
+    // Finalizer of MurmurHash3's 64-bit variant
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // The last timestamps of one patient's series of one record type, in insertion order
+    private static final class RecentTimestamps {
+        private final long[] timestamps;
+        private int size;
+        private int next;
+        private long maxEvicted = Long.MIN_VALUE;
+
+        RecentTimestamps(int capacity) {
+            timestamps = new long[capacity];
+        }
+
+        boolean contains(long timestamp) {
+            for (int i = 0; i < size; i++) {
+                if (timestamps[i] == timestamp) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // A timestamp newer than everything evicted would still be held if it had been seen;
+        // otherwise the window cannot answer for it
+        boolean mayHaveBeenEvicted(long timestamp) {
+            return timestamp <= maxEvicted;
+        }
+
+        void add(long timestamp) {
+            if (size == timestamps.length) {
+                maxEvicted = Math.max(maxEvicted, timestamps[next]);
+            } else {
+                size++;
+            }
+            timestamps[next] = timestamp;
+            next = (next + 1) % timestamps.length;
+        }
+    }
+
+    // One Bloom filter generation; bits are set atomically because patients are filtered concurrently
+    private static final class BloomGeneration {
+        private final AtomicLongArray words;
+        private final int bitCount;
+        private final AtomicLong count = new AtomicLong();
+
+        BloomGeneration(int bitCount) {
+            this.bitCount = bitCount;
+            this.words = new AtomicLongArray((bitCount + 63) / 64);
+        }
+
+        void add(long hash, int hashCount) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bitCount);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long value = words.get(word);
+                while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask)) {
+                    value = words.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(long hash, int hashCount) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long incrementCount() {
+            return count.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.data_management;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A {@link DataStorage} that partitions patients by ID onto a fixed number of single-threaded
+ * shards. Each shard owns the entries, index and alert evaluation state of its patients, and
+ * everything touching them runs as a message on the shard's thread.
+ * <p>
+ * The add methods route records to the shards' queues and return; a batch is split into one
+ * message per shard. Once a shard has stored the messages of one drain, it evaluates every
+ * patient they touched with its own evaluator, e.g. an {@code AlertGenerator}. Queries are
+ * messages too: {@link #getRecords} waits for the answer of the patient's shard, which has by
+ * then stored everything queued for it earlier by the same thread. Since a patient's state is
+ * only touched by one thread, writers never contend and evaluation reads consistent lists,
+ * and throughput grows with the number of shards up to the number of cores.
+ * </p>
+ * <p>
+ * Filters registered with {@link #addIngestFilter} run on the shard threads. Listeners and
+ * subscriptions are notified on the shard threads as well, concurrently for patients of
+ * different shards, which is what {@link RecordListener} already allows. The {@link Patient}
+ * objects returned by the queries belong to the shards; read them with {@link #query}.
+ * </p>
+ */
+public class ShardedDataStorage extends DataStorage implements Closeable {
+    /** Default number of messages each shard's queue holds before senders wait. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    private static final int DRAIN_BATCH_SIZE = 256;
+
+    private final Shard[] shards;
+    private final WaitStrategy waitStrategy;
+    private volatile boolean running = true;
+    private final LongAdder failedTasks = new LongAdder();
+
+    /**
+     * Creates a storage with one shard per available core and no evaluation.
+     */
+    public ShardedDataStorage() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, WaitStrategy.PARK, null);
+    }
+
+    /**
+     * Creates the storage and starts its shard threads.
+     *
+     * @param shardCount    the number of shards, each with its own thread
+     * @param queueCapacity the capacity of each shard's queue, rounded up to a power of two
+     * @param waitStrategy  how shards wait for messages and senders wait for room
+     * @param evaluators    creates one evaluator per shard, called with every patient that
+     *                      received records; {@code null} for none
+     */
+    public ShardedDataStorage(int shardCount, int queueCapacity, WaitStrategy waitStrategy,
+                              Supplier<? extends Consumer<Patient>> evaluators) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("waitStrategy cannot be null");
+        }
+        this.waitStrategy = waitStrategy;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, queueCapacity, evaluators != null ? evaluators.get() : null);
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    @Override
+    public void addPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+        PatientRecord record = new PatientRecord(patientId, measurementValue, recordType, timestamp);
+        send(shardOf(patientId), shard -> shard.store(List.of(record)));
+    }
+
+    // The batch is split per shard; the caller may reuse its list once the call returns
+    @Override
+    public void addPatientRecords(List<PatientRecord> records) {
+        List<List<PatientRecord>> parts = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            parts.add(null);
+        }
+        for (PatientRecord record : records) {
+            int index = indexOf(record.getPatientId());
+            List<PatientRecord> part = parts.get(index);
+            if (part == null) {
+                part = new ArrayList<>();
+                parts.set(index, part);
+            }
+            part.add(record);
+        }
+        for (int i = 0; i < shards.length; i++) {
+            List<PatientRecord> part = parts.get(i);
+            if (part != null) {
+                send(shards[i], shard -> shard.store(part));
+            }
+        }
+    }
+
+    /**
+     * Runs {@code query} on the shard owning the patient, after the messages already queued
+     * there.
+     *
+     * @param query called with the patient's entry, or {@code null} if nothing was stored for it
+     * @return the query's result; completed exceptionally if the query throws
+     */
+    public <T> CompletableFuture<T> query(int patientId, Function<? super Patient, ? extends T> query) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        send(shardOf(patientId), shard -> {
+            try {
+                result.complete(query.apply(shard.storage.getPatient(patientId)));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return a future completed once every shard has stored the messages queued before this call
+     *         and evaluated the patients they touched
+     */
+    public CompletableFuture<Void> flush() {
+        List<CompletableFuture<Void>> barriers = new ArrayList<>(shards.length);
+        for (Shard target : shards) {
+            CompletableFuture<Void> barrier = new CompletableFuture<>();
+            send(target, shard -> {
+                // the barrier may share a drain with the records it waits for
+                shard.evaluateTouched();
+                barrier.complete(null);
+            });
+            barriers.add(barrier);
+        }
+        return CompletableFuture.allOf(barriers.toArray(new CompletableFuture<?>[0]));
+    }
+
+    @Override
+    public List<PatientRecord> getRecords(int patientId, long startTime, long endTime) {
+        return query(patientId, patient -> patient != null
+                ? patient.getRecords(startTime, endTime) : new ArrayList<PatientRecord>()).join();
+    }
+
+    @Override
+    public List<PatientRecord> copyRecords(int patientId) {
+        return query(patientId, patient -> patient != null
+                ? patient.getRecords(Long.MIN_VALUE, Long.MAX_VALUE) : new ArrayList<PatientRecord>()).join();
+    }
+
+    @Override
+    public List<Patient> getAllPatients() {
+        List<Patient> result = new ArrayList<>();
+        queryAll(DataStorage::getAllPatients).forEach(result::addAll);
+        return result;
+    }
+
+    @Override
+    public List<Patient> getPatientsWithRecords(String recordType, long startTime, long endTime) {
+        List<Patient> result = new ArrayList<>();
+        queryAll(storage -> storage.getPatientsWithRecords(recordType, startTime, endTime)).forEach(result::addAll);
+        return result;
+    }
+
+    @Override
+    public Map<Integer, List<PatientRecord>> getRecordsByType(String recordType, long startTime, long endTime) {
+        Map<Integer, List<PatientRecord>> result = new TreeMap<>();
+        queryAll(storage -> storage.getRecordsByType(recordType, startTime, endTime)).forEach(result::putAll);
+        return result;
+    }
+
+    @Override
+    public void addIngestFilter(IngestFilter filter) {
+        Objects.requireNonNull(filter, "filter");
+        for (Shard shard : shards) {
+            shard.storage.addIngestFilter(filter);
+        }
+    }
+
+    @Override
+    public void removeIngestFilter(IngestFilter filter) {
+        for (Shard shard : shards) {
+            shard.storage.removeIngestFilter(filter);
+        }
+    }
+
+    /**
+     * Stops accepting messages, lets the shards process what is still queued and waits for them.
+     * Every message accepted before or concurrently with this call is processed; the ones sent
+     * afterwards are rejected with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return the number of messages queued on all shards
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Shard shard : shards) {
+            depth += shard.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * @return the number of records handed to the shards' storage
+     */
+    public long getStoredCount() {
+        long stored = 0;
+        for (Shard shard : shards) {
+            stored += shard.stored;
+        }
+        return stored;
+    }
+
+    /**
+     * @return the number of messages and evaluations that failed with an exception
+     */
+    public long getFailedTaskCount() {
+        return failedTasks.sum();
+    }
+
+    private int indexOf(int patientId) {
+        return Math.floorMod(patientId, shards.length);
+    }
+
+    private Shard shardOf(int patientId) {
+        return shards[indexOf(patientId)];
+    }
+
+    private <T> List<T> queryAll(Function<DataStorage, T> query) {
+        List<CompletableFuture<T>> answers = new ArrayList<>(shards.length);
+        for (Shard target : shards) {
+            CompletableFuture<T> answer = new CompletableFuture<>();
+            send(target, shard -> {
+                try {
+                    answer.complete(query.apply(shard.storage));
+                } catch (RuntimeException e) {
+                    answer.completeExceptionally(e);
+                }
+            });
+            answers.add(answer);
+        }
+        List<T> results = new ArrayList<>(answers.size());
+        for (CompletableFuture<T> answer : answers) {
+            results.add(answer.join());
+        }
+        return results;
+    }
+
+    private void send(Shard shard, Task task) {
+        // announced before checking running, so a shard that saw no senders after close() began
+        // can only miss senders that will see the storage closed
+        shard.senders.incrementAndGet();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Sharded storage is closed");
+            }
+            shard.queue.put(task, waitStrategy);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing for shard " + shard.index, e);
+        } finally {
+            shard.senders.decrementAndGet();
+        }
+    }
+
+    // A message run on a shard's thread
+    private interface Task {
+        void run(Shard shard);
+    }
+
+    private final class Shard implements Runnable, RingBuffer.BatchHandler<Task> {
+        final int index;
+        final RingBuffer<Task> queue;
+        final Thread thread;
+        // only touched by the shard's thread; its locks are never contended
+        final DataStorage storage = new DataStorage();
+        private final Consumer<Patient> evaluator;
+        // patients that received records during the current drain, evaluated once at its end
+        private final Set<Integer> touched = new LinkedHashSet<>();
+        // threads between their running check and the end of their put
+        final AtomicInteger senders = new AtomicInteger();
+        volatile long stored;
+
+        Shard(int index, int queueCapacity, Consumer<Patient> evaluator) {
+            this.index = index;
+            this.queue = new RingBuffer<>(queueCapacity);
+            this.evaluator = evaluator;
+            this.thread = new Thread(this, "patient-shard-" + index);
+            this.thread.setDaemon(true);
+            storage.addRecordListener(ShardedDataStorage.this::notifyListeners);
+        }
+
+        void store(List<PatientRecord> records) {
+            storage.addPatientRecords(records);
+            stored += records.size();
+            if (evaluator != null) {
+                for (PatientRecord record : records) {
+                    touched.add(record.getPatientId());
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                if (queue.drain(this, DRAIN_BATCH_SIZE) > 0) {
+                    idle = 0;
+                } else if (!running && senders.get() == 0 && queue.size() == 0) {
+                    // no sender can still be putting, so nothing is left behind
+                    return;
+                } else {
+                    waitStrategy.idle(idle++);
+                }
+            }
+        }
+
+        @Override
+        public void onElement(Task task, long enqueueNanos, boolean endOfBatch) {
+            try {
+                task.run(this);
+            } catch (RuntimeException e) {
+                failedTasks.increment();
+                System.err.println("Error in patient shard " + index + ": " + e.getMessage());
+            }
+            if (endOfBatch) {
+                evaluateTouched();
+            }
+        }
+
+        void evaluateTouched() {
+            for (int patientId : touched) {
+                Patient patient = storage.getPatient(patientId);
+                if (patient == null) {
+                    continue;
+                }
+                try {
+                    evaluator.accept(patient);
+                } catch (RuntimeException e) {
+                    failedTasks.increment();
+                    System.err.println("Error evaluating patient " + patientId + ": " + e.getMessage());
+                }
+            }
+            touched.clear();
+        }
+    }
+}
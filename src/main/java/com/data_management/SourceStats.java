@@ -0,0 +1,77 @@
+package com.data_management;
+
+/**
+ * Snapshot of one source of an {@link IngestionManager}: its state, how much it stored, how
+ * fast and how far behind it is. Counters are {@code -1} for readers that do not implement
+ * {@link ReaderMetrics}.
+ */
+public class SourceStats {
+    private final String name;
+    private final IngestionManager.SourceState state;
+    private final long storedCount;
+    private final long malformedCount;
+    private final double recordsPerSecond;
+    private final long lagMillis;
+    private final String error;
+
+    public SourceStats(String name, IngestionManager.SourceState state, long storedCount, long malformedCount,
+                       double recordsPerSecond, long lagMillis, String error) {
+        this.name = name;
+        this.state = state;
+        this.storedCount = storedCount;
+        this.malformedCount = malformedCount;
+        this.recordsPerSecond = recordsPerSecond;
+        this.lagMillis = lagMillis;
+        this.error = error;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public IngestionManager.SourceState getState() {
+        return state;
+    }
+
+    /**
+     * @return the number of records handed to the storage
+     */
+    public long getStoredCount() {
+        return storedCount;
+    }
+
+    /**
+     * @return the number of malformed messages or lines that were skipped
+     */
+    public long getMalformedCount() {
+        return malformedCount;
+    }
+
+    /**
+     * @return the average number of records stored per second since the source started reading
+     */
+    public double getRecordsPerSecond() {
+        return recordsPerSecond;
+    }
+
+    /**
+     * @return the age, in milliseconds, of the newest sample stored, or {@code -1} if none was stored
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * @return why the source failed to start, or {@code null}
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s, %d records (%d malformed), %.0f records/s, lag %d ms%s",
+                name, state, storedCount, malformedCount, recordsPerSecond, lagMillis,
+                error == null ? "" : ", error: " + error);
+    }
+}
@@ -0,0 +1,241 @@
+package com.data_management;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses one large data file on several threads.
+ * <p>
+ * The file is cut into byte ranges of about {@code rangeSize} bytes whose boundaries fall on
+ * record starts: after a newline for {@code .txt} ({@code FileOutputStrategy} format),
+ * {@code .ndjson} and {@code .jsonl} files, and on a top-level <code>{</code> that follows
+ * {@code [} or {@code ,} for {@code .json} arrays. The latter assumes the flat
+ * {@code {patientId, recordType, measurementValue, timestamp}} objects of our exports; arrays of
+ * nested objects should be exported as NDJSON instead.
+ * </p>
+ * <p>
+ * Ranges are parsed concurrently on a {@link ForkJoinPool}, but their records are handed to
+ * {@link DataStorage#addPatientRecords} strictly in range order, so every patient's records are
+ * stored in file order. At most twice the pool's parallelism ranges are in flight, which bounds
+ * memory to a few ranges' worth of records.
+ * </p>
+ */
+public class SplitFileParser {
+    /** Default target size of a range. */
+    public static final long DEFAULT_RANGE_SIZE = 16L * 1024 * 1024;
+
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final ForkJoinPool pool;
+    private final long rangeSize;
+
+    /**
+     * Creates a parser running on the common pool with {@link #DEFAULT_RANGE_SIZE} ranges.
+     */
+    public SplitFileParser() {
+        this(ForkJoinPool.commonPool(), DEFAULT_RANGE_SIZE);
+    }
+
+    /**
+     * @param pool      the pool parsing the ranges
+     * @param rangeSize the target range size in bytes; ranges grow to the next record boundary
+     */
+    public SplitFileParser(ForkJoinPool pool, long rangeSize) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool cannot be null");
+        }
+        if (rangeSize <= 0 || rangeSize > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("rangeSize must be between 1 and " + Integer.MAX_VALUE / 2);
+        }
+        this.pool = pool;
+        this.rangeSize = rangeSize;
+    }
+
+    /** A half-open byte range {@code [start, end)} of a file. */
+    public static final class Range {
+        private final long start;
+        private final long end;
+
+        Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + ")";
+        }
+    }
+
+    /**
+     * Parses {@code file} in parallel and stores its records.
+     *
+     * @return the record count and duration of the run
+     * @throws IOException if the file cannot be read, has an unsupported extension or is
+     *                     malformed; records of the ranges before the failing one are already stored
+     */
+    public IngestionStats parse(File file, DataStorage dataStorage) throws IOException {
+        if (dataStorage == null) {
+            throw new IllegalArgumentException("DataStorage cannot be null");
+        }
+        long start = System.nanoTime();
+        boolean text = isText(file);
+        List<Range> ranges = split(file);
+        long records = 0;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Deque<ForkJoinTask<List<PatientRecord>>> inFlight = new ArrayDeque<>();
+            int window = Math.max(2, pool.getParallelism() * 2);
+            int next = 0;
+            try {
+                while (next < ranges.size() || !inFlight.isEmpty()) {
+                    while (next < ranges.size() && inFlight.size() < window) {
+                        Range range = ranges.get(next++);
+                        inFlight.add(pool.submit(() -> parseRange(channel, range, text)));
+                    }
+                    // the oldest range is applied first, whatever order the ranges finish in
+                    List<PatientRecord> parsed = join(inFlight.poll(), file);
+                    dataStorage.addPatientRecords(parsed);
+                    records += parsed.size();
+                }
+            } finally {
+                for (ForkJoinTask<?> task : inFlight) {
+                    task.cancel(true);
+                }
+            }
+        }
+        return new IngestionStats(1, 0, records, System.nanoTime() - start);
+    }
+
+    /**
+     * Cuts {@code file} into ranges aligned to record boundaries.
+     *
+     * @throws IOException if the file cannot be read or has an unsupported extension
+     */
+    public List<Range> split(File file) throws IOException {
+        boolean text = isText(file);
+        boolean jsonArray = file.getName().endsWith(".json");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return Collections.emptyList();
+            }
+            List<Range> ranges = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                long end = start + rangeSize >= size
+                        ? size
+                        : jsonArray && !text ? nextObjectStart(channel, start + rangeSize) : nextLineStart(channel, start + rangeSize);
+                ranges.add(new Range(start, end));
+                start = end;
+            }
+            return ranges;
+        }
+    }
+
+    private List<PatientRecord> parseRange(FileChannel channel, Range range, boolean text) throws IOException {
+        int length = (int) (range.end - range.start);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range.start, length);
+        List<PatientRecord> records = new ArrayList<>();
+        RecordSink sink = (id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts));
+        if (text) {
+            new TextRecordParser().parse(buffer, 0, length, sink);
+        } else {
+            Reader reader = new InputStreamReader(new ByteBufferInputStream(buffer), StandardCharsets.UTF_8);
+            try {
+                new JsonRecordStreamParser(reader).parse(sink);
+            } catch (IOException e) {
+                throw new IOException(e.getMessage() + " of range " + range, e);
+            }
+        }
+        return records;
+    }
+
+    private static List<PatientRecord> join(ForkJoinTask<List<PatientRecord>> task, File file) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Parsing of " + file.getName() + " interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error parsing file " + file.getName() + ": " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static boolean isText(File file) throws IOException {
+        String name = file.getName();
+        if (name.endsWith(".txt")) {
+            return true;
+        }
+        if (name.endsWith(".json") || name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return false;
+        }
+        throw new IOException("Unsupported file type: " + name);
+    }
+
+    // Returns the offset just after the first newline at or after position, or the file size
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long offset = position;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    // Returns the offset of the first '{' at or after position whose previous non-blank byte is ',' or '['
+    private static long nextObjectStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long offset = position;
+        byte previous = 0;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '{' && (previous == ',' || previous == '[')) {
+                    return offset + i;
+                }
+                if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                    previous = b;
+                }
+            }
+            offset += read;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.data_management;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * The end of a reactive ingestion pipeline: stores every batch of records it receives with one
+ * {@link DataStorage#addPatientRecords} call.
+ * <p>
+ * It requests one batch at a time, so the pace of the storage sets the demand of the whole
+ * pipeline. A batch the storage rejects is counted and skipped.
+ * </p>
+ */
+public class StorageSubscriber implements Flow.Subscriber<List<PatientRecord>> {
+    private final DataStorage storage;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    private volatile long stored;
+    private volatile long failedBatches;
+
+    public StorageSubscriber(DataStorage storage) {
+        if (storage == null) {
+            throw new IllegalArgumentException("DataStorage cannot be null");
+        }
+        this.storage = storage;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<PatientRecord> records) {
+        try {
+            storage.addPatientRecords(records);
+            stored += records.size();
+        } catch (RuntimeException e) {
+            failedBatches++;
+            System.err.println("Error storing batch of " + records.size() + " records: " + e.getMessage());
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        completion.complete(null);
+    }
+
+    /**
+     * @return a future completed when the pipeline completes, or exceptionally when it fails
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * @return the number of records handed to the storage
+     */
+    public long getStoredCount() {
+        return stored;
+    }
+
+    /**
+     * @return the number of batches the storage failed to accept; their records are lost
+     */
+    public long getFailedBatchCount() {
+        return failedBatches;
+    }
+}
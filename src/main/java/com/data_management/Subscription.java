@@ -0,0 +1,80 @@
+package com.data_management;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoublePredicate;
+
+/**
+ * A continuous query registered with {@link DataStorage#subscribe}.
+ * <p>
+ * A subscription matches records of one record type (or of any type when the type is
+ * {@code null}), from a set of patients (or from every patient when the set is empty), whose
+ * value satisfies a condition. Every matching record is pushed to the subscriber as it is stored.
+ * </p>
+ */
+public class Subscription {
+    private final String recordType;
+    private final Set<Integer> patientIds;
+    private final DoublePredicate condition;
+    private final RecordListener callback;
+    private final SubscriptionRegistry registry;
+    private final LongAdder delivered = new LongAdder();
+    private volatile boolean active = true;
+
+    Subscription(String recordType, Set<Integer> patientIds, DoublePredicate condition,
+                 RecordListener callback, SubscriptionRegistry registry) {
+        this.recordType = recordType;
+        this.patientIds = patientIds == null ? Collections.emptySet()
+                : Collections.unmodifiableSet(new HashSet<>(patientIds));
+        this.condition = condition == null ? value -> true : condition;
+        this.callback = callback;
+        this.registry = registry;
+    }
+
+    /**
+     * Stops delivery. Records being dispatched concurrently may still arrive once.
+     */
+    public synchronized void cancel() {
+        if (active) {
+            active = false;
+            registry.remove(this);
+        }
+    }
+
+    /**
+     * @return {@code true} until {@link #cancel()} is called
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return the record type matched, or {@code null} for any type
+     */
+    public String getRecordType() {
+        return recordType;
+    }
+
+    /**
+     * @return the patients matched; empty means every patient
+     */
+    public Set<Integer> getPatientIds() {
+        return patientIds;
+    }
+
+    /**
+     * @return how many records have been delivered so far
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    void deliver(PatientRecord record) {
+        if (active && condition.test(record.getMeasurementValue())) {
+            delivered.increment();
+            callback.onRecordAdded(record);
+        }
+    }
+}
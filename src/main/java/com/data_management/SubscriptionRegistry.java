@@ -0,0 +1,90 @@
+package com.data_management;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index of the {@link Subscription}s registered on a {@link DataStorage}.
+ * <p>
+ * Subscriptions are indexed by record type and then by patient ID, with separate buckets for
+ * "any type" and "any patient". Dispatching a record therefore only looks at the (at most four)
+ * buckets that can match it, however many subscriptions exist for other types or patients.
+ * </p>
+ */
+class SubscriptionRegistry {
+    // Key used for subscriptions that match every record type
+    private static final String ANY_TYPE = "\u0000*";
+
+    private static final class TypeBucket {
+        final Map<Integer, List<Subscription>> byPatient = new ConcurrentHashMap<>();
+        final List<Subscription> anyPatient = new CopyOnWriteArrayList<>();
+    }
+
+    private final Map<String, TypeBucket> byType = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+
+    Subscription add(Subscription subscription) {
+        TypeBucket bucket = byType.computeIfAbsent(keyOf(subscription.getRecordType()), k -> new TypeBucket());
+        if (subscription.getPatientIds().isEmpty()) {
+            bucket.anyPatient.add(subscription);
+        } else {
+            for (Integer patientId : subscription.getPatientIds()) {
+                bucket.byPatient.computeIfAbsent(patientId, id -> new CopyOnWriteArrayList<>()).add(subscription);
+            }
+        }
+        count.incrementAndGet();
+        return subscription;
+    }
+
+    void remove(Subscription subscription) {
+        TypeBucket bucket = byType.get(keyOf(subscription.getRecordType()));
+        if (bucket == null) {
+            return;
+        }
+        if (subscription.getPatientIds().isEmpty()) {
+            bucket.anyPatient.remove(subscription);
+        } else {
+            for (Integer patientId : subscription.getPatientIds()) {
+                List<Subscription> list = bucket.byPatient.get(patientId);
+                if (list != null) {
+                    list.remove(subscription);
+                }
+            }
+        }
+        count.decrementAndGet();
+    }
+
+    int size() {
+        return count.get();
+    }
+
+    void dispatch(PatientRecord record) {
+        if (count.get() == 0) {
+            return;
+        }
+        dispatch(byType.get(record.getRecordType()), record);
+        dispatch(byType.get(ANY_TYPE), record);
+    }
+
+    private static void dispatch(TypeBucket bucket, PatientRecord record) {
+        if (bucket == null) {
+            return;
+        }
+        List<Subscription> forPatient = bucket.byPatient.get(record.getPatientId());
+        if (forPatient != null) {
+            for (Subscription subscription : forPatient) {
+                subscription.deliver(record);
+            }
+        }
+        for (Subscription subscription : bucket.anyPatient) {
+            subscription.deliver(record);
+        }
+    }
+
+    private static String keyOf(String recordType) {
+        return recordType == null ? ANY_TYPE : recordType;
+    }
+}
@@ -0,0 +1,375 @@
+package com.data_management;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the files of an output directory while they are being appended to, e.g. by
+ * {@code FileOutputStrategy}, and ingests only what was added since the last pass.
+ * <p>
+ * A byte offset is kept per file and only complete, newline-terminated lines are consumed, so
+ * a half-written last line is picked up on a later pass. {@code .txt} files are parsed with the
+ * {@code FileOutputStrategy} line format, {@code .ndjson} and {@code .jsonl} files as one JSON
+ * object per line. The file's key (its inode on Unix) is kept with the offset; if a file shrinks
+ * below its offset, or was replaced by another one, it is read again from the start.
+ * </p>
+ * <p>
+ * After each file that made progress the offsets are written to a checkpoint properties file
+ * (to a temporary file first, then moved over the old one), and a new reader started with the
+ * same checkpoint resumes where the previous one stopped. Records are stored before the
+ * checkpoint that covers them is written, so delivery is at-least-once: after a crash the lines
+ * read from the file being processed at that moment are ingested again. For exactly-once
+ * ingestion, register a {@link SampleDeduplicator} on the storage; it drops the replayed samples.
+ * </p>
+ * <p>
+ * The directory is watched with a
+ * {@link WatchService}; if the file system does not support it, the reader falls back to
+ * polling. In both cases a full pass also runs every poll interval, which covers missed events.
+ * </p>
+ */
+public class TailingDataReader implements DataReader {
+    /** Default interval between passes when no change is reported. */
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 1000;
+
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+    private final Path directory;
+    private final Path checkpointFile;
+    private final long pollIntervalMillis;
+    private final Map<String, Long> offsets = new HashMap<>();
+    // Key of the file each offset belongs to, if the file system has file keys
+    private final Map<String, String> fileKeys = new HashMap<>();
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private boolean checkpointLoaded;
+
+    private volatile boolean running;
+    private Thread worker;
+    private volatile WatchService watchService;
+
+    public TailingDataReader(String directory, String checkpointFile) {
+        this(directory, checkpointFile, DEFAULT_POLL_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param directory          the directory to follow
+     * @param checkpointFile     the file where offsets are persisted; created on the first pass
+     * @param pollIntervalMillis the maximum time between two passes
+     */
+    public TailingDataReader(String directory, String checkpointFile, long pollIntervalMillis) {
+        if (pollIntervalMillis <= 0) {
+            throw new IllegalArgumentException("pollIntervalMillis must be positive");
+        }
+        this.directory = Paths.get(directory);
+        this.checkpointFile = Paths.get(checkpointFile);
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    /**
+     * Loads the checkpoint, ingests everything appended since it was written and then keeps
+     * following the directory on a background thread until {@link #stopReading()} is called.
+     *
+     * @throws IOException if the directory does not exist or the checkpoint cannot be read
+     */
+    @Override
+    public synchronized void readData(DataStorage dataStorage) throws IOException {
+        if (dataStorage == null) {
+            throw new IllegalArgumentException("DataStorage cannot be null");
+        }
+        if (running) {
+            throw new IllegalStateException("Already reading");
+        }
+        poll(dataStorage);
+
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("File watching unavailable, polling " + directory + ": " + e.getMessage());
+            closeWatchService();
+        }
+
+        running = true;
+        worker = new Thread(() -> follow(dataStorage), "tailing-reader-" + directory.getFileName());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops following the directory. The checkpoint already holds the offsets of the last file read.
+     */
+    @Override
+    public void stopReading() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = worker;
+            worker = null;
+            closeWatchService();
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(pollIntervalMillis * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs one pass: ingests the complete lines appended to every file since its offset and
+     * writes the checkpoint after each file that was read. On the first call the checkpoint is loaded.
+     *
+     * @return the number of records stored by this pass
+     * @throws IOException if the directory does not exist or the checkpoint cannot be read or written
+     */
+    public synchronized long poll(DataStorage dataStorage) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IOException("Directory not found: " + directory);
+        }
+        if (!checkpointLoaded) {
+            loadCheckpoint();
+            checkpointLoaded = true;
+        }
+
+        File[] files = directory.toFile().listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long records = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (!file.isFile() || !isTailable(name)) {
+                continue;
+            }
+            long offset = offsets.getOrDefault(name, 0L);
+            long[] result;
+            String fileKey;
+            try {
+                fileKey = fileKeyOf(file);
+                String knownKey = fileKeys.get(name);
+                if (offset > 0 && knownKey != null && !knownKey.equals(fileKey)) {
+                    System.err.println("File " + name + " was replaced, reading it from the start");
+                    offset = 0;
+                }
+                result = readAppended(file, offset, dataStorage);
+            } catch (IOException e) {
+                System.err.println("⚠️ Error processing file " + name + ": " + e.getMessage());
+                continue;
+            }
+            records += result[1];
+            if (result[0] != offsets.getOrDefault(name, 0L) || (fileKey != null && !fileKey.equals(fileKeys.get(name)))) {
+                offsets.put(name, result[0]);
+                if (fileKey != null) {
+                    fileKeys.put(name, fileKey);
+                }
+                // the records of this file are stored, so a crash from here on does not replay them
+                saveCheckpoint();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return a copy of the current offset of every file, keyed by file name
+     */
+    public synchronized Map<String, Long> getOffsets() {
+        return new TreeMap<>(offsets);
+    }
+
+    private void follow(DataStorage dataStorage) {
+        while (running) {
+            try {
+                waitForChange();
+                if (running) {
+                    poll(dataStorage);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Error tailing " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Returns when a watch event arrives or the poll interval elapses
+    private void waitForChange() throws InterruptedException {
+        WatchService service = watchService;
+        if (service == null) {
+            Thread.sleep(pollIntervalMillis);
+            return;
+        }
+        WatchKey key = service.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+        if (key != null) {
+            // a single pass covers every file, so the individual events are not needed
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    // Returns {new offset, records stored}
+    private long[] readAppended(File file, long offset, DataStorage dataStorage) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < offset) {
+                System.err.println("File " + file.getName() + " was truncated, reading it from the start");
+                offset = 0;
+            }
+            boolean text = file.getName().endsWith(".txt");
+            BatchingRecordSink sink = new BatchingRecordSink(dataStorage);
+            TextRecordParser textParser = new TextRecordParser();
+            long position = offset;
+            while (position < size) {
+                readBuffer.clear();
+                int read = channel.read(readBuffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                int end = read;
+                while (end > 0 && readBuffer.get(end - 1) != '\n') {
+                    end--;
+                }
+                if (end == 0) {
+                    if (read < readBuffer.capacity()) {
+                        break; // only an incomplete last line is left
+                    }
+                    // a line longer than the buffer: grow it and read again
+                    readBuffer = ByteBuffer.allocate(readBuffer.capacity() * 2);
+                    continue;
+                }
+                if (text) {
+                    textParser.parse(readBuffer, 0, end, sink);
+                } else {
+                    parseJsonLines(readBuffer, 0, end, sink, file);
+                }
+                position += end;
+            }
+            sink.flush();
+            return new long[]{position, sink.getFlushedCount()};
+        }
+    }
+
+    // Parses a block of JSON lines; if it is malformed, parses it line by line and skips the bad lines
+    private static void parseJsonLines(ByteBuffer buffer, int start, int end, RecordSink sink, File file) {
+        List<PatientRecord> records = new ArrayList<>();
+        try {
+            parseJson(buffer, start, end, records);
+        } catch (IOException e) {
+            records.clear();
+            int lineStart = start;
+            for (int i = start; i < end; i++) {
+                if (buffer.get(i) == '\n') {
+                    try {
+                        parseJson(buffer, lineStart, i + 1, records);
+                    } catch (IOException lineError) {
+                        System.err.println("Skipping malformed line in file " + file.getName() + ": " + lineError.getMessage());
+                    }
+                    lineStart = i + 1;
+                }
+            }
+        }
+        for (PatientRecord record : records) {
+            sink.accept(record.getPatientId(), record.getMeasurementValue(), record.getRecordType(), record.getTimestamp());
+        }
+    }
+
+    private static void parseJson(ByteBuffer buffer, int start, int end, List<PatientRecord> out) throws IOException {
+        ByteBuffer lines = buffer.duplicate();
+        lines.limit(end).position(start);
+        Reader reader = new InputStreamReader(new ByteBufferInputStream(lines), StandardCharsets.UTF_8);
+        List<PatientRecord> parsed = new ArrayList<>();
+        new JsonRecordStreamParser(reader).parse((id, value, type, ts) -> parsed.add(new PatientRecord(id, value, type, ts)));
+        out.addAll(parsed);
+    }
+
+    // The file system's key of the file, or null if it has none
+    private static String fileKeyOf(File file) throws IOException {
+        Object key = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+        return key != null ? key.toString() : null;
+    }
+
+    private static boolean isTailable(String name) {
+        return name.endsWith(".txt") || name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    private void loadCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        // each value is "<offset>" or "<offset> <file key>"
+        for (String name : properties.stringPropertyNames()) {
+            String value = properties.getProperty(name);
+            int separator = value.indexOf(' ');
+            try {
+                offsets.put(name, Long.parseLong(separator < 0 ? value : value.substring(0, separator)));
+                if (separator >= 0) {
+                    fileKeys.put(name, value.substring(separator + 1));
+                }
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring invalid checkpoint entry " + name + ": " + properties.getProperty(name));
+            }
+        }
+    }
+
+    private void saveCheckpoint() throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+            String fileKey = fileKeys.get(entry.getKey());
+            properties.setProperty(entry.getKey(), fileKey != null ? entry.getValue() + " " + fileKey : Long.toString(entry.getValue()));
+        }
+        Path parent = checkpointFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, checkpointFile.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Byte offsets of " + directory.toAbsolutePath());
+            }
+            try {
+                Files.move(temp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.err.println("Error closing watch service: " + e.getMessage());
+            }
+            watchService = null;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads the stream of one or more {@code TcpOutputStrategy} endpoints with non-blocking
+ * channels and a single {@link Selector} thread.
+ * <p>
+ * Every connection has its own direct receive buffer. In {@link WireFormat#TEXT} the
+ * {@code patientId,timestamp,label,value} lines are found by scanning the buffer for newlines
+ * and parsed in place with {@link CsvMessageParser#parse(ByteBuffer, int, int)}; an incomplete
+ * last line stays in the buffer until the rest arrives. In {@link WireFormat#BINARY} the buffer
+ * is decoded with a per-connection {@link BinaryRecordCodec.Decoder}, which likewise leaves a
+ * partial frame for the next read.
+ * </p>
+ * <p>
+ * Records are stored through a {@link BatchingRecordSink}, which is flushed after every
+ * selector round, so a batch holds whatever arrived on all connections since the last round.
+ * A connection that is refused or closed by its endpoint is dropped; the reader stops by
+ * itself when no connection is left.
+ * </p>
+ */
+public class TcpDataReader implements DataReader, ReaderMetrics {
+    /** Default size of each connection's receive buffer. */
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+
+    private final List<InetSocketAddress> endpoints;
+    private final WireFormat format;
+    private final int bufferSize;
+
+    private volatile boolean running;
+    private Selector selector;
+    private Thread worker;
+
+    private volatile long storedCount;
+    private volatile long latestTimestamp;
+    private final LongAdder malformed = new LongAdder();
+
+    public TcpDataReader(String host, int port) {
+        this(Collections.singletonList(new InetSocketAddress(host, port)), WireFormat.TEXT);
+    }
+
+    public TcpDataReader(List<InetSocketAddress> endpoints, WireFormat format) {
+        this(endpoints, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param endpoints  the simulator endpoints to read from
+     * @param format     the wire format all endpoints send
+     * @param bufferSize the receive buffer size per connection; must hold at least one line or frame
+     */
+    public TcpDataReader(List<InetSocketAddress> endpoints, WireFormat format, int bufferSize) {
+        if (endpoints == null || endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is required");
+        }
+        if (format == null) {
+            throw new IllegalArgumentException("format cannot be null");
+        }
+        if (bufferSize < 1024) {
+            throw new IllegalArgumentException("bufferSize must be at least 1024 bytes");
+        }
+        this.endpoints = new ArrayList<>(endpoints);
+        this.format = format;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Starts connecting to all endpoints and returns; the records are read on a background thread.
+     *
+     * @throws IOException if the selector or a channel cannot be opened
+     */
+    @Override
+    public synchronized void readData(DataStorage dataStorage) throws IOException {
+        if (dataStorage == null) {
+            throw new IllegalArgumentException("DataStorage cannot be null");
+        }
+        if (running) {
+            throw new IllegalStateException("Already reading");
+        }
+        selector = Selector.open();
+        try {
+            for (InetSocketAddress endpoint : endpoints) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, bufferSize);
+                Connection connection = new Connection(channel, endpoint);
+                if (channel.connect(endpoint)) {
+                    channel.register(selector, SelectionKey.OP_READ, connection);
+                } else {
+                    channel.register(selector, SelectionKey.OP_CONNECT, connection);
+                }
+            }
+        } catch (IOException e) {
+            closeAll();
+            throw e;
+        }
+        running = true;
+        worker = new Thread(() -> run(new BatchingRecordSink(dataStorage)), "tcp-data-reader");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops reading and closes all connections. Records received so far are stored.
+     */
+    @Override
+    public void stopReading() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = worker;
+            worker = null;
+            if (selector != null) {
+                selector.wakeup();
+            }
+        }
+        if (thread != null) {
+            try {
+                thread.join(SELECT_TIMEOUT_MILLIS * 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} while the reader thread is running
+     */
+    @Override
+    public boolean isReading() {
+        return running;
+    }
+
+    @Override
+    public long getStoredCount() {
+        return storedCount;
+    }
+
+    /**
+     * @return the number of malformed lines (text) or corrupt streams (binary) that were skipped
+     */
+    @Override
+    public long getMalformedCount() {
+        return malformed.sum();
+    }
+
+    @Override
+    public long getLatestTimestamp() {
+        return latestTimestamp;
+    }
+
+    private void run(BatchingRecordSink sink) {
+        try {
+            while (running && !selector.keys().isEmpty()) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isConnectable()) {
+                            connection.finishConnect(key);
+                        } else if (key.isReadable()) {
+                            connection.read(key, sink);
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Error reading from " + connection.endpoint + ": " + e.getMessage());
+                        key.cancel();
+                        connection.close();
+                    }
+                }
+                flush(sink);
+            }
+        } catch (IOException e) {
+            System.err.println("Error in TCP reader: " + e.getMessage());
+        } finally {
+            flush(sink);
+            closeAll();
+            running = false;
+        }
+    }
+
+    private void flush(BatchingRecordSink sink) {
+        try {
+            sink.flush();
+        } catch (RuntimeException e) {
+            System.err.println("Error storing TCP records: " + e.getMessage());
+        }
+        storedCount = sink.getFlushedCount();
+        latestTimestamp = sink.getLatestTimestamp();
+    }
+
+    private synchronized void closeAll() {
+        if (selector == null) {
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            ((Connection) key.attachment()).close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Error closing selector: " + e.getMessage());
+        }
+    }
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private final InetSocketAddress endpoint;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        private final CsvMessageParser parser = new CsvMessageParser();
+        private final BinaryRecordCodec.Decoder decoder = new BinaryRecordCodec.Decoder();
+
+        Connection(SocketChannel channel, InetSocketAddress endpoint) {
+            this.channel = channel;
+            this.endpoint = endpoint;
+        }
+
+        void finishConnect(SelectionKey key) throws IOException {
+            if (channel.finishConnect()) {
+                key.interestOps(SelectionKey.OP_READ);
+                System.out.println("Connected to " + endpoint);
+            }
+        }
+
+        void read(SelectionKey key, RecordSink sink) throws IOException {
+            int read;
+            while ((read = channel.read(buffer)) > 0) {
+                buffer.flip();
+                if (format == WireFormat.BINARY) {
+                    decodeFrames(sink);
+                } else {
+                    parseLines(sink, false);
+                }
+                buffer.compact();
+            }
+            if (read < 0) {
+                buffer.flip();
+                if (format == WireFormat.TEXT) {
+                    parseLines(sink, true);
+                } else if (buffer.hasRemaining()) {
+                    System.err.println("Incomplete frame at end of stream from " + endpoint);
+                }
+                System.out.println("Connection closed by " + endpoint);
+                key.cancel();
+                close();
+            }
+        }
+
+        // Parses every complete line from the buffer's position and leaves the rest
+        private void parseLines(RecordSink sink, boolean endOfStream) {
+            int lineStart = buffer.position();
+            int limit = buffer.limit();
+            for (int i = lineStart; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    parseLine(lineStart, i, sink);
+                    lineStart = i + 1;
+                }
+            }
+            if (endOfStream && lineStart < limit) {
+                parseLine(lineStart, limit, sink);
+                lineStart = limit;
+            } else if (lineStart == buffer.position() && limit == buffer.capacity()) {
+                // no newline in a full buffer: the line cannot be completed, drop it
+                malformed.increment();
+                lineStart = limit;
+            }
+            buffer.position(lineStart);
+        }
+
+        private void parseLine(int start, int end, RecordSink sink) {
+            if (end == start || (end == start + 1 && buffer.get(start) == '\r')) {
+                return;
+            }
+            if (parser.parse(buffer, start, end)) {
+                sink.accept(parser.getPatientId(), parser.getValue(), parser.getRecordType(), parser.getTimestamp());
+            } else {
+                malformed.increment();
+            }
+        }
+
+        private void decodeFrames(RecordSink sink) throws IOException {
+            try {
+                decoder.decode(buffer, sink);
+            } catch (IllegalArgumentException e) {
+                // frames are delta-encoded, so nothing after a corrupt frame can be trusted
+                malformed.increment();
+                throw new IOException("Corrupt binary stream: " + e.getMessage(), e);
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing connection to " + endpoint + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.data_management;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads back the {@code <label>.txt} files written by {@code FileOutputStrategy}.
+ * <p>
+ * Each file is memory-mapped in windows of at most {@link #DEFAULT_WINDOW_SIZE} bytes, cut on
+ * line boundaries, and parsed in place by {@link TextRecordParser}; records reach the storage in
+ * batches through {@link BatchingRecordSink}. Lines that do not match the
+ * {@code Patient ID: ..., Timestamp: ..., Label: ..., Data: ...} format are skipped and reported
+ * on standard error, and a file that cannot be read does not stop the others.
+ * </p>
+ * <p>
+ * The gzip segments written by {@code FileOutputStrategy} in compressed mode
+ * ({@code <label>-<n>.txt.gz}) are read too. They cannot be mapped, so they are decompressed
+ * as a stream into a reused buffer of {@link #COMPRESSED_BUFFER_SIZE} bytes and parsed from
+ * there; a segment still being written is read up to its last flushed line.
+ * </p>
+ */
+public class TextFileDataReader implements DataReader {
+    /** Default size of a mapped window; large files are read as several windows. */
+    public static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+    /** Size of the buffer compressed files are decompressed into; must be longer than any line. */
+    public static final int COMPRESSED_BUFFER_SIZE = 1024 * 1024;
+
+    private final String outputDirectory;
+    private final int windowSize;
+    private volatile boolean stopped;
+
+    public TextFileDataReader(String outputDirectory) {
+        this(outputDirectory, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param outputDirectory the directory holding the {@code .txt} files
+     * @param windowSize      the maximum number of bytes mapped at once; must be longer than any line
+     */
+    public TextFileDataReader(String outputDirectory, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        this.outputDirectory = outputDirectory;
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public void readData(DataStorage dataStorage) throws IOException {
+        if (dataStorage == null) {
+            throw new IllegalArgumentException("DataStorage cannot be null");
+        }
+        Path dirPath = Paths.get(outputDirectory);
+        if (!Files.isDirectory(dirPath)) {
+            throw new IOException("Directory not found: " + outputDirectory);
+        }
+
+        stopped = false;
+        File[] files = dirPath.toFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (stopped) {
+                break;
+            }
+            if (file.isFile() && GzipFiles.baseName(file).endsWith(".txt")) {
+                BatchingRecordSink sink = new BatchingRecordSink(dataStorage);
+                try {
+                    readFile(file, sink);
+                } catch (IOException e) {
+                    System.err.println("⚠️ Error processing file " + file.getName() + ": " + e.getMessage());
+                } finally {
+                    sink.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops {@link #readData} after the current window.
+     */
+    @Override
+    public void stopReading() {
+        stopped = true;
+    }
+
+    /**
+     * Maps and parses one file, or decompresses and parses it if it is a {@code .gz} segment,
+     * sending each record to {@code sink}.
+     *
+     * @return the number of records sent to the sink
+     * @throws IOException if the file cannot be read or contains a line longer than the window
+     */
+    public long readFile(File file, RecordSink sink) throws IOException {
+        TextRecordParser parser = new TextRecordParser();
+        long count = GzipFiles.isCompressed(file) ? readCompressed(file, parser, sink) : readMapped(file, parser, sink);
+        if (parser.getSkippedLines() > 0) {
+            System.err.println("Skipped " + parser.getSkippedLines() + " malformed lines in file: " + file.getName());
+        }
+        return count;
+    }
+
+    private long readMapped(File file, TextRecordParser parser, RecordSink sink) throws IOException {
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size && !stopped) {
+                int length = (int) Math.min(windowSize, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = length;
+                if (position + length < size) {
+                    // cut after the last complete line; the rest is mapped again with the next window
+                    while (end > 0 && window.get(end - 1) != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        throw new IOException("Line longer than " + windowSize + " bytes at offset " + position);
+                    }
+                }
+                count += parser.parse(window, 0, end, sink);
+                position += end;
+            }
+        }
+        return count;
+    }
+
+    private long readCompressed(File file, TextRecordParser parser, RecordSink sink) throws IOException {
+        byte[] bytes = new byte[COMPRESSED_BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long count = 0;
+        int filled = 0;
+        boolean truncated;
+        try (InputStream in = GzipFiles.open(file)) {
+            int read;
+            while (!stopped && (read = in.read(bytes, filled, bytes.length - filled)) != -1) {
+                filled += read;
+                int end = filled;
+                while (end > 0 && bytes[end - 1] != '\n') {
+                    end--;
+                }
+                if (end == 0) {
+                    if (filled == bytes.length) {
+                        throw new IOException("Line longer than " + bytes.length + " bytes in " + file.getName());
+                    }
+                    continue;
+                }
+                count += parser.parse(buffer, 0, end, sink);
+                System.arraycopy(bytes, end, bytes, 0, filled - end);
+                filled -= end;
+            }
+            truncated = GzipFiles.isTruncated(in);
+        }
+        // a last line without newline is complete in a finished segment, cut off in a truncated one
+        if (filled > 0 && !stopped && !truncated) {
+            count += parser.parse(buffer, 0, filled, sink);
+        }
+        return count;
+    }
+}
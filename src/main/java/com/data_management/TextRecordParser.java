@@ -0,0 +1,216 @@
+package com.data_management;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses the line format of {@code FileOutputStrategy} straight from bytes:
+ * <pre>Patient ID: 1, Timestamp: 1700000000000, Label: Saturation, Data: 97.0%</pre>
+ * Numbers are decoded in place and labels resolved through {@link RecordTypes}, so no
+ * {@code String} is created per line for the simulator's own labels. {@code Data} may carry a
+ * {@code %} suffix (Saturation), and Alert values are mapped to {@code 1} for
+ * {@code triggered} and {@code 0} for {@code resolved}.
+ * <p>
+ * Lines that do not match the format are skipped and counted. Not thread-safe; use one
+ * instance per thread.
+ * </p>
+ */
+final class TextRecordParser {
+    private static final byte[] PATIENT_ID = ascii("Patient ID:");
+    private static final byte[] TIMESTAMP = ascii("Timestamp:");
+    private static final byte[] LABEL = ascii("Label:");
+    private static final byte[] DATA = ascii("Data:");
+    private static final byte[] TRIGGERED = ascii("triggered");
+    private static final byte[] RESOLVED = ascii("resolved");
+
+    private char[] scratch = new char[64];
+    private long skippedLines;
+
+    // Cursor of the line being parsed; set to -1 when the line does not match
+    private ByteBuffer buffer;
+    private int cursor;
+    private int lineEnd;
+
+    /**
+     * Parses the complete lines in {@code buffer[start, end)} and sends each record to {@code sink}.
+     * The range should end on a line boundary; a trailing line without newline is parsed too.
+     *
+     * @return the number of records sent to the sink
+     */
+    long parse(ByteBuffer buffer, int start, int end, RecordSink sink) {
+        this.buffer = buffer;
+        long count = 0;
+        int lineStart = start;
+        while (lineStart < end) {
+            int newline = lineStart;
+            while (newline < end && buffer.get(newline) != '\n') {
+                newline++;
+            }
+            int contentEnd = newline;
+            if (contentEnd > lineStart && buffer.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+            if (contentEnd > lineStart) {
+                if (parseLine(lineStart, contentEnd, sink)) {
+                    count++;
+                } else {
+                    skippedLines++;
+                }
+            }
+            lineStart = newline + 1;
+        }
+        this.buffer = null;
+        return count;
+    }
+
+    /**
+     * @return the number of non-empty lines that did not match the format
+     */
+    long getSkippedLines() {
+        return skippedLines;
+    }
+
+    private boolean parseLine(int start, int end, RecordSink sink) {
+        cursor = start;
+        lineEnd = end;
+
+        expect(PATIENT_ID);
+        long patientId = readLong();
+        expectComma();
+        expect(TIMESTAMP);
+        long timestamp = readLong();
+        expectComma();
+        expect(LABEL);
+        skipSpaces();
+        int labelStart = cursor;
+        while (cursor >= 0 && cursor < lineEnd && buffer.get(cursor) != ',') {
+            cursor++;
+        }
+        int labelEnd = cursor;
+        expectComma();
+        expect(DATA);
+        skipSpaces();
+        if (cursor < 0 || labelEnd == labelStart || patientId > Integer.MAX_VALUE || patientId < Integer.MIN_VALUE) {
+            return false;
+        }
+
+        int valueEnd = lineEnd;
+        while (valueEnd > cursor && buffer.get(valueEnd - 1) == ' ') {
+            valueEnd--;
+        }
+        double value;
+        if (matches(cursor, valueEnd, TRIGGERED)) {
+            value = 1;
+        } else if (matches(cursor, valueEnd, RESOLVED)) {
+            value = 0;
+        } else {
+            if (valueEnd > cursor && buffer.get(valueEnd - 1) == '%') {
+                valueEnd--;
+            }
+            int length = copyToScratch(cursor, valueEnd);
+            if (length < 0) {
+                return false;
+            }
+            try {
+                value = FastNumbers.parseDouble(scratch, 0, length);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        int labelLength = copyToScratch(labelStart, labelEnd);
+        if (labelLength < 0) {
+            return false;
+        }
+        sink.accept((int) patientId, value, RecordTypes.intern(scratch, 0, labelLength), timestamp);
+        return true;
+    }
+
+    private void expect(byte[] token) {
+        skipSpaces();
+        if (cursor < 0 || !matches(cursor, Math.min(lineEnd, cursor + token.length), token)) {
+            cursor = -1;
+            return;
+        }
+        cursor += token.length;
+    }
+
+    private void expectComma() {
+        if (cursor < 0 || cursor >= lineEnd || buffer.get(cursor) != ',') {
+            cursor = -1;
+            return;
+        }
+        cursor++;
+    }
+
+    private void skipSpaces() {
+        while (cursor >= 0 && cursor < lineEnd && buffer.get(cursor) == ' ') {
+            cursor++;
+        }
+    }
+
+    private long readLong() {
+        skipSpaces();
+        if (cursor < 0) {
+            return 0;
+        }
+        boolean negative = cursor < lineEnd && buffer.get(cursor) == '-';
+        if (negative) {
+            cursor++;
+        }
+        int digitsStart = cursor;
+        long result = 0;
+        while (cursor < lineEnd) {
+            int digit = buffer.get(cursor) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (result > (Long.MAX_VALUE - digit) / 10) {
+                cursor = -1;
+                return 0;
+            }
+            result = result * 10 + digit;
+            cursor++;
+        }
+        if (cursor == digitsStart) {
+            cursor = -1;
+            return 0;
+        }
+        return negative ? -result : result;
+    }
+
+    private boolean matches(int start, int end, byte[] token) {
+        if (end - start != token.length) {
+            return false;
+        }
+        for (int i = 0; i < token.length; i++) {
+            if (buffer.get(start + i) != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Widens ASCII bytes into the scratch buffer; returns -1 for non-ASCII input
+    private int copyToScratch(int start, int end) {
+        int length = end - start;
+        if (length > scratch.length) {
+            scratch = new char[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(start + i);
+            if (b < 0) {
+                return -1;
+            }
+            scratch[i] = (char) b;
+        }
+        return length;
+    }
+
+    private static byte[] ascii(String token) {
+        byte[] bytes = new byte[token.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) token.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,37 @@
+package com.data_management;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits on a {@link RingBuffer} that is empty (consumers) or full (blocking producers).
+ * <ul>
+ *     <li>{@link #BUSY_SPIN}: lowest hand-off latency, keeps a core fully busy</li>
+ *     <li>{@link #YIELD}: spins briefly, then yields the CPU to other runnable threads</li>
+ *     <li>{@link #PARK}: spins briefly, then parks for increasing periods up to a millisecond;
+ *     near-zero CPU when idle, at the cost of wake-up latency</li>
+ * </ul>
+ */
+public enum WaitStrategy {
+    BUSY_SPIN,
+    YIELD,
+    PARK;
+
+    private static final int SPIN_TRIES = 100;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    /**
+     * Waits once.
+     *
+     * @param attempt how many times in a row the caller has found nothing to do, starting at 0
+     */
+    public void idle(int attempt) {
+        if (this == BUSY_SPIN || attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (this == YIELD) {
+            Thread.yield();
+        } else {
+            int shift = Math.min(attempt - SPIN_TRIES, 10);
+            LockSupport.parkNanos(Math.min(1_000L << shift, MAX_PARK_NANOS));
+        }
+    }
+}
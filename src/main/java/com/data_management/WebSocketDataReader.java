@@ -1,11 +1,18 @@
 package com.data_management;
 
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
 import org.java_websocket.handshake.ServerHandshake;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 /**
  * {@code WebSocketDataReader} is an implementation of the {@link DataReader} interface
  * that connects to a WebSocket server and reads real-time patient data.
@@ -18,15 +25,38 @@ import java.net.URISyntaxException;
  * <pre>{@code
  * patientId,timestamp,label,value
  * }</pre>
+ * If the server URI contains {@code ?format=binary}, the server sends {@link BinaryRecordCodec}
+ * frames instead; both kinds of message are accepted.
+ * <p>
+ * A reader constructed with {@code perMessageDeflate} offers the permessage-deflate extension,
+ * which a server from {@code WebSocketOutputStrategy.createDefaultServer(port, true)} accepts;
+ * other servers leave the connection uncompressed.
+ * </p>
+ * <p>
+ * {@link #connect(DataStorage)} starts connecting without waiting, so one thread can start many
+ * readers; {@link #readData(DataStorage)} waits for the connection. Each message is stored with
+ * one {@link DataStorage#addPatientRecords} call, and the reader counts what it stored as
+ * {@link ReaderMetrics}.
+ * </p>
  * <h2>Error Handling</h2>
  * <ul>
  *     <li>If the connection to the server fails or exceeds the specified timeout, an {@link IOException} is thrown.</li>
  *     <li>Malformed messages (e.g., wrong number of fields or invalid number format) are logged but do not crash the application.</li>
  * </ul>
  */
-public class WebSocketDataReader implements DataReader {
+public class WebSocketDataReader implements DataReader, ReaderMetrics {
     private final WebSocketClient client;
     private final int connectionTimeout;
+    private final CsvMessageParser parser = new CsvMessageParser();
+    private final BinaryRecordCodec.Decoder decoder = new BinaryRecordCodec.Decoder();
+    private final CompletableFuture<Void> connected = new CompletableFuture<>();
+    // Set by connect before the client can deliver messages; used on the client's single read thread
+    private volatile BatchingRecordSink sink;
+    // Used by processMessage and processBinaryMessage when called before connect
+    private BatchingRecordSink defaultSink;
+    private volatile long storedCount;
+    private volatile long latestTimestamp;
+    private final LongAdder malformed = new LongAdder();
     /**
      * Constructs a new {@code WebSocketDataReader} with a default connection timeout of 5000 milliseconds.
      *
@@ -43,21 +73,34 @@ public class WebSocketDataReader implements DataReader {
      * @throws IllegalArgumentException if the provided URI is invalid
      */
     public WebSocketDataReader(String serverUri, int connectionTimeout) {
+        this(serverUri, connectionTimeout, false);
+    }
+    /**
+     * Constructs a new {@code WebSocketDataReader} that optionally asks for compressed frames.
+     * @param serverUri         the URI of the WebSocket server
+     * @param connectionTimeout the connection timeout in milliseconds
+     * @param perMessageDeflate whether to offer the permessage-deflate extension
+     * @throws IllegalArgumentException if the provided URI is invalid
+     */
+    public WebSocketDataReader(String serverUri, int connectionTimeout, boolean perMessageDeflate) {
         this.connectionTimeout = connectionTimeout;
-        this.client = createClient(serverUri);
+        this.client = createClient(serverUri, perMessageDeflate);
     }
     /**
      * Creates a WebSocket client that handles connection events and incoming messages
-     * @param serverUri the URI of the WebSocket server
+     * @param serverUri         the URI of the WebSocket server
+     * @param perMessageDeflate whether to offer the permessage-deflate extension
      * @return a configured {@link WebSocketClient} instance
      * @throws IllegalArgumentException if the provided URI is syntactically invalid
      */
-    private WebSocketClient createClient(String serverUri) {
+    private WebSocketClient createClient(String serverUri, boolean perMessageDeflate) {
+        Draft_6455 draft = perMessageDeflate ? new Draft_6455(new PerMessageDeflateExtension()) : new Draft_6455();
         try {
-            return new WebSocketClient(new URI(serverUri)) {
+            return new WebSocketClient(new URI(serverUri), draft) {
                 @Override
                 public void onOpen(ServerHandshake handshakedata) {
                     System.out.println("Connected to WebSocket server");
+                    connected.complete(null);
                 }
 
                 @Override
@@ -65,14 +108,21 @@ public class WebSocketDataReader implements DataReader {
                     processMessage(message);
                 }
 
+                @Override
+                public void onMessage(ByteBuffer bytes) {
+                    processBinaryMessage(bytes);
+                }
+
                 @Override
                 public void onClose(int code, String reason, boolean remote) {
                     System.out.println("Disconnected: " + reason);
+                    connected.completeExceptionally(new IOException("Connection closed: " + reason));
                 }
 
                 @Override
                 public void onError(Exception ex) {
                     System.err.println("WebSocket error: " + ex.getMessage());
+                    connected.completeExceptionally(new IOException("Connection failed: " + ex.getMessage(), ex));
                 }
             };
         } catch (URISyntaxException e) {
@@ -80,26 +130,46 @@ public class WebSocketDataReader implements DataReader {
         }
     }
     /**
-     * Initiates the connection to the WebSocket server and waits until the connection is established
-     * @param dataStorage the storage to which incoming data will be saved (not directly used here)
+     * Starts connecting to the WebSocket server and returns at once. Messages received once
+     * connected are stored in {@code dataStorage}.
+     * @param dataStorage the storage to which incoming data will be saved
+     * @return a future completed when the connection is open, or completed exceptionally with an
+     *         {@link IOException} if it is refused, closed or not open within the configured timeout
+     * @throws IllegalStateException if the reader was started before
+     */
+    public synchronized CompletableFuture<Void> connect(DataStorage dataStorage) {
+        if (dataStorage == null) {
+            throw new IllegalArgumentException("DataStorage cannot be null");
+        }
+        if (sink != null) {
+            throw new IllegalStateException("Already reading");
+        }
+        sink = new BatchingRecordSink(dataStorage);
+        CompletableFuture.delayedExecutor(connectionTimeout, TimeUnit.MILLISECONDS).execute(() ->
+                connected.completeExceptionally(new IOException("Connection failed to open within timeout")));
+        connected.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                client.close();
+            }
+        });
+        client.connect();
+        return connected;
+    }
+    /**
+     * Connects to the WebSocket server and waits until the connection is established
+     * @param dataStorage the storage to which incoming data will be saved
      * @throws IOException if the connection cannot be established within the configured timeout
      */
     @Override
     public void readData(DataStorage dataStorage) throws IOException {
-        client.connect();
-
-        // Wait for connection with timeout
-        long startTime = System.currentTimeMillis();
-        while (!client.isOpen()) {
-            if (System.currentTimeMillis() - startTime > connectionTimeout) {
-                throw new IOException("Connection failed to open within timeout");
-            }
-            try {
-                Thread.sleep(100); // Pause between the connections
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new IOException("Connection interrupted", e);
-            }
+        try {
+            connect(dataStorage).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            client.close();
+            throw new IOException("Connection interrupted", e);
+        } catch (ExecutionException e) {
+            throw (IOException) e.getCause();
         }
     }
 
@@ -107,27 +177,95 @@ public class WebSocketDataReader implements DataReader {
     public void stopReading() {
         client.close();
     } //Stops the WebSocket client and closes the connection to the server.
+
+    /**
+     * @return {@code true} while the connection is open
+     */
+    @Override
+    public boolean isReading() {
+        return client.isOpen();
+    }
+
+    @Override
+    public long getStoredCount() {
+        return storedCount;
+    }
+
+    /**
+     * @return the number of malformed lines (text) or messages (binary) that were skipped
+     */
+    @Override
+    public long getMalformedCount() {
+        return malformed.sum();
+    }
+
+    @Override
+    public long getLatestTimestamp() {
+        return latestTimestamp;
+    }
     /**
      * The message here is expected to be a comma-separated string with four values:
-     * {@code patientId,timestamp,label,value}.
+     * {@code patientId,timestamp,label,value}, or several such lines separated by newlines.
+     * The value may carry a unit suffix such as {@code %}.
      * <p>If the message is malformed or any value cannot be parsed, an error is logged.</p>
+     * <p>Called before {@link #connect} or {@link #readData}, e.g. by a subclass, it stores the
+     * samples in {@link DataStorage#getInstance()}.</p>
      * @param message the message received from the server
      */
     protected void processMessage(String message) { //Parses and processes a message received from the WebSocket server.
+        // The client delivers messages on its single read thread, so one parser is enough.
+        // A batching server sends several newline-separated samples per message.
+        BatchingRecordSink sink = activeSink();
+        int malformedLines = parser.parseLinesTo(message, sink);
+        if (malformedLines > 0) {
+            malformed.add(malformedLines);
+            System.err.println("Error parsing message: " + message);
+        }
+        flush(sink);
+    }
+    /**
+     * Decodes a binary message of one or more {@link BinaryRecordCodec} frames and stores the samples.
+     * A malformed message is logged and dropped. Like {@link #processMessage}, it stores into
+     * {@link DataStorage#getInstance()} when called before the reader was connected.
+     * @param bytes the message received from the server
+     */
+    protected void processBinaryMessage(ByteBuffer bytes) {
+        // every message is a separate frame stream
+        decoder.reset();
+        BatchingRecordSink sink = activeSink();
         try {
-            String[] parts = message.split(",");
-            if (parts.length != 4) {
-                throw new IllegalArgumentException("Invalid message format");
+            decoder.decode(bytes, sink);
+            if (bytes.hasRemaining()) {
+                malformed.increment();
+                System.err.println("Incomplete binary frame of " + bytes.remaining() + " bytes dropped");
             }
-            // Parsing of the components in a message
-            int patientId = Integer.parseInt(parts[0]);
-            long timestamp = Long.parseLong(parts[1]);
-            String label = parts[2];
-            double value = Double.parseDouble(parts[3]);
-            // Saving all the data
-            DataStorage.getInstance().addPatientData(patientId, value, label, timestamp);
-        } catch (NumberFormatException e) {
-            System.err.println("Error parsing message: " + message);
+        } catch (IllegalArgumentException e) {
+            malformed.increment();
+            System.err.println("Error parsing binary message: " + e.getMessage());
+        }
+        flush(sink);
+    }
+
+    private BatchingRecordSink activeSink() {
+        BatchingRecordSink sink = this.sink;
+        if (sink != null) {
+            return sink;
+        }
+        synchronized (this) {
+            if (defaultSink == null) {
+                defaultSink = new BatchingRecordSink(DataStorage.getInstance());
+            }
+            return defaultSink;
+        }
+    }
+
+    private void flush(BatchingRecordSink sink) {
+        try {
+            sink.flush();
+        } catch (RuntimeException e) {
+            System.err.println("Error storing WebSocket records: " + e.getMessage());
         }
+        storedCount = sink.getFlushedCount();
+        latestTimestamp = sink.getLatestTimestamp();
     }
-}
\ No newline at end of file
+}
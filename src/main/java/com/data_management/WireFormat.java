@@ -0,0 +1,45 @@
+package com.data_management;
+
+import java.net.URI;
+
+/**
+ * Encoding of samples on a streaming connection.
+ * <ul>
+ *     <li>{@link #TEXT}: {@code patientId,timestamp,label,value} text messages (the default)</li>
+ *     <li>{@link #BINARY}: {@link BinaryRecordCodec} frames</li>
+ * </ul>
+ * A client selects the format with a {@code format} query parameter, e.g.
+ * {@code ws://localhost:8080/?format=binary}.
+ */
+public enum WireFormat {
+    TEXT,
+    BINARY;
+
+    /**
+     * Reads the {@code format} parameter of a URI or a request path such as {@code /?format=binary}.
+     *
+     * @return the requested format, or {@link #TEXT} if none is given
+     * @throws IllegalArgumentException if the parameter names an unknown format
+     */
+    public static WireFormat fromQuery(String uriOrPath) {
+        if (uriOrPath == null) {
+            return TEXT;
+        }
+        String query = URI.create(uriOrPath).getRawQuery();
+        if (query == null) {
+            return TEXT;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("format=")) {
+                String value = parameter.substring("format=".length());
+                for (WireFormat format : values()) {
+                    if (format.name().equalsIgnoreCase(value)) {
+                        return format;
+                    }
+                }
+                throw new IllegalArgumentException("Unknown wire format: " + value);
+            }
+        }
+        return TEXT;
+    }
+}
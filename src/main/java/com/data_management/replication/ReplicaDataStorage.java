@@ -0,0 +1,281 @@
+package com.data_management.replication;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only follower of a {@link ReplicationPrimary}.
+ * <p>
+ * The replica applies the primary's append log on a background thread and serves
+ * {@link #getRecords} and {@link #getAllPatients} from its own copy, so heavy reads do not
+ * compete with ingestion on the primary. Direct writes are rejected.
+ * </p>
+ *
+ * <h2>Replication lag</h2>
+ * The lag is the time since the replica last knew it had applied everything the primary had
+ * written. While connected and keeping up it stays around the heartbeat interval. Reads fail with
+ * {@link IllegalStateException} when the lag exceeds the bound passed to the constructor, so a
+ * disconnected or overloaded replica never silently serves stale data. While the replica re-syncs
+ * from a snapshot of the primary, its lag is unknown and reads fail as well.
+ */
+public class ReplicaDataStorage extends DataStorage implements Closeable {
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final long maxLagMillis;
+    private final Object progress = new Object();
+    private volatile long appliedSequence;
+    private volatile long primaryHeadSequence;
+    private volatile long caughtUpAtMillis;
+    private volatile Socket socket;
+    private Thread applier;
+
+    /**
+     * Creates an empty replica.
+     *
+     * @param maxLagMillis the largest replication lag, in milliseconds, at which reads are still served
+     */
+    public ReplicaDataStorage(long maxLagMillis) {
+        if (maxLagMillis <= 0) {
+            throw new IllegalArgumentException("maxLagMillis must be positive");
+        }
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    /**
+     * Connects to a primary and starts applying its log from the last applied sequence.
+     * Calling this again after a disconnect resumes where the replica left off, once the
+     * previous connection has finished applying what it received.
+     *
+     * @param host the primary's host
+     * @param port the primary's replication port
+     * @throws IOException           if the connection cannot be established
+     * @throws IllegalStateException if the replica is still connected
+     */
+    public synchronized void connect(String host, int port) throws IOException {
+        if (isConnected()) {
+            throw new IllegalStateException("Replica is already connected; close it first");
+        }
+        if (applier != null) {
+            try {
+                applier.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the previous connection to stop", e);
+            }
+            applier = null;
+        }
+        Socket s = new Socket();
+        s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        s.setTcpNoDelay(true);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+        out.writeLong(appliedSequence);
+        out.flush();
+        this.socket = s;
+
+        applier = new Thread(() -> applyLoop(s), "replica-applier-" + host + ":" + port);
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    /**
+     * Replicas are read-only; data must be written to the primary.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+        throw new UnsupportedOperationException("Replica is read-only; write to the primary instead");
+    }
+
+    /**
+     * Replicas are read-only; data must be written to the primary.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addPatientRecords(List<PatientRecord> records) {
+        throw new UnsupportedOperationException("Replica is read-only; write to the primary instead");
+    }
+
+    @Override
+    public List<PatientRecord> getRecords(int patientId, long startTime, long endTime) {
+        checkLag();
+        return super.getRecords(patientId, startTime, endTime);
+    }
+
+    @Override
+    public List<Patient> getAllPatients() {
+        checkLag();
+        return super.getAllPatients();
+    }
+
+    @Override
+    public List<Patient> getPatientsWithRecords(String recordType, long startTime, long endTime) {
+        checkLag();
+        return super.getPatientsWithRecords(recordType, startTime, endTime);
+    }
+
+    @Override
+    public Map<Integer, List<PatientRecord>> getRecordsByType(String recordType, long startTime, long endTime) {
+        checkLag();
+        return super.getRecordsByType(recordType, startTime, endTime);
+    }
+
+    /**
+     * @return milliseconds since the replica was last known to be fully caught up with the primary
+     */
+    public long getReplicationLagMillis() {
+        if (caughtUpAtMillis == 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, System.currentTimeMillis() - caughtUpAtMillis);
+    }
+
+    /**
+     * @return how many records the replica is behind the primary's last reported head
+     */
+    public long getSequenceLag() {
+        return Math.max(0, primaryHeadSequence - appliedSequence);
+    }
+
+    /**
+     * @return the sequence number of the last record applied
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * @return the configured lag bound in milliseconds
+     */
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+
+    /**
+     * @return {@code true} if the replica currently has a connection to its primary
+     */
+    public boolean isConnected() {
+        Socket s = socket;
+        return s != null && !s.isClosed();
+    }
+
+    /**
+     * Waits until the replica has applied at least the given sequence, e.g. to read its own writes.
+     *
+     * @param sequence      the primary sequence to wait for
+     * @param timeoutMillis the maximum time to wait
+     * @return {@code true} if the sequence was reached in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitSequence(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (progress) {
+            while (appliedSequence < sequence) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                progress.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Disconnects from the primary. Already replicated data stays readable until the lag bound expires.
+     */
+    @Override
+    public void close() throws IOException {
+        Socket s = socket;
+        socket = null;
+        if (s != null) {
+            s.close();
+        }
+    }
+
+    private void applyLoop(Socket s) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()))) {
+            while (true) {
+                byte type = in.readByte();
+                long head = in.readLong();
+                switch (type) {
+                    case ReplicationProtocol.BATCH:
+                        long firstSeq = in.readLong();
+                        List<PatientRecord> batch = readRecords(in);
+                        if (!batch.isEmpty() && firstSeq != appliedSequence + 1) {
+                            throw new IOException("Replication gap: expected seq " + (appliedSequence + 1)
+                                    + " but got " + firstSeq);
+                        }
+                        super.addPatientRecords(batch);
+                        advance(appliedSequence + batch.size(), head);
+                        break;
+                    case ReplicationProtocol.SNAPSHOT_BEGIN:
+                        caughtUpAtMillis = 0;
+                        clear();
+                        break;
+                    case ReplicationProtocol.SNAPSHOT:
+                        super.addPatientRecords(readRecords(in));
+                        break;
+                    case ReplicationProtocol.SNAPSHOT_END:
+                        advance(in.readLong(), head);
+                        break;
+                    default:
+                        throw new IOException("Unknown replication frame type " + type);
+                }
+            }
+        } catch (IOException e) {
+            if (socket == s) {
+                System.err.println("Replication stream lost: " + e.getMessage());
+            }
+        } finally {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+                // already closing
+            }
+        }
+    }
+
+    private static List<PatientRecord> readRecords(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<PatientRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(ReplicationProtocol.readRecord(in));
+        }
+        return records;
+    }
+
+    private void advance(long sequence, long head) {
+        primaryHeadSequence = head;
+        // before waking readers waiting for the sequence, so they find the replica caught up
+        if (sequence >= head) {
+            caughtUpAtMillis = System.currentTimeMillis();
+        }
+        synchronized (progress) {
+            appliedSequence = sequence;
+            progress.notifyAll();
+        }
+    }
+
+    private void checkLag() {
+        long lag = getReplicationLagMillis();
+        if (lag > maxLagMillis) {
+            throw new IllegalStateException("Replica lag " + (lag == Long.MAX_VALUE ? "unknown" : lag + " ms")
+                    + " exceeds bound of " + maxLagMillis + " ms");
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.data_management.replication;
+
+import com.data_management.PatientRecord;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Append-only log of the records stored on a primary {@link com.data_management.DataStorage},
+ * retaining only the most recent entries.
+ * <p>
+ * Every appended record gets the next sequence number, starting at 1, and is written into a
+ * fixed ring of slots, overwriting the entry {@code capacity} sequence numbers older. Appends
+ * are lock-free: a writer claims its sequence number with one atomic increment and publishes
+ * the entry into its slot, so storage threads never wait for each other or for the followers.
+ * The log only keeps references to the {@link PatientRecord} objects that the primary already
+ * holds, so its memory use is fixed by its capacity.
+ * </p>
+ * <p>
+ * Followers read from the sequence they last applied. A follower that has fallen so far behind
+ * that the next entry it needs was overwritten cannot continue from the log, see
+ * {@link #isRetained}; it has to re-sync from a snapshot of the storage. Followers waiting for
+ * new entries are parked and only woken by an append while they wait.
+ * </p>
+ */
+public class ReplicationLog {
+    /** Default number of entries retained. */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final Set<Thread> waiters = ConcurrentHashMap.newKeySet();
+
+    public ReplicationLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of entries retained, rounded up to a power of two
+     */
+    public ReplicationLog(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        slots = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Appends a record and wakes up the followers waiting for new entries.
+     *
+     * @param record the record to append
+     * @return the sequence number assigned to the record
+     */
+    public long append(PatientRecord record) {
+        long sequence = head.incrementAndGet();
+        int slot = (int) sequence & mask;
+        Entry entry = new Entry(sequence, record);
+        while (true) {
+            Entry current = slots.get(slot);
+            if (current != null && current.sequence > sequence) {
+                // lapped while descheduled; the entry is already older than the retained range
+                break;
+            }
+            if (slots.compareAndSet(slot, current, entry)) {
+                break;
+            }
+        }
+        if (!waiters.isEmpty()) {
+            for (Thread waiter : waiters) {
+                LockSupport.unpark(waiter);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence number of the last record appended, or 0 if the log is empty. Its
+     * entry may still be being published.
+     *
+     * @return the head sequence number
+     */
+    public long getHeadSequence() {
+        return head.get();
+    }
+
+    /**
+     * @return the number of entries retained
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @param sequence a sequence number
+     * @return {@code true} if the entry with that sequence number, or the entries before it,
+     *         have not been overwritten yet
+     */
+    public boolean isRetained(long sequence) {
+        return sequence > head.get() - getCapacity();
+    }
+
+    /**
+     * Copies up to {@code max} entries following {@code afterSeq} into {@code out}, waiting up to
+     * {@code timeoutMillis} for at least one to be published. Copying stops early at an entry
+     * that was overwritten; check {@link #isRetained} to tell that apart from an idle log.
+     *
+     * @param afterSeq      the last sequence number the caller already has
+     * @param max           the maximum number of entries to copy
+     * @param timeoutMillis how long to wait when there is nothing new
+     * @param out           the list receiving the entries, in sequence order
+     * @return the head sequence number at the time of the read
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long awaitEntries(long afterSeq, int max, long timeoutMillis,
+                             List<PatientRecord> out) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            long headSeq = head.get();
+            if (copy(afterSeq, max, out) > 0 || !isRetained(afterSeq + 1)) {
+                return headSeq;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return headSeq;
+            }
+            Thread current = Thread.currentThread();
+            waiters.add(current);
+            try {
+                // an append published after this check unparks the thread, so no wakeup is lost
+                if (!isPublished(afterSeq + 1)) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } finally {
+                waiters.remove(current);
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Passes the published entries following {@code afterSeq}, up to {@code upToSeq}, to
+     * {@code action} with their sequence numbers. Entries still being published are skipped.
+     *
+     * @return {@code false} if an entry in the range was already overwritten
+     */
+    public boolean forEach(long afterSeq, long upToSeq, ObjLongConsumer<PatientRecord> action) {
+        for (long sequence = afterSeq + 1; sequence <= upToSeq; sequence++) {
+            Entry entry = slots.get((int) sequence & mask);
+            if (entry != null && entry.sequence > sequence) {
+                return false;
+            }
+            if (entry != null && entry.sequence == sequence) {
+                action.accept(entry.record, sequence);
+            }
+        }
+        return true;
+    }
+
+    private int copy(long afterSeq, int max, List<PatientRecord> out) {
+        int copied = 0;
+        for (long sequence = afterSeq + 1; copied < max; sequence++, copied++) {
+            Entry entry = slots.get((int) sequence & mask);
+            if (entry == null || entry.sequence != sequence) {
+                break;
+            }
+            out.add(entry.record);
+        }
+        return copied;
+    }
+
+    private boolean isPublished(long sequence) {
+        Entry entry = slots.get((int) sequence & mask);
+        return entry != null && entry.sequence >= sequence;
+    }
+
+    private static final class Entry {
+        final long sequence;
+        final PatientRecord record;
+
+        Entry(long sequence, PatientRecord record) {
+            this.sequence = sequence;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.data_management.replication;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+import com.data_management.RecordListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ships the append log of a primary {@link DataStorage} to follower {@link ReplicaDataStorage}s over TCP.
+ * <p>
+ * The primary listens on a local port. Each follower that connects gets its own sender thread
+ * which streams the {@link ReplicationLog} from the follower's last applied sequence and then
+ * keeps tailing it. When there is nothing new, a heartbeat is sent every
+ * {@value ReplicationProtocol#HEARTBEAT_MILLIS} ms so followers can tell they are caught up.
+ * </p>
+ * <p>
+ * The log only retains the most recent records. A follower that connects with, or falls back
+ * to, a sequence the log no longer holds is sent a snapshot of the storage followed by the log
+ * from the snapshot's sequence on; a slow follower never holds back the writers or the log.
+ * </p>
+ * <p>
+ * Records already present in the storage are copied into the log when the primary is created.
+ * </p>
+ */
+public class ReplicationPrimary implements RecordListener, Closeable {
+    private final DataStorage storage;
+    private final ReplicationLog log;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> followers = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    /**
+     * Starts a primary on the loopback interface.
+     *
+     * @param storage the storage whose writes are replicated
+     * @param port    the port to listen on, or 0 to pick a free one
+     * @throws IOException if the server socket cannot be opened
+     */
+    public ReplicationPrimary(DataStorage storage, int port) throws IOException {
+        this(storage, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Starts a primary listening on the given address.
+     *
+     * @param storage the storage whose writes are replicated
+     * @param address the address to bind to
+     * @throws IOException if the server socket cannot be opened
+     */
+    public ReplicationPrimary(DataStorage storage, InetSocketAddress address) throws IOException {
+        this(storage, address, ReplicationLog.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Starts a primary listening on the given address.
+     *
+     * @param storage     the storage whose writes are replicated
+     * @param address     the address to bind to
+     * @param logCapacity the number of records the log retains for followers catching up
+     * @throws IOException if the server socket cannot be opened
+     */
+    public ReplicationPrimary(DataStorage storage, InetSocketAddress address, int logCapacity) throws IOException {
+        this.storage = storage;
+        this.log = new ReplicationLog(logCapacity);
+        for (Patient patient : storage.getAllPatients()) {
+            for (PatientRecord record : storage.copyRecords(patient.getPatientId())) {
+                log.append(record);
+            }
+        }
+        storage.addRecordListener(this);
+
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(address);
+
+        Thread acceptor = new Thread(this::acceptLoop, "replication-accept-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    public void onRecordAdded(PatientRecord record) {
+        log.append(record);
+    }
+
+    /**
+     * @return the port followers should connect to
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the sequence number of the last record written on the primary
+     */
+    public long getHeadSequence() {
+        return log.getHeadSequence();
+    }
+
+    /**
+     * @return the number of followers currently connected
+     */
+    public int getFollowerCount() {
+        return followers.size();
+    }
+
+    /**
+     * Stops accepting followers, disconnects the connected ones and detaches from the storage.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        storage.removeRecordListener(this);
+        serverSocket.close();
+        for (Socket follower : followers) {
+            follower.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                followers.add(socket);
+                Thread sender = new Thread(() -> serveFollower(socket),
+                        "replication-sender-" + socket.getRemoteSocketAddress());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Replication accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serveFollower(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            long sent = in.readLong();
+            if (sent > log.getHeadSequence()) {
+                System.err.println("Follower " + socket.getRemoteSocketAddress()
+                        + " is ahead of the primary (seq " + sent + "), disconnecting");
+                return;
+            }
+            List<PatientRecord> batch = new ArrayList<>(ReplicationProtocol.MAX_BATCH);
+            while (running) {
+                if (!log.isRetained(sent + 1)) {
+                    sent = sendSnapshot(out);
+                    continue;
+                }
+                batch.clear();
+                long head = log.awaitEntries(sent, ReplicationProtocol.MAX_BATCH,
+                        ReplicationProtocol.HEARTBEAT_MILLIS, batch);
+                ReplicationProtocol.writeBatch(out, head, sent + 1, batch);
+                sent += batch.size();
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.out.println("Follower disconnected: " + socket.getRemoteSocketAddress());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followers.remove(socket);
+        }
+    }
+
+    // Sends every record of the storage and returns the sequence the follower continues after
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        while (true) {
+            long base = log.getHeadSequence();
+            Map<Integer, List<PatientRecord>> copies = new LinkedHashMap<>();
+            Set<Integer> pending = new LinkedHashSet<>();
+            for (Patient patient : storage.getAllPatients()) {
+                pending.add(patient.getPatientId());
+            }
+            // records of the copies that are also in the log after base, and so sent from there
+            Set<PatientRecord> inLog = Collections.newSetFromMap(new IdentityHashMap<>());
+            long scanned = Math.max(0, base - log.getCapacity());
+            boolean complete = true;
+            while (complete && !(pending.isEmpty() && scanned > base)) {
+                for (int patientId : pending) {
+                    copies.put(patientId, storage.copyRecords(patientId));
+                }
+                pending.clear();
+                // every record in the copies was appended before this head
+                long upTo = Math.max(log.getHeadSequence(), base + 1);
+                complete = log.forEach(scanned, upTo, (record, sequence) -> {
+                    if (sequence > base) {
+                        inLog.add(record);
+                    } else if (!copies.containsKey(record.getPatientId())) {
+                        // its patient was still being created when the storage was listed
+                        pending.add(record.getPatientId());
+                    }
+                });
+                scanned = upTo;
+            }
+            if (!complete) {
+                continue;
+            }
+
+            ReplicationProtocol.writeSnapshotBegin(out, log.getHeadSequence());
+            List<PatientRecord> chunk = new ArrayList<>(ReplicationProtocol.MAX_BATCH);
+            for (List<PatientRecord> records : copies.values()) {
+                for (PatientRecord record : records) {
+                    if (inLog.contains(record)) {
+                        continue;
+                    }
+                    chunk.add(record);
+                    if (chunk.size() == ReplicationProtocol.MAX_BATCH) {
+                        ReplicationProtocol.writeSnapshot(out, log.getHeadSequence(), chunk);
+                        chunk.clear();
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                ReplicationProtocol.writeSnapshot(out, log.getHeadSequence(), chunk);
+            }
+            ReplicationProtocol.writeSnapshotEnd(out, log.getHeadSequence(), base);
+            return base;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.data_management.replication;
+
+import com.data_management.PatientRecord;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Wire format shared by {@link ReplicationPrimary} and {@link ReplicaDataStorage}.
+ *
+ * <h2>Handshake</h2>
+ * The follower opens a TCP connection and writes one {@code long}: the last sequence number it
+ * has applied (0 for an empty follower).
+ *
+ * <h2>Frames</h2>
+ * The primary then writes frames forever, each starting with {@code byte type | long headSeq}:
+ * <pre>{@code
+ * BATCH           long firstSeq | int count | count x record
+ * SNAPSHOT_BEGIN
+ * SNAPSHOT        int count | count x record
+ * SNAPSHOT_END    long baseSeq
+ * }</pre>
+ * where a record is {@code int patientId, long timestamp, double value, UTF recordType}.
+ * A batch with {@code count == 0} is a heartbeat that only reports the primary's head sequence.
+ * <p>
+ * When the entries a follower needs are no longer in the log, the primary sends a snapshot
+ * instead: on {@code SNAPSHOT_BEGIN} the follower discards its data, the {@code SNAPSHOT} frames
+ * carry the primary's records, and after {@code SNAPSHOT_END} the follower has applied
+ * everything up to {@code baseSeq}. Batches then continue from {@code baseSeq + 1}.
+ * </p>
+ */
+final class ReplicationProtocol {
+    // Largest number of records sent in one frame
+    static final int MAX_BATCH = 4096;
+    // How often an idle primary reports its head sequence
+    static final long HEARTBEAT_MILLIS = 100;
+
+    static final byte BATCH = 0;
+    static final byte SNAPSHOT_BEGIN = 1;
+    static final byte SNAPSHOT = 2;
+    static final byte SNAPSHOT_END = 3;
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeBatch(DataOutputStream out, long headSeq, long firstSeq,
+                           List<PatientRecord> records) throws IOException {
+        out.writeByte(BATCH);
+        out.writeLong(headSeq);
+        out.writeLong(firstSeq);
+        writeRecords(out, records);
+        out.flush();
+    }
+
+    static void writeSnapshotBegin(DataOutputStream out, long headSeq) throws IOException {
+        out.writeByte(SNAPSHOT_BEGIN);
+        out.writeLong(headSeq);
+    }
+
+    static void writeSnapshot(DataOutputStream out, long headSeq, List<PatientRecord> records) throws IOException {
+        out.writeByte(SNAPSHOT);
+        out.writeLong(headSeq);
+        writeRecords(out, records);
+    }
+
+    static void writeSnapshotEnd(DataOutputStream out, long headSeq, long baseSeq) throws IOException {
+        out.writeByte(SNAPSHOT_END);
+        out.writeLong(headSeq);
+        out.writeLong(baseSeq);
+        out.flush();
+    }
+
+    static PatientRecord readRecord(DataInputStream in) throws IOException {
+        int patientId = in.readInt();
+        long timestamp = in.readLong();
+        double value = in.readDouble();
+        String recordType = in.readUTF();
+        return new PatientRecord(patientId, value, recordType, timestamp);
+    }
+
+    private static void writeRecords(DataOutputStream out, List<PatientRecord> records) throws IOException {
+        out.writeInt(records.size());
+        for (PatientRecord record : records) {
+            out.writeInt(record.getPatientId());
+            out.writeLong(record.getTimestamp());
+            out.writeDouble(record.getMeasurementValue());
+            out.writeUTF(record.getRecordType());
+        }
+    }
+}
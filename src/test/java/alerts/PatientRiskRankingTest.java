@@ -0,0 +1,112 @@
+package alerts;
+
+import com.alerts.PatientRiskRanking;
+import com.alerts.PatientRiskRanking.RankedPatient;
+import com.alerts.PatientRiskScorer;
+import com.data_management.DataStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatientRiskRankingTest {
+
+    @Test
+    void testTopKOrderedByDescendingRisk() {
+        PatientRiskRanking ranking = new PatientRiskRanking(2);
+        ranking.update(1, 3);
+        ranking.update(2, 7);
+        ranking.update(3, 5);
+
+        List<RankedPatient> top = ranking.getTopK();
+        assertEquals(2, top.size());
+        assertEquals(2, top.get(0).getPatientId());
+        assertEquals(3, top.get(1).getPatientId());
+    }
+
+    @Test
+    void testUpdatesMovePatientsInAndOutOfTopK() {
+        PatientRiskRanking ranking = new PatientRiskRanking(2);
+        ranking.update(1, 3);
+        ranking.update(2, 7);
+        ranking.update(3, 5);
+
+        ranking.update(1, 9);   // climbs from rest to first
+        ranking.update(2, 0);   // drops out
+        assertEquals(List.of(1, 3), ids(ranking.getTopK()));
+
+        ranking.remove(1);
+        assertEquals(List.of(3, 2), ids(ranking.getTopK()));
+        assertEquals(2, ranking.size());
+    }
+
+    @Test
+    void testMatchesFullSortAfterRandomUpdates() {
+        PatientRiskRanking ranking = new PatientRiskRanking(20);
+        double[] scores = new double[200];
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            int id = random.nextInt(scores.length);
+            scores[id] = random.nextInt(15);
+            ranking.update(id, scores[id]);
+        }
+
+        List<RankedPatient> top = ranking.getTopK();
+        assertEquals(20, top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(scores[top.get(i).getPatientId()], top.get(i).getScore());
+            if (i > 0) {
+                assertTrue(top.get(i - 1).getScore() >= top.get(i).getScore());
+            }
+        }
+        double cutoff = top.get(top.size() - 1).getScore();
+        long better = Arrays.stream(scores).filter(s -> s > cutoff).count();
+        assertTrue(better <= 20);
+    }
+
+    @Test
+    void testScorerIsDrivenByStorageIngest() throws InterruptedException {
+        DataStorage storage = new DataStorage();
+        PatientRiskRanking ranking = PatientRiskScorer.attach(storage, 20);
+
+        storage.addPatientData(1, 98, "Saturation", 1000L);
+        storage.addPatientData(2, 89, "Saturation", 1000L);
+        storage.addPatientData(2, 85, "SystolicPressure", 1000L);
+        storage.addPatientData(3, 93, "Saturation", 1000L);
+        storage.addPatientData(3, 0.2, "ECG", 1000L);
+
+        assertTrue(ranking.awaitSubmitted(5000));
+        assertEquals(List.of(2, 3, 1), ids(ranking.getTopK()));
+        assertEquals(6.0, ranking.getScore(2));
+
+        storage.addPatientData(2, 97, "Saturation", 2000L);
+        storage.addPatientData(2, 120, "SystolicPressure", 2000L);
+        assertTrue(ranking.awaitSubmitted(5000));
+        assertEquals(List.of(3, 1, 2), ids(ranking.getTopK()));
+        ranking.close();
+    }
+
+    @Test
+    void testCloseAppliesPendingScoresAndLaterSubmitsDirectly() throws InterruptedException {
+        PatientRiskRanking ranking = new PatientRiskRanking(2);
+        for (int i = 0; i < 100; i++) {
+            ranking.submit(i % 10, i);
+        }
+        ranking.close();
+        assertEquals(List.of(9, 8), ids(ranking.getTopK()));
+        assertTrue(ranking.awaitSubmitted(0));
+
+        ranking.submit(3, 500);
+        assertEquals(500.0, ranking.getScore(3));
+        assertFalse(Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("risk-ranking-updater") && thread.isAlive()));
+    }
+
+    private static List<Integer> ids(List<RankedPatient> ranked) {
+        return ranked.stream().map(RankedPatient::getPatientId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,132 @@
+package benchmarks;
+
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.TextFileDataReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Disk, I/O and CPU trade-off of {@link FileOutputStrategy}'s compressed mode on simulator data.
+ * <p>
+ * Samples are produced once by the simulator's own generators (ECG, saturation, blood pressure
+ * and blood levels, in the simulator's proportions) and then written with the plain and the
+ * compressed strategy. For each mode the benchmark reports the bytes on disk, the wall and CPU
+ * time of writing, and the wall and CPU time of reading everything back with
+ * {@link TextFileDataReader} into a counting storage.
+ * </p>
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.CompressedFileOutputBenchmark [samples]}.
+ * </p>
+ */
+public class CompressedFileOutputBenchmark {
+    private static final int PATIENTS = 100;
+
+    public static void main(String[] args) throws IOException {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        List<Object[]> lines = generate(samples);
+        for (int round = 0; round < 3; round++) {
+            run("plain", lines, false);
+            run("gzip", lines, true);
+        }
+    }
+
+    private static void run(String mode, List<Object[]> lines, boolean compressed) throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        File dir = Files.createTempDirectory("benchmark").toFile();
+        try {
+            FileOutputStrategy output = new FileOutputStrategy(dir.getAbsolutePath(), compressed);
+            long cpu = threads.getCurrentThreadCpuTime();
+            long start = System.nanoTime();
+            for (Object[] line : lines) {
+                output.output((Integer) line[0], (Long) line[1], (String) line[2], (String) line[3]);
+            }
+            output.close();
+            long writeNanos = System.nanoTime() - start;
+            long writeCpu = threads.getCurrentThreadCpuTime() - cpu;
+
+            long bytes = 0;
+            for (File file : Objects.requireNonNull(dir.listFiles())) {
+                bytes += file.length();
+            }
+
+            CountingStorage storage = new CountingStorage();
+            cpu = threads.getCurrentThreadCpuTime();
+            start = System.nanoTime();
+            new TextFileDataReader(dir.getAbsolutePath()).readData(storage);
+            long readNanos = System.nanoTime() - start;
+            long readCpu = threads.getCurrentThreadCpuTime() - cpu;
+
+            System.out.printf("%-5s %,d samples: %,.1f bytes/sample on disk  write %.2f s (%.2f us CPU/sample)"
+                            + "  read %.2f s (%.2f us CPU/sample)%n",
+                    mode, storage.count.sum(), (double) bytes / lines.size(), writeNanos / 1e9,
+                    writeCpu / 1e3 / lines.size(), readNanos / 1e9, readCpu / 1e3 / lines.size());
+        } finally {
+            for (File file : Objects.requireNonNull(dir.listFiles())) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    // Per second: one ECG and one saturation sample per patient; blood pressure every minute and
+    // blood levels every two minutes, as scheduled by HealthDataSimulator
+    private static List<Object[]> generate(int samples) {
+        List<Object[]> lines = new ArrayList<>(samples);
+        CapturingOutput capture = new CapturingOutput(lines);
+        PatientDataGenerator ecg = new ECGDataGenerator(PATIENTS);
+        PatientDataGenerator saturation = new BloodSaturationDataGenerator(PATIENTS);
+        PatientDataGenerator pressure = new BloodPressureDataGenerator(PATIENTS);
+        PatientDataGenerator levels = new BloodLevelsDataGenerator(PATIENTS);
+        for (int second = 0; lines.size() < samples; second++) {
+            for (int patient = 1; patient <= PATIENTS && lines.size() < samples; patient++) {
+                ecg.generate(patient, capture);
+                saturation.generate(patient, capture);
+                if (second % 60 == 0) {
+                    pressure.generate(patient, capture);
+                }
+                if (second % 120 == 0) {
+                    levels.generate(patient, capture);
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static final class CapturingOutput implements OutputStrategy {
+        private final List<Object[]> lines;
+
+        CapturingOutput(List<Object[]> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public void output(int patientId, long timestamp, String label, String data) {
+            lines.add(new Object[]{patientId, timestamp, label, data});
+        }
+    }
+
+    private static final class CountingStorage extends DataStorage {
+        final LongAdder count = new LongAdder();
+
+        @Override
+        public void addPatientRecords(List<PatientRecord> records) {
+            count.add(records.size());
+        }
+    }
+}
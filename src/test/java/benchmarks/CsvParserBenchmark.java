@@ -0,0 +1,61 @@
+package benchmarks;
+
+import com.data_management.CsvMessageParser;
+
+/**
+ * Compares {@link CsvMessageParser} with the {@code String.split} + {@code parseXxx} code the
+ * WebSocket readers used before, on a mix of simulator messages.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.CsvParserBenchmark [messages]}.
+ * The split-based path cannot parse Saturation values such as {@code 95.0%}; those are counted
+ * as failures there, as they were in the readers.
+ * </p>
+ */
+public class CsvParserBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        String[] messages = new String[1024];
+        for (int i = 0; i < messages.length; i++) {
+            long timestamp = 1_746_796_205_457L + i;
+            switch (i % 4) {
+                case 0: messages[i] = (i % 50 + 1) + "," + timestamp + ",ECG," + Math.sin(i); break;
+                case 1: messages[i] = (i % 50 + 1) + "," + timestamp + ",Saturation," + (90 + i % 10) + ".0%"; break;
+                case 2: messages[i] = (i % 50 + 1) + "," + timestamp + ",SystolicPressure," + (110 + i % 30) + ".0"; break;
+                default: messages[i] = (i % 50 + 1) + "," + timestamp + ",Cholesterol," + (180 + i % 40) / 1.5; break;
+            }
+        }
+
+        CsvMessageParser parser = new CsvMessageParser();
+        for (int round = 0; round < ROUNDS; round++) {
+            double sum = 0;
+            int failures = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                String[] parts = messages[i & 1023].split(",", 4);
+                try {
+                    sum += Integer.parseInt(parts[0]) + Long.parseLong(parts[1]) + parts[2].length()
+                            + Double.parseDouble(parts[3]);
+                } catch (NumberFormatException e) {
+                    failures++;
+                }
+            }
+            long split = System.nanoTime() - start;
+
+            int rejected = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                if (parser.parse(messages[i & 1023])) {
+                    sum += parser.getPatientId() + parser.getTimestamp() + parser.getTypeCode() + parser.getValue();
+                } else {
+                    rejected++;
+                }
+            }
+            long fast = System.nanoTime() - start;
+
+            System.out.printf("round %d  split: %.0f ns/msg (%d failed)  CsvMessageParser: %.0f ns/msg (%d failed)  [%s]%n",
+                    round, (double) split / count, failures, (double) fast / count, rejected, sum > 0 ? "ok" : "");
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package benchmarks;
+
+import com.cardio_generator.outputs.InProcessOutputStrategy;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SlowClientPolicy;
+import com.cardio_generator.outputs.TcpOutputStrategy;
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.TcpDataReader;
+import com.data_management.WebSocketDataReader;
+import com.data_management.WireFormat;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the ways the simulator can feed a {@link DataStorage} in the same process: the
+ * in-process strategy, TCP in text and binary format, and WebSocket with batched text messages.
+ * <p>
+ * One thread outputs typed samples the way the generators do, through
+ * {@link OutputStrategy#output(int, long, String, double)}; the text strategies format them, TCP
+ * binary encodes the doubles into frames, and the in-process one hands them over as records.
+ * The storage only counts what it receives, so the figures cover formatting, framing, socket I/O
+ * and parsing, and the CPU time is that of all threads of the process.
+ * </p>
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<deps> benchmarks.InProcessTransportBenchmark [samples]}.
+ * </p>
+ */
+public class InProcessTransportBenchmark {
+    private static final String[] LABELS = {"ECG", "Saturation", "SystolicPressure", "Cholesterol"};
+
+    public static void main(String[] args) throws Exception {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        PrintStream out = System.out;
+        for (int round = 0; round < 3; round++) {
+            // the strategies log connections on standard output
+            System.setOut(new PrintStream(PrintStream.nullOutputStream()));
+            try {
+                String[] results = {inProcess(samples), tcp(WireFormat.TEXT, samples), tcp(WireFormat.BINARY, samples),
+                        webSocket(samples)};
+                for (String result : results) {
+                    out.println(result);
+                }
+            } finally {
+                System.setOut(out);
+            }
+        }
+    }
+
+    private static String inProcess(int samples) {
+        CountingStorage storage = new CountingStorage();
+        InProcessOutputStrategy strategy = new InProcessOutputStrategy(storage);
+        try {
+            return measure("in-process", strategy, storage, 0, samples);
+        } finally {
+            strategy.close();
+        }
+    }
+
+    private static String tcp(WireFormat format, int samples) throws Exception {
+        int port = freePort();
+        TcpOutputStrategy strategy = new TcpOutputStrategy(port, format);
+        CountingStorage storage = new CountingStorage();
+        TcpDataReader reader = new TcpDataReader(
+                Collections.singletonList(new InetSocketAddress("localhost", port)), format);
+        reader.readData(storage);
+        try {
+            // samples are dropped until the server has accepted the reader
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (storage.count.sum() == 0 && System.nanoTime() < deadline) {
+                strategy.output(0, 0, "ECG", 0.0);
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            return measure("tcp " + format.name().toLowerCase(), strategy, storage, storage.count.sum(), samples);
+        } finally {
+            reader.stopReading();
+        }
+    }
+
+    private static String webSocket(int samples) throws Exception {
+        int port = freePort();
+        WebSocketOutputStrategy strategy = new WebSocketOutputStrategy(WebSocketOutputStrategy.createDefaultServer(port),
+                256, 10, WebSocketOutputStrategy.DEFAULT_REPLAY_CAPACITY, SlowClientPolicy.DROP_OLDEST, samples);
+        CountingStorage storage = new CountingStorage();
+        WebSocketDataReader reader = null;
+        try {
+            for (int attempt = 0; reader == null; attempt++) {
+                WebSocketDataReader candidate = new WebSocketDataReader("ws://localhost:" + port + "/", 1000);
+                try {
+                    candidate.readData(storage);
+                    reader = candidate;
+                } catch (IOException e) {
+                    if (attempt == 50) {
+                        throw e;
+                    }
+                    Thread.sleep(50);
+                }
+            }
+            Thread.sleep(200);
+            return measure("websocket batched text", strategy, storage, 0, samples);
+        } finally {
+            if (reader != null) {
+                reader.stopReading();
+            }
+            strategy.getServer().stop(1000);
+        }
+    }
+
+    private static String measure(String name, OutputStrategy strategy, CountingStorage storage, long before,
+                                  int samples) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuStart = totalCpuNanos(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < samples; i++) {
+            strategy.output(i % 100, 1_700_000_000_000L + i * 10L, LABELS[i & 3], 60 + (i % 40) * 0.25);
+        }
+        if (strategy instanceof WebSocketOutputStrategy) {
+            ((WebSocketOutputStrategy) strategy).flush();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (storage.count.sum() - before < samples && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        long elapsed = System.nanoTime() - start;
+        long cpu = totalCpuNanos(threads) - cpuStart;
+        long delivered = Math.max(1, storage.count.sum() - before);
+        return String.format("%-23s %,11.0f samples/s, %6.2f us CPU/sample (%d/%d)",
+                name, delivered * 1e9 / elapsed, cpu / 1e3 / delivered, delivered, samples);
+    }
+
+    private static long totalCpuNanos(ThreadMXBean threads) {
+        long total = 0;
+        for (long id : threads.getAllThreadIds()) {
+            long cpu = threads.getThreadCpuTime(id);
+            if (cpu > 0) {
+                total += cpu;
+            }
+        }
+        return total;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static final class CountingStorage extends DataStorage {
+        final LongAdder count = new LongAdder();
+
+        @Override
+        public void addPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+            count.increment();
+        }
+
+        @Override
+        public void addPatientRecords(List<PatientRecord> records) {
+            count.add(records.size());
+        }
+    }
+}
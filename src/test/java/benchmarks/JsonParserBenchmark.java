@@ -0,0 +1,79 @@
+package benchmarks;
+
+import com.data_management.DataReaderClass;
+import com.data_management.PatientRecord;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Compares {@link DataReaderClass#parseFile} (whole {@code JSONArray} tree) with the streaming
+ * {@link DataReaderClass#streamFile(File, com.data_management.RecordSink)} path on a generated
+ * export.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<org.json jar> benchmarks.JsonParserBenchmark [records]}.
+ * Each round reports throughput and the heap in use right after parsing; the tree parser keeps
+ * every record alive until it returns, the streaming parser does not.
+ * </p>
+ */
+public class JsonParserBenchmark {
+    private static final String[] TYPES = {"ECG", "Saturation", "SystolicPressure", "DiastolicPressure"};
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        File file = File.createTempFile("benchmark", ".json");
+        file.deleteOnExit();
+        writeExport(file, records);
+        System.out.printf("%d records, %.1f MB%n", records, file.length() / 1e6);
+
+        DataReaderClass reader = new DataReaderClass(file.getParent());
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<PatientRecord> parsed = reader.parseFile(file);
+            long tree = System.nanoTime() - start;
+            long treeHeap = usedHeap();
+            int treeCount = parsed.size();
+            parsed = null;
+
+            long[] checksum = new long[1];
+            start = System.nanoTime();
+            long streamCount = reader.streamFile(file, (id, value, type, ts) -> checksum[0] += id);
+            long stream = System.nanoTime() - start;
+            long streamHeap = usedHeap();
+
+            System.out.printf("round %d  JSONTokener: %,d rec in %d ms (%,.0f rec/s, heap %d MB)"
+                            + "  streaming: %,d rec in %d ms (%,.0f rec/s, heap %d MB)%n",
+                    round, treeCount, tree / 1_000_000, treeCount / (tree / 1e9), treeHeap >> 20,
+                    streamCount, stream / 1_000_000, streamCount / (stream / 1e9), streamHeap >> 20);
+        }
+    }
+
+    private static void writeExport(File file, int records) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("[\n");
+            long timestamp = 1_700_000_000_000L;
+            for (int i = 0; i < records; i++) {
+                if (i > 0) {
+                    writer.write(",\n");
+                }
+                writer.write("{\"patientId\": " + (i % 500 + 1)
+                        + ", \"recordType\": \"" + TYPES[i % TYPES.length]
+                        + "\", \"measurementValue\": " + (60 + (i % 4000) / 100.0)
+                        + ", \"timestamp\": " + (timestamp + i) + "}");
+            }
+            writer.write("\n]\n");
+        }
+    }
+
+    // Live heap after a full collection, so garbage left by the parser is not counted
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,104 @@
+package benchmarks;
+
+import com.alerts.Alert;
+import com.alerts.AlertGenerator;
+import com.data_management.PatientRecord;
+import com.data_management.ShardedDataStorage;
+import com.data_management.WaitStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of {@link ShardedDataStorage} with alert evaluation, from one shard up to one shard
+ * per core.
+ * <p>
+ * Pre-built batches of saturation, blood pressure and ECG samples for many patients are sent by
+ * two producer threads; every shard evaluates the patients of each drain with its own
+ * {@link AlertGenerator}, whose alerts are only counted. The figures cover ingestion and
+ * evaluation until every shard has caught up, so with enough cores they grow with the shard
+ * count until the producers or the memory bandwidth become the limit.
+ * </p>
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.ShardScalingBenchmark [maxShards] [patients] [samplesPerPatient]}.
+ * </p>
+ */
+public class ShardScalingBenchmark {
+    private static final String[] LABELS = {"Saturation", "SystolicPressure", "DiastolicPressure", "ECG"};
+    private static final int BATCH_SIZE = 256;
+    private static final int PRODUCERS = 2;
+
+    public static void main(String[] args) throws Exception {
+        int maxShards = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int patients = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int samplesPerPatient = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        List<List<PatientRecord>> batches = batches(patients, samplesPerPatient);
+        for (int round = 0; round < 3; round++) {
+            for (int shards = 1; shards <= maxShards; shards = shards < maxShards ? Math.min(shards * 2, maxShards) : shards + 1) {
+                run(shards, batches, (long) patients * samplesPerPatient);
+            }
+        }
+    }
+
+    private static void run(int shardCount, List<List<PatientRecord>> batches, long total) throws Exception {
+        LongAdder alerts = new LongAdder();
+        ShardedDataStorage storage = new ShardedDataStorage(shardCount, ShardedDataStorage.DEFAULT_QUEUE_CAPACITY,
+                WaitStrategy.PARK, () -> new AlertGenerator() {
+                    @Override
+                    protected void triggerAlert(Alert alert) {
+                        alerts.increment();
+                    }
+                }::evaluateData);
+        long start = System.nanoTime();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int first = p;
+            Thread producer = new Thread(() -> {
+                for (int i = first; i < batches.size(); i += PRODUCERS) {
+                    storage.addPatientRecords(batches.get(i));
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        storage.flush().get(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%2d shards: %,d samples in %.2f s, %,.0f samples/s (%,d alerts)%n",
+                shardCount, storage.getStoredCount(), elapsed / 1e9, storage.getStoredCount() * 1e9 / elapsed,
+                alerts.sum());
+        if (storage.getStoredCount() != total) {
+            System.out.println("  expected " + total + " samples");
+        }
+        storage.close();
+    }
+
+    // Recent timestamps, so the alert generator's ten-minute window covers them
+    private static List<List<PatientRecord>> batches(int patients, int samplesPerPatient) {
+        Random random = new Random(42);
+        long base = System.currentTimeMillis() - 60_000;
+        List<List<PatientRecord>> batches = new ArrayList<>();
+        List<PatientRecord> batch = new ArrayList<>(BATCH_SIZE);
+        for (int sample = 0; sample < samplesPerPatient; sample++) {
+            for (int patient = 1; patient <= patients; patient++) {
+                String label = LABELS[(patient + sample) & 3];
+                double value = label.equals("Saturation") ? 94 + random.nextInt(6)
+                        : label.equals("ECG") ? random.nextGaussian() : 80 + random.nextInt(40);
+                batch.add(new PatientRecord(patient, value, label, base + sample * 100L));
+                if (batch.size() == BATCH_SIZE) {
+                    batches.add(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,124 @@
+package benchmarks;
+
+import com.data_management.BinaryRecordCodec;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.TcpDataReader;
+import com.data_management.WireFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sustained samples per second of {@link TcpDataReader} on loopback, with several endpoints
+ * streaming pre-encoded samples as fast as the sockets allow.
+ * <p>
+ * The storage only counts the batches it receives, so the figures measure the reader (socket
+ * reads, framing, parsing and batching), not {@link DataStorage} itself.
+ * </p>
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.TcpReaderBenchmark [endpoints] [samplesPerEndpoint]}.
+ * </p>
+ */
+public class TcpReaderBenchmark {
+    private static final String[] LABELS = {"ECG", "Saturation", "SystolicPressure", "Cholesterol"};
+    private static final int BLOCK_SAMPLES = 16 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int endpoints = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int samples = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        for (int round = 0; round < 3; round++) {
+            for (WireFormat format : WireFormat.values()) {
+                run(format, endpoints, samples);
+            }
+        }
+    }
+
+    private static void run(WireFormat format, int endpointCount, int samplesPerEndpoint) throws Exception {
+        byte[] block = format == WireFormat.TEXT ? textBlock() : binaryBlock();
+        int blocks = samplesPerEndpoint / BLOCK_SAMPLES;
+        long expected = (long) blocks * BLOCK_SAMPLES * endpointCount;
+
+        List<ServerSocket> servers = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < endpointCount; i++) {
+            ServerSocket server = new ServerSocket(0);
+            servers.add(server);
+            addresses.add(new InetSocketAddress("localhost", server.getLocalPort()));
+        }
+        CountingStorage storage = new CountingStorage();
+        TcpDataReader reader = new TcpDataReader(addresses, format);
+        reader.readData(storage);
+
+        long start = System.nanoTime();
+        List<Thread> senders = new ArrayList<>();
+        for (ServerSocket server : servers) {
+            Thread sender = new Thread(() -> send(server, block, blocks));
+            sender.start();
+            senders.add(sender);
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        while (reader.isReading()) {
+            Thread.sleep(1);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-6s %d endpoints: %,d samples in %.2f s, %,.0f samples/s (%d malformed)%n",
+                format, endpointCount, storage.count.sum(), elapsed / 1e9,
+                storage.count.sum() * 1e9 / elapsed, reader.getMalformedCount());
+        if (storage.count.sum() != expected) {
+            System.out.println("  expected " + expected + " samples");
+        }
+    }
+
+    private static void send(ServerSocket server, byte[] block, int blocks) {
+        try (ServerSocket s = server; Socket socket = s.accept()) {
+            OutputStream out = socket.getOutputStream();
+            for (int i = 0; i < blocks; i++) {
+                out.write(block);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] textBlock() {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < BLOCK_SAMPLES; i++) {
+            lines.append(i % 100).append(',').append(1_700_000_000_000L + i).append(',')
+                    .append(LABELS[i & 3]).append(',').append(i * 0.25).append('\n');
+        }
+        return lines.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // A block decodes on its own after the first, since deltas only depend on the previous frame
+    private static byte[] binaryBlock() {
+        BinaryRecordCodec.Encoder encoder = new BinaryRecordCodec.Encoder();
+        ByteBuffer frames = ByteBuffer.allocate(BLOCK_SAMPLES * BinaryRecordCodec.FULL_FRAME_SIZE);
+        for (int i = 0; i < BLOCK_SAMPLES; i++) {
+            encoder.encode(i % 100, 1_700_000_000_000L + i, LABELS[i & 3], i * 0.25, frames);
+        }
+        byte[] block = new byte[frames.position()];
+        frames.flip();
+        frames.get(block);
+        return block;
+    }
+
+    private static final class CountingStorage extends DataStorage {
+        final LongAdder count = new LongAdder();
+
+        @Override
+        public void addPatientRecords(List<PatientRecord> records) {
+            count.add(records.size());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import com.data_management.DataStorage;
+import com.data_management.TextFileDataReader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Measures {@link TextFileDataReader} on a generated {@code FileOutputStrategy}-style directory,
+ * both parsing alone (counting sink) and end to end into a {@link DataStorage}.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.TextFileReaderBenchmark [lines]}.
+ * </p>
+ */
+public class TextFileReaderBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        File dir = Files.createTempDirectory("benchmark").toFile();
+        File ecg = new File(dir, "ECG.txt");
+        File saturation = new File(dir, "Saturation.txt");
+        write(ecg, lines / 2, "ECG", false);
+        write(saturation, lines / 2, "Saturation", true);
+        long bytes = ecg.length() + saturation.length();
+        System.out.printf("%d lines, %.1f MB%n", lines, bytes / 1e6);
+
+        TextFileDataReader reader = new TextFileDataReader(dir.getAbsolutePath());
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                long[] sum = new long[1];
+                long start = System.nanoTime();
+                long count = reader.readFile(ecg, (id, value, type, ts) -> sum[0] += id)
+                        + reader.readFile(saturation, (id, value, type, ts) -> sum[0] += id);
+                long parse = System.nanoTime() - start;
+
+                DataStorage storage = new DataStorage();
+                start = System.nanoTime();
+                reader.readData(storage);
+                long store = System.nanoTime() - start;
+
+                System.out.printf("round %d  parse only: %,d lines, %.0f MB/s  into DataStorage: %.0f MB/s%n",
+                        round, count, bytes / (parse / 1e9) / 1e6, bytes / (store / 1e9) / 1e6);
+            }
+        } finally {
+            ecg.delete();
+            saturation.delete();
+            dir.delete();
+        }
+    }
+
+    private static void write(File file, int lines, String label, boolean percent) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            long timestamp = 1_746_796_205_457L;
+            for (int i = 0; i < lines; i++) {
+                String data = percent ? (90 + i % 10) + ".0%" : Double.toString(Math.sin(i / 10.0));
+                writer.write("Patient ID: " + (i % 100 + 1) + ", Timestamp: " + (timestamp + i)
+                        + ", Label: " + label + ", Data: " + data + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package benchmarks;
+
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Samples per second delivered to many WebSocket clients, and the CPU time spent per sample,
+ * with one message per sample against micro-batched messages.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<dependencies> benchmarks.WebSocketBroadcastBenchmark [clients] [samples]}.
+ * CPU time is the sum over all threads of this process, clients included.
+ * </p>
+ */
+public class WebSocketBroadcastBenchmark {
+    private static final String[] LABELS = {"ECG", "Saturation", "SystolicPressure", "Cholesterol"};
+
+    public static void main(String[] args) throws Exception {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int samples = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        PrintStream out = System.out;
+        // the unbatched strategy logs every message
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            out.println(run("unbatched", new WebSocketOutputStrategy(freePort()), clientCount, samples));
+            out.println(run("batched (256 / 10 ms)", new WebSocketOutputStrategy(freePort(), 256, 10), clientCount, samples));
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static String run(String name, WebSocketOutputStrategy strategy, int clientCount, int samples) throws Exception {
+        int port = strategy.getServer().getPort();
+        LongAdder received = new LongAdder();
+        List<CountingClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < clientCount; i++) {
+                clients.add(connect(port, received));
+            }
+            Thread.sleep(200);
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long cpuStart = totalCpuNanos(threads);
+            long start = System.nanoTime();
+            for (int i = 0; i < samples; i++) {
+                strategy.output(i % 100, 1_700_000_000_000L + i, LABELS[i & 3], Double.toString(i * 0.25));
+            }
+            strategy.flush();
+            long expected = (long) samples * clientCount;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (received.sum() < expected && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            long elapsed = System.nanoTime() - start;
+            long cpu = totalCpuNanos(threads) - cpuStart;
+            long delivered = received.sum();
+            return String.format("%-22s %d clients: %,12.0f samples/s delivered, %6.2f us CPU per delivered sample (%d/%d)",
+                    name, clientCount, delivered * 1e9 / elapsed, cpu / 1e3 / Math.max(1, delivered), delivered, expected);
+        } finally {
+            for (CountingClient client : clients) {
+                client.closeBlocking();
+            }
+            strategy.getServer().stop(1000);
+        }
+    }
+
+    private static CountingClient connect(int port, LongAdder received) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            CountingClient client = new CountingClient(new URI("ws://localhost:" + port + "/"), received);
+            if (client.connectBlocking(1, TimeUnit.SECONDS)) {
+                return client;
+            }
+            if (attempt == 50) {
+                throw new IllegalStateException("Server on port " + port + " did not start");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static long totalCpuNanos(ThreadMXBean threads) {
+        long total = 0;
+        for (long id : threads.getAllThreadIds()) {
+            long cpu = threads.getThreadCpuTime(id);
+            if (cpu > 0) {
+                total += cpu;
+            }
+        }
+        return total;
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static final class CountingClient extends WebSocketClient {
+        private final LongAdder received;
+
+        CountingClient(URI uri, LongAdder received) {
+            super(uri);
+            this.received = received;
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            int lines = 1;
+            for (int i = 0; i < message.length(); i++) {
+                if (message.charAt(i) == '\n') {
+                    lines++;
+                }
+            }
+            received.add(lines);
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+    }
+}
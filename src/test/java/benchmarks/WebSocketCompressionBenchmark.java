@@ -0,0 +1,193 @@
+package benchmarks;
+
+import com.cardio_generator.outputs.SlowClientPolicy;
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import com.data_management.BinaryRecordCodec;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bytes on the wire and CPU time per delivered sample with and without permessage-deflate, for
+ * text and binary messages, one sample per message and micro-batched.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<dependencies> benchmarks.WebSocketCompressionBenchmark [clients] [samples]}.
+ * Bytes are counted on the clients' sockets, handshake included. CPU time is the sum over all
+ * threads of this process, clients included, so it covers compression and decompression.
+ * Client queues hold every message, so nothing is dropped.
+ * </p>
+ */
+public class WebSocketCompressionBenchmark {
+    private static final String[] LABELS = {"ECG", "Saturation", "SystolicPressure", "Cholesterol"};
+
+    public static void main(String[] args) throws Exception {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int samples = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        PrintStream out = System.out;
+        // the server logs every connection
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (String format : new String[]{"text", "binary"}) {
+                for (int batch : new int[]{1, 256}) {
+                    for (boolean deflate : new boolean[]{false, true}) {
+                        out.println(run(format, batch, deflate, clientCount, samples));
+                    }
+                }
+            }
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static String run(String format, int batch, boolean deflate, int clientCount, int samples) throws Exception {
+        int port = freePort();
+        WebSocketOutputStrategy strategy = new WebSocketOutputStrategy(
+                WebSocketOutputStrategy.createDefaultServer(port, deflate), batch, 10,
+                WebSocketOutputStrategy.DEFAULT_REPLAY_CAPACITY, SlowClientPolicy.DROP_OLDEST, samples);
+        LongAdder received = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        List<CountingClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < clientCount; i++) {
+                clients.add(connect(port, "/?format=" + format, deflate, received, bytes));
+            }
+            Thread.sleep(200);
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long bytesStart = bytes.sum();
+            long cpuStart = totalCpuNanos(threads);
+            long start = System.nanoTime();
+            for (int i = 0; i < samples; i++) {
+                strategy.output(i % 100, 1_700_000_000_000L + i * 10L, LABELS[i & 3], Double.toString(60 + (i % 40) * 0.25));
+            }
+            strategy.flush();
+            long expected = (long) samples * clientCount;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (received.sum() < expected && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            long elapsed = System.nanoTime() - start;
+            long cpu = totalCpuNanos(threads) - cpuStart;
+            long delivered = Math.max(1, received.sum());
+            return String.format("%-6s %-10s %-8s %7.2f bytes/sample, %6.2f us CPU/sample, %,11.0f samples/s (%d/%d)",
+                    format, batch == 1 ? "unbatched" : "batch " + batch, deflate ? "deflate" : "plain",
+                    (double) (bytes.sum() - bytesStart) / delivered, cpu / 1e3 / delivered,
+                    delivered * 1e9 / elapsed, received.sum(), expected);
+        } finally {
+            for (CountingClient client : clients) {
+                client.closeBlocking();
+            }
+            strategy.getServer().stop(1000);
+        }
+    }
+
+    private static CountingClient connect(int port, String path, boolean deflate, LongAdder received,
+                                          LongAdder bytes) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            CountingClient client = new CountingClient(new URI("ws://localhost:" + port + path), deflate, received);
+            client.setSocket(new CountingSocket(bytes));
+            if (client.connectBlocking(1, TimeUnit.SECONDS)) {
+                return client;
+            }
+            if (attempt == 50) {
+                throw new IllegalStateException("Server on port " + port + " did not start");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static long totalCpuNanos(ThreadMXBean threads) {
+        long total = 0;
+        for (long id : threads.getAllThreadIds()) {
+            long cpu = threads.getThreadCpuTime(id);
+            if (cpu > 0) {
+                total += cpu;
+            }
+        }
+        return total;
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // Counts the bytes the client reads from the network
+    private static final class CountingSocket extends Socket {
+        private final LongAdder bytes;
+
+        CountingSocket(LongAdder bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int read = super.read(b, off, len);
+                    if (read > 0) {
+                        bytes.add(read);
+                    }
+                    return read;
+                }
+            };
+        }
+    }
+
+    private static final class CountingClient extends WebSocketClient {
+        private final LongAdder received;
+        private final BinaryRecordCodec.Decoder decoder = new BinaryRecordCodec.Decoder();
+
+        CountingClient(URI uri, boolean deflate, LongAdder received) {
+            super(uri, deflate ? new Draft_6455(new PerMessageDeflateExtension()) : new Draft_6455());
+            this.received = received;
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            int lines = 1;
+            for (int i = 0; i < message.length(); i++) {
+                if (message.charAt(i) == '\n') {
+                    lines++;
+                }
+            }
+            received.add(lines);
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+            received.add(decoder.decode(bytes, (id, value, type, ts) -> { }));
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+    }
+}
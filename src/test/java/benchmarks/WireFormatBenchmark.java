@@ -0,0 +1,88 @@
+package benchmarks;
+
+import com.data_management.BinaryRecordCodec;
+import com.data_management.CsvMessageParser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bytes and CPU time per sample for the text wire format (format + parse) against binary
+ * frames (encode + decode), one sample per message as WebSocket sends them and as a delta-encoded
+ * stream as TCP sends them.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.WireFormatBenchmark [samples]}.
+ * </p>
+ */
+public class WireFormatBenchmark {
+    private static final String[] LABELS = {"ECG", "Saturation", "SystolicPressure", "Cholesterol"};
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        CsvMessageParser parser = new CsvMessageParser();
+        BinaryRecordCodec.Encoder encoder = new BinaryRecordCodec.Encoder();
+        BinaryRecordCodec.Decoder decoder = new BinaryRecordCodec.Decoder();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        double[] sink = new double[1];
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long textBytes = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                String message = String.format("%d,%d,%s,%s", patient(i), timestamp(i), LABELS[i & 3], Double.toString(value(i)));
+                textBytes += message.getBytes(StandardCharsets.UTF_8).length;
+                parser.parse(message);
+                sink[0] += parser.getValue();
+            }
+            long text = System.nanoTime() - start;
+
+            long frameBytes = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                buffer.clear();
+                encoder.reset();
+                encoder.encode(patient(i), timestamp(i), LABELS[i & 3], value(i), buffer);
+                buffer.flip();
+                frameBytes += buffer.remaining();
+                decoder.reset();
+                decoder.decode(buffer, (id, value, type, ts) -> sink[0] += value);
+            }
+            long frames = System.nanoTime() - start;
+
+            long streamBytes = 0;
+            encoder.reset();
+            decoder.reset();
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                if (buffer.position() > buffer.capacity() - 64 || i == 0) {
+                    buffer.flip();
+                    decoder.decode(buffer, (id, value, type, ts) -> sink[0] += value);
+                    buffer.clear();
+                }
+                int before = buffer.position();
+                encoder.encode(patient(i), timestamp(i), LABELS[i & 3], value(i), buffer);
+                streamBytes += buffer.position() - before;
+            }
+            long stream = System.nanoTime() - start;
+            buffer.clear();
+
+            System.out.printf("round %d  text: %.1f B, %.0f ns  binary full: %.1f B, %.0f ns  binary delta stream: %.1f B, %.0f ns  per sample [%s]%n",
+                    round, (double) textBytes / count, (double) text / count,
+                    (double) frameBytes / count, (double) frames / count,
+                    (double) streamBytes / count, (double) stream / count, sink[0] != 0 ? "ok" : "");
+        }
+    }
+
+    private static int patient(int i) {
+        return i % 50 + 1;
+    }
+
+    private static long timestamp(int i) {
+        return 1_746_796_205_457L + i / 4;
+    }
+
+    private static double value(int i) {
+        return (i & 3) == 0 ? Math.sin(i / 10.0) : 90 + i % 10;
+    }
+}
@@ -0,0 +1,44 @@
+package cardio_generator.outputs;
+
+import com.cardio_generator.outputs.HealthDataWebSocketClient;
+import com.data_management.BinaryRecordCodec;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.RingBufferIngestStage;
+import com.data_management.WaitStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HealthDataWebSocketClientStageTest {
+
+    @Test
+    void testTextAndBinaryMessagesGoThroughTheStage() {
+        DataStorage storage = new DataStorage();
+        RingBufferIngestStage<Object> stage = RingBufferIngestStage.forMessages(storage, 64, 1, WaitStrategy.PARK);
+        HealthDataWebSocketClient client = new HealthDataWebSocketClient(URI.create("ws://localhost:1"), storage, stage);
+
+        ByteBuffer frames = ByteBuffer.allocate(128);
+        BinaryRecordCodec.Encoder encoder = new BinaryRecordCodec.Encoder();
+        encoder.encodeSequence(7, frames);
+        encoder.encode(1, 2000L, "ECG", 0.6, frames);
+        encoder.encode(1, 3000L, "ECG", 0.7, frames);
+        frames.flip();
+
+        client.onMessage("1,1000,ECG,0.5");
+        client.onMessage(frames);
+        stage.close();
+
+        assertEquals(2, stage.getEnqueuedCount());
+        assertEquals(3, stage.getStoredCount());
+        assertEquals(0, stage.getMalformedCount());
+        assertEquals(8, client.getLastSequence());
+        List<PatientRecord> records = storage.getRecords(1, 0, Long.MAX_VALUE);
+        assertEquals(3, records.size());
+        assertEquals(0.7, records.get(2).getMeasurementValue());
+    }
+}
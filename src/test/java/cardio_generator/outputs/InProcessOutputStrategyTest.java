@@ -0,0 +1,63 @@
+package cardio_generator.outputs;
+
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.outputs.InProcessOutputStrategy;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InProcessOutputStrategyTest {
+
+    @Test
+    void testGeneratorSamplesReachTheStorageAsNumbers() {
+        DataStorage storage = new DataStorage();
+        InProcessOutputStrategy output = new InProcessOutputStrategy(storage);
+        BloodSaturationDataGenerator saturation = new BloodSaturationDataGenerator(3);
+        BloodPressureDataGenerator pressure = new BloodPressureDataGenerator(3);
+        for (int i = 0; i < 10; i++) {
+            saturation.generate(1, output);
+            pressure.generate(2, output);
+        }
+        output.output(3, 1000L, "Alert", "triggered");
+        output.output(3, 2000L, "Alert", "resolved");
+        output.output(3, 3000L, "Alert", "unknown");
+        output.close();
+
+        List<PatientRecord> first = storage.getRecords(1, 0, Long.MAX_VALUE);
+        assertEquals(10, first.size());
+        for (PatientRecord record : first) {
+            assertEquals("Saturation", record.getRecordType());
+            assertTrue(record.getMeasurementValue() >= 90 && record.getMeasurementValue() <= 100);
+        }
+        assertEquals(20, storage.getRecords(2, 0, Long.MAX_VALUE).size());
+        List<PatientRecord> alerts = storage.getRecords(3, 0, Long.MAX_VALUE);
+        assertEquals(2, alerts.size());
+        assertEquals(1.0, alerts.get(0).getMeasurementValue());
+        assertEquals(0.0, alerts.get(1).getMeasurementValue());
+        assertEquals(1, output.getMalformedCount());
+        assertEquals(32, output.getStage().getStoredCount());
+
+        output.output(1, 4000L, "ECG", 0.5);
+        assertEquals(1, output.getDroppedCount());
+    }
+
+    @Test
+    void testTextStrategiesReceiveTheFormatTheGeneratorsAlwaysProduced() {
+        List<String> data = new ArrayList<>();
+        OutputStrategy text = (patientId, timestamp, label, value) -> data.add(value);
+        new BloodSaturationDataGenerator(2).generate(1, text);
+        text.output(1, 1000L, "ECG", -0.25);
+        text.output(1, 1000L, "SystolicPressure", 120);
+
+        assertTrue(data.get(0).matches("\\d+\\.0%"), data.get(0));
+        assertEquals("-0.25", data.get(1));
+        assertEquals("120.0", data.get(2));
+    }
+}
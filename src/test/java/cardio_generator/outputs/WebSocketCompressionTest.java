@@ -0,0 +1,153 @@
+package cardio_generator.outputs;
+
+import com.cardio_generator.outputs.HealthDataWebSocketClient;
+import com.cardio_generator.outputs.SlowClientPolicy;
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import com.data_management.BinaryRecordCodec;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.DefaultExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebSocketCompressionTest {
+
+    private WebSocketOutputStrategy strategy;
+    private final List<WebSocketOutputBatchingTest.QueueClient> clients = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (WebSocketOutputBatchingTest.QueueClient client : clients) {
+            client.closeBlocking();
+        }
+        if (strategy != null) {
+            strategy.getServer().stop(1000);
+        }
+    }
+
+    @Test
+    void testCompressedAndPlainClientsReceiveTheSameMessages() throws Exception {
+        int port = startServer(3);
+        WebSocketOutputBatchingTest.QueueClient first = connect(port, "/", true);
+        WebSocketOutputBatchingTest.QueueClient second = connect(port, "/", true);
+        WebSocketOutputBatchingTest.QueueClient plain = connect(port, "/", false);
+
+        assertTrue(((Draft_6455) first.getConnection().getDraft()).getExtension() instanceof PerMessageDeflateExtension);
+        assertTrue(((Draft_6455) plain.getConnection().getDraft()).getExtension() instanceof DefaultExtension);
+
+        for (int round = 0; round < 3; round++) {
+            strategy.output(1, 1000L + round, "ECG", "0.5");
+            strategy.output(2, 1000L + round, "Saturation", "97.0%");
+            strategy.output(1, 1000L + round, "Alert", "triggered");
+            String expected = "1," + (1000 + round) + ",ECG,0.5\n2," + (1000 + round)
+                    + ",Saturation,97.0%\n1," + (1000 + round) + ",Alert,triggered";
+            // each compressed client gets frames compressed with its own context
+            assertEquals(expected, first.messages.poll(5, TimeUnit.SECONDS));
+            assertEquals(expected, second.messages.poll(5, TimeUnit.SECONDS));
+            assertEquals(expected, plain.messages.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testBinaryFramesAreCompressed() throws Exception {
+        int port = startServer(2);
+        WebSocketOutputBatchingTest.QueueClient binary = connect(port, "/?format=binary", true);
+
+        strategy.output(5, 3000L, "HeartRate", "72");
+        strategy.output(5, 3001L, "HeartRate", "73");
+
+        ByteBuffer frames = (ByteBuffer) binary.messages.poll(5, TimeUnit.SECONDS);
+        assertNotNull(frames);
+        List<PatientRecord> records = new ArrayList<>();
+        new BinaryRecordCodec.Decoder().decode(frames, (id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts)));
+        assertEquals(2, records.size());
+        assertEquals(73.0, records.get(1).getMeasurementValue());
+        assertEquals(3001L, records.get(1).getTimestamp());
+    }
+
+    @Test
+    void testReplayToCompressedBinaryClient() throws Exception {
+        int port = startServer(1);
+        strategy.output(5, 3000L, "HeartRate", "72");
+        strategy.output(5, 3001L, "HeartRate", "73");
+
+        WebSocketOutputBatchingTest.QueueClient binary = connect(port, "/?format=binary&seq=1&from=0", true);
+
+        ByteBuffer frames = (ByteBuffer) binary.messages.poll(5, TimeUnit.SECONDS);
+        assertNotNull(frames);
+        BinaryRecordCodec.Decoder decoder = new BinaryRecordCodec.Decoder();
+        List<PatientRecord> records = new ArrayList<>();
+        decoder.decode(frames, (id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts)));
+        assertEquals(2, records.size());
+        assertEquals(72.0, records.get(0).getMeasurementValue());
+        assertEquals(2, decoder.getLastSequence());
+    }
+
+    @Test
+    void testHealthDataClientStoresCompressedStream() throws Exception {
+        int port = startServer(1);
+        DataStorage storage = new DataStorage();
+        HealthDataWebSocketClient client = new HealthDataWebSocketClient(
+                new URI("ws://localhost:" + port + "/"), storage, null, true);
+        assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+        try {
+            Thread.sleep(100);
+            assertTrue(((Draft_6455) client.getConnection().getDraft()).getExtension() instanceof PerMessageDeflateExtension);
+            strategy.output(9, 4000L, "SystolicPressure", "120");
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (storage.getRecords(9, 0, Long.MAX_VALUE).isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            List<PatientRecord> records = storage.getRecords(9, 0, Long.MAX_VALUE);
+            assertEquals(1, records.size());
+            assertEquals(120.0, records.get(0).getMeasurementValue());
+        } finally {
+            client.closeBlocking();
+        }
+    }
+
+    private int startServer(int maxBatchSamples) throws Exception {
+        int port = freePort();
+        strategy = new WebSocketOutputStrategy(WebSocketOutputStrategy.createDefaultServer(port, true), maxBatchSamples,
+                60_000, WebSocketOutputStrategy.DEFAULT_REPLAY_CAPACITY, SlowClientPolicy.DROP_OLDEST,
+                WebSocketOutputStrategy.DEFAULT_MAX_QUEUED_MESSAGES);
+        return port;
+    }
+
+    private WebSocketOutputBatchingTest.QueueClient connect(int port, String path, boolean deflate) throws Exception {
+        URI uri = new URI("ws://localhost:" + port + path);
+        // the server starts asynchronously, so retry until it accepts connections
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            WebSocketOutputBatchingTest.QueueClient client = new WebSocketOutputBatchingTest.QueueClient(uri,
+                    deflate ? new Draft_6455(new PerMessageDeflateExtension()) : new Draft_6455());
+            if (client.connectBlocking(1, TimeUnit.SECONDS)) {
+                clients.add(client);
+                Thread.sleep(100);
+                return client;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("Could not connect to " + uri);
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
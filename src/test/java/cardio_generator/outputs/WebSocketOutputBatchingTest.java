@@ -0,0 +1,130 @@
+package cardio_generator.outputs;
+
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import com.data_management.BinaryRecordCodec;
+import com.data_management.PatientRecord;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebSocketOutputBatchingTest {
+
+    private WebSocketOutputStrategy strategy;
+    private final List<QueueClient> clients = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (QueueClient client : clients) {
+            client.closeBlocking();
+        }
+        if (strategy != null) {
+            strategy.getServer().stop(1000);
+        }
+    }
+
+    @Test
+    void testSamplesAreSentAsOneMessagePerBatch() throws Exception {
+        int port = freePort();
+        strategy = new WebSocketOutputStrategy(port, 3, 60_000);
+        QueueClient text = connect("ws://localhost:" + port + "/");
+        QueueClient binary = connect("ws://localhost:" + port + "/?format=binary");
+
+        strategy.output(1, 1000L, "ECG", "0.5");
+        strategy.output(2, 1001L, "Saturation", "97.0%");
+        strategy.output(1, 1002L, "Alert", "triggered");
+
+        assertEquals("1,1000,ECG,0.5\n2,1001,Saturation,97.0%\n1,1002,Alert,triggered",
+                text.messages.poll(5, TimeUnit.SECONDS));
+
+        ByteBuffer frames = (ByteBuffer) binary.messages.poll(5, TimeUnit.SECONDS);
+        assertNotNull(frames);
+        List<PatientRecord> records = new ArrayList<>();
+        new BinaryRecordCodec.Decoder().decode(frames, (id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts)));
+        assertEquals(3, records.size());
+        assertEquals(97.0, records.get(1).getMeasurementValue());
+        assertEquals(1.0, records.get(2).getMeasurementValue());
+        assertEquals(1002L, records.get(2).getTimestamp());
+    }
+
+    @Test
+    void testPartialBatchIsFlushedAfterInterval() throws Exception {
+        int port = freePort();
+        strategy = new WebSocketOutputStrategy(port, 100, 50);
+        QueueClient text = connect("ws://localhost:" + port + "/");
+
+        strategy.output(7, 2000L, "HeartRate", "72");
+
+        assertEquals("7,2000,HeartRate,72", text.messages.poll(5, TimeUnit.SECONDS));
+    }
+
+    private QueueClient connect(String uri) throws Exception {
+        // the server starts asynchronously, so retry until it accepts connections
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            QueueClient client = new QueueClient(new URI(uri));
+            if (client.connectBlocking(1, TimeUnit.SECONDS)) {
+                clients.add(client);
+                // give the server a moment to register the connection and its format
+                Thread.sleep(100);
+                return client;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("Could not connect to " + uri);
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    static class QueueClient extends WebSocketClient {
+        final BlockingQueue<Object> messages = new LinkedBlockingQueue<>();
+
+        QueueClient(URI serverUri) {
+            super(serverUri);
+        }
+
+        QueueClient(URI serverUri, Draft draft) {
+            super(serverUri, draft);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshakedata) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            messages.offer(message);
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+            messages.offer(bytes);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package cardio_generator.outputs;
+
+import com.cardio_generator.outputs.HealthDataWebSocketClient;
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import com.data_management.BinaryRecordCodec;
+import com.data_management.CsvMessageParser;
+import com.data_management.DataStorage;
+import org.java_websocket.WebSocket;
+import org.java_websocket.client.WebSocketClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebSocketReplayTest {
+
+    private WebSocketOutputStrategy strategy;
+    private final List<WebSocketOutputBatchingTest.QueueClient> clients = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (WebSocketOutputBatchingTest.QueueClient client : clients) {
+            client.closeBlocking();
+        }
+        if (strategy != null) {
+            strategy.getServer().stop(1000);
+        }
+    }
+
+    @Test
+    void testSequencedClientsGetHeaderAndOthersDoNot() throws Exception {
+        int port = freePort();
+        strategy = new WebSocketOutputStrategy(port);
+        WebSocketOutputBatchingTest.QueueClient plain = connect("ws://localhost:" + port + "/");
+        WebSocketOutputBatchingTest.QueueClient sequenced = connect("ws://localhost:" + port + "/?seq=1");
+
+        strategy.output(1, 1000L, "ECG", "0.5");
+        strategy.output(1, 1001L, "ECG", "0.6");
+
+        assertEquals("1,1000,ECG,0.5", plain.messages.poll(5, TimeUnit.SECONDS));
+        assertEquals("#1\n1,1000,ECG,0.5", sequenced.messages.poll(5, TimeUnit.SECONDS));
+        assertEquals("#2\n1,1001,ECG,0.6", sequenced.messages.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testResumingClientGetsMissedSamplesBeforeLiveOnes() throws Exception {
+        int port = freePort();
+        strategy = new WebSocketOutputStrategy(port);
+        connect("ws://localhost:" + port + "/");
+        for (int i = 1; i <= 5; i++) {
+            strategy.output(1, 1000L + i, "ECG", Double.toString(i));
+        }
+
+        WebSocketOutputBatchingTest.QueueClient text = connect("ws://localhost:" + port + "/?seq=1&from=2");
+        WebSocketOutputBatchingTest.QueueClient binary = connect("ws://localhost:" + port + "/?format=binary&from=2");
+        strategy.output(1, 1006L, "ECG", "6.0");
+
+        assertEquals("#3\n1,1003,ECG,3.0\n1,1004,ECG,4.0\n1,1005,ECG,5.0", text.messages.poll(5, TimeUnit.SECONDS));
+        assertEquals("#6\n1,1006,ECG,6.0", text.messages.poll(5, TimeUnit.SECONDS));
+
+        BinaryRecordCodec.Decoder decoder = new BinaryRecordCodec.Decoder();
+        List<Long> timestamps = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            decoder.reset();
+            decoder.decode((ByteBuffer) binary.messages.poll(5, TimeUnit.SECONDS), (id, value, type, ts) -> timestamps.add(ts));
+        }
+        assertEquals(List.of(1003L, 1004L, 1005L, 1006L), timestamps);
+        assertEquals(6, decoder.getLastSequence());
+    }
+
+    @Test
+    void testReplayIsBoundedByCapacity() throws Exception {
+        int port = freePort();
+        strategy = new WebSocketOutputStrategy(port, 1, 0, 4);
+        for (int i = 1; i <= 10; i++) {
+            strategy.output(1, 1000L + i, "ECG", Double.toString(i));
+        }
+
+        WebSocketOutputBatchingTest.QueueClient client = connect("ws://localhost:" + port + "/?seq=1&from=2");
+
+        String replayed = (String) client.messages.poll(5, TimeUnit.SECONDS);
+        assertTrue(replayed.startsWith("#7\n1,1007,ECG"), replayed);
+        assertEquals(10, CsvMessageParser.lastSequenceOf(replayed));
+    }
+
+    @Test
+    void testClientResumesAfterReconnect() throws Exception {
+        int port = freePort();
+        strategy = new WebSocketOutputStrategy(port);
+        connect("ws://localhost:" + port + "/"); // waits until the server is up
+        DataStorage storage = new DataStorage();
+        HealthDataWebSocketClient client = new HealthDataWebSocketClient(new URI("ws://localhost:" + port + "/"), storage);
+        connect(client);
+
+        strategy.output(1, 1001L, "ECG", "1.0");
+        strategy.output(1, 1002L, "ECG", "2.0");
+        awaitRecords(storage, 2);
+        assertEquals(2, client.getLastSequence());
+
+        for (WebSocket conn : strategy.getServer().getConnections()) {
+            conn.close();
+        }
+        Thread.sleep(200);
+        // broadcast while the client waits to reconnect
+        strategy.output(1, 1003L, "ECG", "3.0");
+        strategy.output(1, 1004L, "ECG", "4.0");
+
+        awaitRecords(storage, 4);
+        assertEquals(1004L, storage.getRecords(1, 0, Long.MAX_VALUE).get(3).getTimestamp());
+    }
+
+    private static void awaitRecords(DataStorage storage, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (storage.getRecords(1, 0, Long.MAX_VALUE).size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(count, storage.getRecords(1, 0, Long.MAX_VALUE).size());
+    }
+
+    private WebSocketOutputBatchingTest.QueueClient connect(String uri) throws Exception {
+        WebSocketOutputBatchingTest.QueueClient client = new WebSocketOutputBatchingTest.QueueClient(new URI(uri));
+        connect(client);
+        clients.add(client);
+        return client;
+    }
+
+    // the server starts asynchronously, so retry until it accepts connections
+    private static void connect(WebSocketClient client) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        boolean open = client.connectBlocking(1, TimeUnit.SECONDS);
+        while (!open) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Could not connect to " + client.getURI());
+            }
+            Thread.sleep(50);
+            open = client.reconnectBlocking();
+        }
+        // give the server a moment to register the connection and its options
+        Thread.sleep(100);
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
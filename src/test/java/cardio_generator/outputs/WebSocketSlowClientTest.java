@@ -0,0 +1,139 @@
+package cardio_generator.outputs;
+
+import com.cardio_generator.outputs.ClientStats;
+import com.cardio_generator.outputs.SlowClientPolicy;
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebSocketSlowClientTest {
+
+    private static final int BATCH = 1000;
+    private static final int SAMPLES = 2_000_000;
+
+    private WebSocketOutputStrategy strategy;
+    private Socket stalled;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (stalled != null) {
+            stalled.close();
+        }
+        if (strategy != null) {
+            strategy.getServer().stop(1000);
+        }
+    }
+
+    @Test
+    void testDropOldestBoundsQueueOfStalledClient() throws Exception {
+        int port = start(SlowClientPolicy.DROP_OLDEST);
+        stalled = connectStalled(port);
+
+        produce();
+
+        ClientStats stats = onlyClient();
+        assertTrue(stats.getDroppedSamples() > 0, stats.toString());
+        assertTrue(stats.getQueuedMessages() <= 4, stats.toString());
+        assertTrue(stats.getQueuedSamples() <= 4 * BATCH, stats.toString());
+        assertEquals(0, strategy.getSlowClientDisconnects());
+    }
+
+    @Test
+    void testConflateKeepsLatestSamplePerSeries() throws Exception {
+        int port = start(SlowClientPolicy.CONFLATE);
+        stalled = connectStalled(port);
+
+        produce();
+
+        ClientStats stats = onlyClient();
+        assertTrue(stats.getConflatedSamples() > 0, stats.toString());
+        // 10 patients with one record type each
+        assertTrue(stats.getQueuedSamples() <= 10, stats.toString());
+        assertEquals(0, stats.getDroppedSamples());
+    }
+
+    @Test
+    void testDisconnectClosesStalledClient() throws Exception {
+        int port = start(SlowClientPolicy.DISCONNECT);
+        stalled = connectStalled(port);
+
+        produce();
+
+        assertEquals(1, strategy.getSlowClientDisconnects());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!strategy.getServer().getConnections().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(strategy.getServer().getConnections().isEmpty());
+    }
+
+    private int start(SlowClientPolicy policy) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        strategy = new WebSocketOutputStrategy(port, BATCH, 60_000, 16, policy, 4);
+        return port;
+    }
+
+    // Stops after one disconnect, or after all samples have been produced
+    private void produce() {
+        for (int i = 0; i < SAMPLES && strategy.getSlowClientDisconnects() == 0; i++) {
+            strategy.output(i % 10, 1_700_000_000_000L + i, "ECG", Double.toString(i));
+        }
+        strategy.flush();
+    }
+
+    private ClientStats onlyClient() {
+        List<ClientStats> stats = strategy.getClientStats();
+        assertEquals(1, stats.size());
+        return stats.get(0);
+    }
+
+    // Completes the WebSocket handshake, then never reads again
+    private static Socket connectStalled(int port) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            Socket socket = new Socket();
+            socket.setReceiveBufferSize(4096);
+            try {
+                socket.connect(new InetSocketAddress("localhost", port), 1000);
+            } catch (IOException e) {
+                socket.close();
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(50);
+                continue;
+            }
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /?seq=1 HTTP/1.1\r\nHost: localhost:" + port + "\r\nUpgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\nSec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+                    + "Sec-WebSocket-Version: 13\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            int matched = 0;
+            while (matched < 4) {
+                int b = in.read();
+                if (b < 0) {
+                    fail("Handshake failed");
+                }
+                matched = (b == "\r\n\r\n".charAt(matched)) ? matched + 1 : (b == '\r' ? 1 : 0);
+            }
+            // let the server register the session
+            Thread.sleep(100);
+            return socket;
+        }
+    }
+}
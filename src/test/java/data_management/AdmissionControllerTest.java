@@ -0,0 +1,110 @@
+package data_management;
+
+import com.data_management.AdmissionController;
+import com.data_management.DataStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControllerTest {
+
+    private static final long TARGET = 1_000_000;
+
+    @Test
+    void testOverloadLevelDoublesWithLatency() {
+        AtomicLong latency = new AtomicLong();
+        AdmissionController controller = new AdmissionController(latency::get, TARGET);
+        assertEquals(0, controller.getOverloadLevel());
+        latency.set(TARGET);
+        assertEquals(0, controller.getOverloadLevel());
+        latency.set(TARGET + 1);
+        assertEquals(1, controller.getOverloadLevel());
+        latency.set(2 * TARGET);
+        assertEquals(1, controller.getOverloadLevel());
+        latency.set(3 * TARGET);
+        assertEquals(2, controller.getOverloadLevel());
+        latency.set(8 * TARGET + 1);
+        assertEquals(4, controller.getOverloadLevel());
+    }
+
+    @Test
+    void testEverythingIsAdmittedWithinTarget() {
+        AdmissionController controller = new AdmissionController(() -> TARGET / 2, TARGET);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(controller.accept(1, "Cholesterol", i, 180));
+        }
+        assertEquals(0, controller.getShedCount());
+        assertEquals(1000, controller.getAdmittedCount());
+    }
+
+    @Test
+    void testLowestPriorityIsShedFirstAndVitalsKeepFlowing() {
+        AtomicLong latency = new AtomicLong(2 * TARGET);
+        AdmissionController controller = new AdmissionController(latency::get, TARGET);
+        int samples = 10_000;
+
+        // level 1: only cholesterol is halved
+        assertEquals(samples, admitted(controller, "Saturation", samples));
+        assertEquals(samples, admitted(controller, "WhiteBloodCells", samples));
+        assertEquals(samples / 2.0, admitted(controller, "Cholesterol", samples), samples * 0.05);
+
+        // level 3: blood cells keep one in four, cholesterol one in eight
+        latency.set(5 * TARGET);
+        assertEquals(samples, admitted(controller, "ECG", samples));
+        assertEquals(samples / 4.0, admitted(controller, "RedBloodCells", samples), samples * 0.03);
+        assertEquals(samples / 8.0, admitted(controller, "Cholesterol", samples), samples * 0.02);
+
+        // far past the target cholesterol is shed entirely
+        latency.set(1000 * TARGET);
+        assertEquals(0, admitted(controller, "Cholesterol", samples));
+        assertEquals(samples, admitted(controller, "Alert", samples));
+
+        Map<String, Long> shed = controller.getShedCounts();
+        assertFalse(shed.containsKey("Saturation"));
+        assertFalse(shed.containsKey("ECG"));
+        assertTrue(shed.get("Cholesterol") > shed.get("RedBloodCells"));
+        assertEquals(controller.getShedCount(), shed.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void testCustomPriorityTable() {
+        AdmissionController controller = new AdmissionController(() -> 2 * TARGET, TARGET,
+                Map.of("Cholesterol", 0, "ECG", 1), 0);
+        assertEquals(100, admitted(controller, "Cholesterol", 100));
+        assertEquals(100, admitted(controller, "Unlisted", 100));
+        assertTrue(admitted(controller, "ECG", 1000) < 1000);
+    }
+
+    @Test
+    void testShedSamplesAreNotStored() {
+        DataStorage storage = new DataStorage();
+        AdmissionController controller = new AdmissionController(() -> 1000 * TARGET, TARGET);
+        storage.addIngestFilter(controller);
+        for (int i = 0; i < 100; i++) {
+            storage.addPatientData(1, 180, "Cholesterol", i);
+            storage.addPatientData(1, 97, "Saturation", i);
+        }
+        assertEquals(100, storage.getRecords(1, 0, Long.MAX_VALUE).size());
+        assertEquals(100, controller.getShedCounts().get("Cholesterol"));
+    }
+
+    @Test
+    void testInvalidConfigurationIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionController(() -> 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdmissionController(() -> 0, TARGET, Map.of("ECG", -1), 1));
+    }
+
+    private static int admitted(AdmissionController controller, String type, int samples) {
+        int admitted = 0;
+        for (int i = 0; i < samples; i++) {
+            if (controller.accept(i % 50, type, 1_700_000_000_000L + i, 1.0)) {
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+}
@@ -0,0 +1,122 @@
+package data_management;
+
+import com.data_management.BinaryRecordCodec;
+import com.data_management.PatientRecord;
+import com.data_management.WireFormat;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryRecordCodecTest {
+
+    private final List<PatientRecord> decoded = new ArrayList<>();
+
+    private void decode(BinaryRecordCodec.Decoder decoder, ByteBuffer in) {
+        decoder.decode(in, (id, value, type, ts) -> decoded.add(new PatientRecord(id, value, type, ts)));
+    }
+
+    @Test
+    void testFullThenDeltaFramesRoundTrip() {
+        BinaryRecordCodec.Encoder encoder = new BinaryRecordCodec.Encoder();
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+
+        encoder.encode(12, 1_700_000_000_000L, "ECG", -0.618, buffer);
+        assertEquals(BinaryRecordCodec.FULL_FRAME_SIZE, buffer.position());
+        encoder.encode(13, 1_700_000_000_004L, "Saturation", 97.0, buffer);
+        encoder.encode(12, 1_699_999_999_990L, "HeartRate", 72.5, buffer);
+        assertTrue(buffer.position() < 3 * BinaryRecordCodec.FULL_FRAME_SIZE - 15);
+        assertEquals(BinaryRecordCodec.DELTA_FRAME, buffer.get(BinaryRecordCodec.FULL_FRAME_SIZE));
+
+        buffer.flip();
+        decode(new BinaryRecordCodec.Decoder(), buffer);
+
+        assertEquals(3, decoded.size());
+        assertEquals(13, decoded.get(1).getPatientId());
+        assertEquals(1_700_000_000_004L, decoded.get(1).getTimestamp());
+        assertSame("Saturation", decoded.get(1).getRecordType());
+        assertEquals(97.0, decoded.get(1).getMeasurementValue());
+        assertEquals(12, decoded.get(2).getPatientId());
+        assertEquals(1_699_999_999_990L, decoded.get(2).getTimestamp());
+        assertEquals(72.5, decoded.get(2).getMeasurementValue());
+    }
+
+    @Test
+    void testUnknownLabelIsSentInline() {
+        BinaryRecordCodec.Encoder encoder = new BinaryRecordCodec.Encoder();
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryRecordCodec.maxFrameSize("Temperature") * 2);
+        encoder.encode(1, 1000L, "ECG", 0.1, buffer);
+        encoder.encode(1, 1001L, "Temperature", 36.6, buffer);
+        // unknown labels always get a full frame carrying the label
+        assertEquals(BinaryRecordCodec.FULL_FRAME_SIZE + BinaryRecordCodec.maxFrameSize("Temperature"), buffer.position());
+
+        buffer.flip();
+        decode(new BinaryRecordCodec.Decoder(), buffer);
+        assertEquals("Temperature", decoded.get(1).getRecordType());
+        assertEquals(36.6, decoded.get(1).getMeasurementValue());
+    }
+
+    @Test
+    void testIncompleteFrameIsLeftInBuffer() {
+        BinaryRecordCodec.Encoder encoder = new BinaryRecordCodec.Encoder();
+        ByteBuffer stream = ByteBuffer.allocate(256);
+        encoder.encode(5, 1000L, "ECG", 0.5, stream);
+        encoder.encode(5, 1010L, "ECG", 0.6, stream);
+        stream.flip();
+        BinaryRecordCodec.Decoder decoder = new BinaryRecordCodec.Decoder();
+
+        ByteBuffer firstPart = ByteBuffer.allocate(256);
+        firstPart.put(stream.array(), 0, BinaryRecordCodec.FULL_FRAME_SIZE + 3).flip();
+        decode(decoder, firstPart);
+        assertEquals(1, decoded.size());
+        assertEquals(3, firstPart.remaining());
+
+        firstPart.compact();
+        firstPart.put(stream.array(), BinaryRecordCodec.FULL_FRAME_SIZE + 3, stream.limit() - BinaryRecordCodec.FULL_FRAME_SIZE - 3).flip();
+        decode(decoder, firstPart);
+        assertEquals(2, decoded.size());
+        assertEquals(1010L, decoded.get(1).getTimestamp());
+        assertFalse(firstPart.hasRemaining());
+    }
+
+    @Test
+    void testSequenceFrameNumbersFollowingSamples() {
+        BinaryRecordCodec.Encoder encoder = new BinaryRecordCodec.Encoder();
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        encoder.encodeSequence(41, buffer);
+        encoder.encode(1, 1000L, "ECG", 0.5, buffer);
+        encoder.encode(1, 1010L, "ECG", 0.6, buffer);
+        buffer.flip();
+        BinaryRecordCodec.Decoder decoder = new BinaryRecordCodec.Decoder();
+        assertEquals(-1, decoder.getLastSequence());
+
+        decode(decoder, buffer);
+        assertEquals(2, decoded.size());
+        assertEquals(42, decoder.getLastSequence());
+        decoder.reset();
+        assertEquals(42, decoder.getLastSequence());
+    }
+
+    @Test
+    void testMalformedFramesAreRejected() {
+        BinaryRecordCodec.Decoder decoder = new BinaryRecordCodec.Decoder();
+        assertThrows(IllegalArgumentException.class, () -> decode(decoder, ByteBuffer.wrap(new byte[]{0x7F})));
+        assertThrows(IllegalArgumentException.class, () -> decode(decoder, ByteBuffer.wrap(new byte[]{0x02, 0, 0, 1})));
+    }
+
+    @Test
+    void testParseValueAndWireFormat() {
+        assertEquals(95.0, BinaryRecordCodec.parseValue("95.0%"));
+        assertEquals(1.0, BinaryRecordCodec.parseValue("triggered"));
+        assertEquals(0.0, BinaryRecordCodec.parseValue("resolved"));
+        assertThrows(NumberFormatException.class, () -> BinaryRecordCodec.parseValue("high"));
+
+        assertEquals(WireFormat.TEXT, WireFormat.fromQuery("/"));
+        assertEquals(WireFormat.BINARY, WireFormat.fromQuery("ws://localhost:8080/?format=binary"));
+        assertEquals(WireFormat.BINARY, WireFormat.fromQuery("/?seq=1&format=BINARY"));
+        assertThrows(IllegalArgumentException.class, () -> WireFormat.fromQuery("/?format=xml"));
+    }
+}
@@ -0,0 +1,109 @@
+package data_management;
+
+import com.data_management.CohortRollup;
+import com.data_management.CohortRollup.MinuteStats;
+import com.data_management.DataStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CohortRollupTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long BASE = 1_000 * MINUTE;
+
+    private final AtomicLong now = new AtomicLong(BASE);
+    private DataStorage storage;
+    private CohortRollup rollup;
+
+    @BeforeEach
+    void setUp() {
+        storage = new DataStorage();
+        rollup = new CohortRollup(10, now::get).track("Saturation", 80, 100, 20);
+        storage.addRecordListener(rollup);
+    }
+
+    @Test
+    void testPerMinuteAggregatesAcrossPatients() {
+        storage.addPatientData(1, 95, "Saturation", BASE - MINUTE + 5);
+        storage.addPatientData(1, 97, "Saturation", BASE + 10);
+        storage.addPatientData(2, 91, "Saturation", BASE + 20);
+        storage.addPatientData(3, 0.4, "ECG", BASE + 30);
+
+        List<MinuteStats> minutes = rollup.lastMinutes("Saturation", 2);
+        assertEquals(2, minutes.size());
+        assertEquals(1, minutes.get(0).getCount());
+
+        MinuteStats current = minutes.get(1);
+        assertEquals(BASE, current.getStartMillis());
+        assertEquals(2, current.getCount());
+        assertEquals(94.0, current.getMean(), 1e-9);
+        assertEquals(91.0, current.getMin());
+        assertEquals(97.0, current.getMax());
+        assertEquals(1, current.getHistogram()[12]); // [91, 92)
+        assertEquals(1, current.getHistogram()[18]); // [97, 98)
+    }
+
+    @Test
+    void testSummaryMergesMinutesAndCountsOutliers() {
+        storage.addPatientData(1, 75, "Saturation", BASE - 2 * MINUTE);
+        storage.addPatientData(2, 100, "Saturation", BASE);
+
+        MinuteStats summary = rollup.summary("Saturation", 5);
+        assertEquals(2, summary.getCount());
+        assertEquals(75.0, summary.getMin());
+        assertEquals(100.0, summary.getMax());
+        long[] histogram = summary.getHistogram();
+        assertEquals(1, histogram[0]);
+        assertEquals(1, histogram[histogram.length - 1]);
+
+        assertEquals(1, rollup.summary("Saturation", 1).getCount());
+    }
+
+    @Test
+    void testOldSlotsAreRecycledAndLateSamplesIgnored() {
+        storage.addPatientData(1, 95, "Saturation", BASE);
+        now.set(BASE + 10 * MINUTE);
+        storage.addPatientData(1, 96, "Saturation", BASE + 10 * MINUTE);   // reuses the slot of BASE
+        storage.addPatientData(1, 90, "Saturation", BASE);                 // too old now
+
+        assertEquals(1, rollup.summary("Saturation", 10).getCount());
+        assertEquals(1, rollup.getLateSamples());
+    }
+
+    @Test
+    void testSampleOlderThanRetentionIsLateEvenInEmptySlot() {
+        storage.addPatientData(1, 95, "Saturation", BASE + 10 * MINUTE);
+        storage.addPatientData(1, 90, "Saturation", BASE - 5 * MINUTE);   // its slot is empty, but too old
+
+        assertEquals(1, rollup.getLateSamples());
+        now.set(BASE + 10 * MINUTE);
+        assertEquals(1, rollup.summary("Saturation", 10).getCount());
+    }
+
+    @Test
+    void testConcurrentIngestIsCountedExactly() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int p = 0; p < 8; p++) {
+            int patientId = p;
+            pool.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    storage.addPatientData(patientId, 90 + (i % 10), "Saturation", BASE + i);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        MinuteStats stats = rollup.summary("Saturation", 1);
+        assertEquals(8_000, stats.getCount());
+        assertEquals(94.5, stats.getMean(), 1e-9);
+    }
+}
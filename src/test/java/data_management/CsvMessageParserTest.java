@@ -0,0 +1,104 @@
+package data_management;
+
+import com.data_management.CsvMessageParser;
+import com.data_management.RecordTypes;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvMessageParserTest {
+
+    private final CsvMessageParser parser = new CsvMessageParser();
+
+    @Test
+    void testParsesSimulatorMessage() {
+        assertTrue(parser.parse("12,1700000000123,ECG,-0.6183051851111978"));
+
+        assertEquals(12, parser.getPatientId());
+        assertEquals(1700000000123L, parser.getTimestamp());
+        assertEquals(RecordTypes.ECG, parser.getTypeCode());
+        assertSame("ECG", parser.getRecordType());
+        assertEquals(-0.6183051851111978, parser.getValue());
+    }
+
+    @Test
+    void testToleratesUnitSuffixesAndSpaces() {
+        assertTrue(parser.parse("3,1000,Saturation,95.0%"));
+        assertEquals(95.0, parser.getValue());
+
+        assertTrue(parser.parse(" 3 , 1000 , SystolicPressure , 120 mmHg\r\n"));
+        assertEquals(RecordTypes.SYSTOLIC_PRESSURE, parser.getTypeCode());
+        assertEquals(120.0, parser.getValue());
+    }
+
+    @Test
+    void testMapsAlertStates() {
+        assertTrue(parser.parse("4,1000,Alert,triggered"));
+        assertEquals(1.0, parser.getValue());
+        assertTrue(parser.parse("4,1001,Alert,resolved"));
+        assertEquals(0.0, parser.getValue());
+    }
+
+    @Test
+    void testUnknownLabelIsKept() {
+        assertTrue(parser.parse("5,1000,Temperature,36.6"));
+        assertEquals(RecordTypes.UNKNOWN, parser.getTypeCode());
+        assertEquals("Temperature", parser.getRecordType());
+    }
+
+    @Test
+    void testParsesBytes() {
+        byte[] bytes = "xx7,2000,HeartRate,72.5".getBytes(StandardCharsets.US_ASCII);
+        assertTrue(parser.parse(bytes, 2, bytes.length - 2));
+        assertEquals(7, parser.getPatientId());
+        assertEquals(72.5, parser.getValue());
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, bytes.length - 2);
+        assertTrue(parser.parse(buffer));
+        assertEquals(2, buffer.position());
+        assertEquals("HeartRate", parser.getRecordType());
+    }
+
+    @Test
+    void testRejectsMalformedMessages() {
+        assertFalse(parser.parse(""));
+        assertFalse(parser.parse("1,2,ECG"));
+        assertFalse(parser.parse("1,2,ECG,3,4"));
+        assertFalse(parser.parse("x,2,ECG,3"));
+        assertFalse(parser.parse("1,2,,3"));
+        assertFalse(parser.parse("1,2,ECG,abc"));
+        assertFalse(parser.parse("99999999999,2,ECG,3"));
+        assertFalse(parser.parse("1,100,ECG,12abc"));
+        assertFalse(parser.parse("1,100,Saturation,95%x"));
+        assertFalse(parser.parse("1,100,SystolicPressure,120 mm Hg"));
+        assertTrue(parser.parse("1,100,SystolicPressure,120 mmHg"));
+        assertEquals(120.0, parser.getValue());
+    }
+
+    @Test
+    void testParsesBatchedLines() {
+        List<String> types = new ArrayList<>();
+        int malformed = parser.parseLinesTo("1,1000,ECG,0.5\n2,1001,Saturation,97%\n\nbad\n1,1001,ECG,12abc\n3,1002,Alert,resolved",
+                (id, value, type, ts) -> types.add(type + "=" + value));
+
+        assertEquals(2, malformed);
+        assertEquals(List.of("ECG=0.5", "Saturation=97.0", "Alert=0.0"), types);
+    }
+
+    @Test
+    void testSequenceHeader() {
+        String message = "#41\n1,1000,ECG,0.5\r\n2,1001,ECG,0.6\n";
+        assertEquals(42, CsvMessageParser.lastSequenceOf(message));
+        assertEquals(-1, CsvMessageParser.lastSequenceOf("1,1000,ECG,0.5"));
+        assertEquals(-1, CsvMessageParser.lastSequenceOf("#4x\n1,1000,ECG,0.5"));
+
+        List<String> types = new ArrayList<>();
+        assertEquals(0, parser.parseLinesTo(message, (id, value, type, ts) -> types.add(type)));
+        assertEquals(List.of("ECG", "ECG"), types);
+    }
+}
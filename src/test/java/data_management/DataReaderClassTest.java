@@ -2,6 +2,7 @@ package data_management;
 
 import com.data_management.DataReaderClass;
 import com.data_management.DataStorage;
+import com.data_management.IngestionStats;
 import com.data_management.PatientRecord;
 import org.json.JSONObject;
 import org.junit.jupiter.api.*;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.*;
 import java.io.*;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -92,4 +94,62 @@ public class DataReaderClassTest {
         assertEquals(1, stored.size());
         assertEquals("Temperature", stored.get(0).getRecordType());
     }
+
+    @Test
+    void testReadDataParallelIngestsAllFilesAndIsolatesErrors() throws IOException {
+        for (int f = 0; f < 20; f++) {
+            try (FileWriter writer = new FileWriter(new File(tempDir, "data" + f + ".json"))) {
+                writer.write("[");
+                for (int i = 0; i < 50; i++) {
+                    if (i > 0) writer.write(",");
+                    writer.write("{\"patientId\": " + (f % 5) + ", \"recordType\": \"ECG\", "
+                            + "\"measurementValue\": " + i + ", \"timestamp\": " + (f * 1000 + i) + "}");
+                }
+                writer.write("]");
+            }
+        }
+        try (FileWriter writer = new FileWriter(new File(tempDir, "broken.json"))) {
+            writer.write("[{ broken");
+        }
+
+        DataStorage storage = new DataStorage();
+        IngestionStats stats = reader.readDataParallel(storage, 4);
+
+        assertEquals(20, stats.getFiles());
+        assertEquals(1, stats.getFailedFiles());
+        assertEquals(1000, stats.getRecords());
+        assertTrue(stats.getRecordsPerSecond() > 0);
+        assertEquals(5, storage.getAllPatients().size());
+
+        List<PatientRecord> patient0 = storage.getRecords(0, 0, Long.MAX_VALUE);
+        assertEquals(200, patient0.size());
+    }
+
+    @Test
+    void testReadsCompressedJsonFilesInBothModes() throws IOException {
+        File array = new File(tempDir, "batch.json.gz");
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(array)))) {
+            writer.write("[{\"patientId\": 1, \"recordType\": \"ECG\", \"measurementValue\": 0.5, \"timestamp\": 1000},"
+                    + " {\"patientId\": 1, \"recordType\": \"ECG\", \"measurementValue\": 0.7, \"timestamp\": 2000}]");
+        }
+        File lines = new File(tempDir, "stream.ndjson.gz");
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(lines)))) {
+            for (int i = 0; i < 50; i++) {
+                writer.write("{\"patientId\": 2, \"recordType\": \"Saturation\", \"measurementValue\": 97, \"timestamp\": " + i + "}\n");
+            }
+        }
+        // drop the trailer, as if the file had been cut off
+        byte[] full = Files.readAllBytes(lines.toPath());
+        Files.write(lines.toPath(), Arrays.copyOf(full, full.length - 8));
+
+        DataStorage storage = new DataStorage();
+        reader.readData(storage);
+        assertEquals(2, storage.getRecords(1, 0, Long.MAX_VALUE).size());
+        assertTrue(storage.getRecords(2, 0, Long.MAX_VALUE).isEmpty(), "ndjson is only read when streaming");
+
+        DataStorage streamed = new DataStorage();
+        new DataReaderClass(tempDir.getAbsolutePath(), true).readData(streamed);
+        assertEquals(2, streamed.getRecords(1, 0, Long.MAX_VALUE).size());
+        assertEquals(50, streamed.getRecords(2, 0, Long.MAX_VALUE).size());
+    }
 }
@@ -67,5 +67,20 @@ class DataStorageTest {
 
         assertTrue(found, "Expected patient to be in the list of all patients");
     }
-}
 
+    @Test
+    void testAddPatientRecordsKeepsPerPatientOrder() {
+        DataStorage storage = new DataStorage();
+        storage.addPatientRecords(List.of(
+                new PatientRecord(1, 10.0, "ECG", 300L),
+                new PatientRecord(2, 20.0, "ECG", 100L),
+                new PatientRecord(1, 11.0, "ECG", 200L)
+        ));
+
+        List<PatientRecord> records = storage.getRecords(1, 0, Long.MAX_VALUE);
+        assertEquals(2, records.size());
+        assertEquals(10.0, records.get(0).getMeasurementValue());
+        assertEquals(11.0, records.get(1).getMeasurementValue());
+        assertEquals(1, storage.getPatientsWithRecords("ECG", 0, 150).size());
+    }
+}
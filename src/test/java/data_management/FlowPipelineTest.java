@@ -0,0 +1,128 @@
+package data_management;
+
+import com.data_management.DataReader;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.ReaderPublisher;
+import com.data_management.RecordStage;
+import com.data_management.SampleDeduplicator;
+import com.data_management.StorageSubscriber;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlowPipelineTest {
+
+    private final List<ExecutorService> executors = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        executors.forEach(ExecutorService::shutdownNow);
+    }
+
+    @Test
+    void testStagesParseValidateDeduplicateAndEnrich() throws Exception {
+        DataStorage storage = new DataStorage();
+        SubmissionPublisher<String> source = new SubmissionPublisher<>(executor(), 4);
+        RecordStage<String, List<PatientRecord>> parse = RecordStage.parseCsv(executor(), 4);
+        RecordStage<List<PatientRecord>, List<PatientRecord>> validate = RecordStage.validate(executor(), 4);
+        RecordStage<List<PatientRecord>, List<PatientRecord>> dedup =
+                RecordStage.filter(executor(), 4, new SampleDeduplicator());
+        RecordStage<List<PatientRecord>, List<PatientRecord>> enrich = RecordStage.enrich(executor(), 4,
+                record -> new PatientRecord(record.getPatientId(), record.getMeasurementValue() / 100,
+                        record.getRecordType(), record.getTimestamp()));
+        StorageSubscriber sink = new StorageSubscriber(storage);
+        source.subscribe(parse);
+        parse.subscribe(validate);
+        validate.subscribe(dedup);
+        dedup.subscribe(enrich);
+        enrich.subscribe(sink);
+
+        source.submit("1,1000,Saturation,97\n1,2000,Saturation,96");
+        source.submit("not a record");
+        source.submit("1,3000,Saturation,NaN\n-2,3000,Saturation,95");
+        source.submit("1,2000,Saturation,96\n1,4000,Saturation,95");
+        source.close();
+        sink.getCompletion().get(5, TimeUnit.SECONDS);
+
+        List<PatientRecord> records = storage.getRecords(1, 0, Long.MAX_VALUE);
+        assertEquals(3, records.size());
+        assertEquals(3, sink.getStoredCount());
+        assertEquals(0.97, records.get(0).getMeasurementValue(), 1e-9);
+        assertEquals(4, parse.getProcessedCount());
+        assertEquals(1, parse.getDroppedCount(), "the message without a valid line");
+        assertEquals(1, validate.getDroppedCount(), "the batch without a valid record");
+        assertEquals(0, dedup.getDroppedCount(), "the batch keeps its new record");
+    }
+
+    @Test
+    void testSlowStorageHoldsBackTheReader() throws Exception {
+        int total = 1000;
+        AtomicInteger pushed = new AtomicInteger();
+        DataReader reader = new DataReader() {
+            @Override
+            public void readData(DataStorage dataStorage) {
+                for (int i = 0; i < total; i++) {
+                    dataStorage.addPatientData(7, 80, "HeartRate", 1000L + i);
+                    pushed.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void stopReading() {
+            }
+        };
+        CountDownLatch release = new CountDownLatch(1);
+        DataStorage storage = new DataStorage() {
+            @Override
+            public void addPatientRecords(List<PatientRecord> records) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.addPatientRecords(records);
+            }
+        };
+        ReaderPublisher source = new ReaderPublisher(reader, executor(), 1);
+        RecordStage<List<PatientRecord>, List<PatientRecord>> validate = RecordStage.validate(executor(), 1);
+        StorageSubscriber sink = new StorageSubscriber(storage);
+        source.subscribe(validate);
+        validate.subscribe(sink);
+
+        CompletableFuture<Void> reading = CompletableFuture.runAsync(() -> {
+            try {
+                source.start();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            source.close();
+        }, executor());
+        Thread.sleep(300);
+        assertFalse(reading.isDone());
+        assertTrue(pushed.get() < 10, "reader kept going: " + pushed.get());
+
+        release.countDown();
+        reading.get(5, TimeUnit.SECONDS);
+        sink.getCompletion().get(5, TimeUnit.SECONDS);
+        assertEquals(total, sink.getStoredCount());
+        assertEquals(total, storage.getRecords(7, 0, Long.MAX_VALUE).size());
+    }
+
+    private ExecutorService executor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executors.add(executor);
+        return executor;
+    }
+}
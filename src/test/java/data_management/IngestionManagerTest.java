@@ -0,0 +1,114 @@
+package data_management;
+
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.IngestionManager;
+import com.data_management.SourceStats;
+import com.data_management.WebSocketDataReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IngestionManagerTest {
+
+    private WebSocketOutputStrategy strategy;
+    private IngestionManager manager;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (manager != null) {
+            manager.close();
+        }
+        if (strategy != null) {
+            strategy.getServer().stop(1000);
+        }
+    }
+
+    @Test
+    void testSourcesStoreIntoTheGivenStorageAndFailuresAreIsolated() throws Exception {
+        int port = freePort();
+        strategy = new WebSocketOutputStrategy(port);
+        awaitListening(port);
+
+        DataStorage storage = new DataStorage();
+        manager = new IngestionManager(storage);
+        manager.addSource("bed-1", new WebSocketDataReader("ws://localhost:" + port + "/"));
+        manager.addSource("bed-2", new WebSocketDataReader("ws://localhost:" + port + "/?format=binary"));
+        manager.addSource("offline", new WebSocketDataReader("ws://localhost:" + freePort() + "/", 2000));
+        manager.start().get(10, TimeUnit.SECONDS);
+        // give the server a moment to register both connections
+        Thread.sleep(100);
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            strategy.output(42, now + i, "HeartRate", Integer.toString(60 + i));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (manager.getStoredCount() < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        List<SourceStats> stats = manager.getSourceStats();
+        assertEquals(3, stats.size());
+        for (SourceStats source : stats.subList(0, 2)) {
+            assertEquals(IngestionManager.SourceState.READING, source.getState(), source.toString());
+            assertEquals(10, source.getStoredCount());
+            assertEquals(0, source.getMalformedCount());
+            assertTrue(source.getLagMillis() >= 0);
+            assertTrue(source.getRecordsPerSecond() > 0);
+        }
+        assertEquals(IngestionManager.SourceState.FAILED, stats.get(2).getState());
+        assertNotNull(stats.get(2).getError());
+        assertEquals(-1, stats.get(2).getLagMillis());
+        // both live sources stored into the given storage, the same 10 samples each
+        assertEquals(20, storage.getRecords(42, 0, Long.MAX_VALUE).size());
+
+        manager.stop();
+        assertEquals(IngestionManager.SourceState.STOPPED, manager.getSourceStats().get(0).getState());
+    }
+
+    @Test
+    void testReadDataFailsWithIOExceptionWhenRefused() throws Exception {
+        WebSocketDataReader reader = new WebSocketDataReader("ws://localhost:" + freePort() + "/", 2000);
+        long start = System.nanoTime();
+        assertThrows(IOException.class, () -> reader.readData(new DataStorage()));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), "refusal should not wait for the timeout");
+        assertFalse(reader.isReading());
+    }
+
+    @Test
+    void testDuplicateSourceNamesAreRejected() {
+        manager = new IngestionManager(new DataStorage());
+        manager.addSource("a", new WebSocketDataReader("ws://localhost:1/"));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.addSource("a", new WebSocketDataReader("ws://localhost:1/")));
+    }
+
+    private static void awaitListening(int port) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                new Socket("localhost", port).close();
+                return;
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package data_management;
+
+import com.data_management.DataReaderClass;
+import com.data_management.DataStorage;
+import com.data_management.JsonRecordStreamParser;
+import com.data_management.PatientRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonRecordStreamParserTest {
+
+    private static List<PatientRecord> parse(String json) throws IOException {
+        List<PatientRecord> records = new ArrayList<>();
+        new JsonRecordStreamParser(new StringReader(json)).parse(
+                (id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts)));
+        return records;
+    }
+
+    @Test
+    void testParsesTopLevelArray() throws IOException {
+        List<PatientRecord> records = parse("[\n"
+                + "  {\"patientId\": 1, \"recordType\": \"Saturation\", \"measurementValue\": 97.5, \"timestamp\": 1700000000000},\n"
+                + "  {\"timestamp\": 1700000001000, \"measurementValue\": -0.25, \"recordType\": \"ECG\", \"patientId\": 2}\n"
+                + "]");
+
+        assertEquals(2, records.size());
+        assertEquals(1, records.get(0).getPatientId());
+        assertEquals("Saturation", records.get(0).getRecordType());
+        assertEquals(97.5, records.get(0).getMeasurementValue());
+        assertEquals(1700000000000L, records.get(0).getTimestamp());
+        assertEquals(2, records.get(1).getPatientId());
+        assertEquals(-0.25, records.get(1).getMeasurementValue());
+    }
+
+    @Test
+    void testParsesNewlineDelimitedJson() throws IOException {
+        List<PatientRecord> records = parse(
+                "{\"patientId\":3,\"recordType\":\"HeartRate\",\"measurementValue\":72,\"timestamp\":10}\n"
+                        + "{\"patientId\":3,\"recordType\":\"HeartRate\",\"measurementValue\":1.5e2,\"timestamp\":20}\n");
+
+        assertEquals(2, records.size());
+        assertEquals(72.0, records.get(0).getMeasurementValue());
+        assertEquals(150.0, records.get(1).getMeasurementValue());
+        assertEquals(20L, records.get(1).getTimestamp());
+    }
+
+    @Test
+    void testIgnoresUnknownFieldsAndHandlesEscapes() throws IOException {
+        List<PatientRecord> records = parse("[{\"note\": \"a \\\"quoted\\\" } value\", \"tags\": [1, {\"x\": [2]}],"
+                + " \"ok\": true, \"extra\": null, \"patientId\": 4,"
+                + " \"recordType\": \"Blood\\u0050ressure\", \"measurementValue\": \"120.5\", \"timestamp\": 5}]");
+
+        assertEquals(1, records.size());
+        assertEquals("BloodPressure", records.get(0).getRecordType());
+        assertEquals(120.5, records.get(0).getMeasurementValue());
+    }
+
+    @Test
+    void testSkipsIncompleteOrInvalidRecords() throws IOException {
+        JsonRecordStreamParser parser = new JsonRecordStreamParser(new StringReader("["
+                + "{\"patientId\": 1, \"recordType\": \"ECG\"},"
+                + "{\"patientId\": \"abc\", \"recordType\": \"ECG\", \"measurementValue\": 1, \"timestamp\": 1},"
+                + "{\"patientId\": 1, \"recordType\": \"ECG\", \"measurementValue\": 1, \"timestamp\": 1}"
+                + "]"));
+        List<PatientRecord> records = new ArrayList<>();
+
+        long count = parser.parse((id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts)));
+
+        assertEquals(1, count);
+        assertEquals(1, records.size());
+        assertEquals(2, parser.getSkippedRecords());
+    }
+
+    @Test
+    void testMalformedJsonThrowsIOException() {
+        assertThrows(IOException.class, () -> parse("[{\"patientId\": 1, \"recordType\": \"ECG\""));
+        assertThrows(IOException.class, () -> parse("{ invalid json ..."));
+    }
+
+    @Test
+    void testStreamingReaderStoresRecords() throws IOException {
+        File dir = Files.createTempDirectory("streamdata").toFile();
+        File file = new File(dir, "export.ndjson");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            content.append("{\"patientId\":").append(i % 3 + 1)
+                    .append(",\"recordType\":\"Saturation\",\"measurementValue\":95,\"timestamp\":")
+                    .append(i).append("}\n");
+        }
+        Files.writeString(file.toPath(), content);
+
+        try {
+            DataStorage storage = new DataStorage();
+            new DataReaderClass(dir.getAbsolutePath(), true).readData(storage);
+
+            List<PatientRecord> records = storage.getRecords(1, 0, Long.MAX_VALUE);
+            assertEquals(1000, records.size());
+            for (int i = 1; i < records.size(); i++) {
+                assertTrue(records.get(i - 1).getTimestamp() < records.get(i).getTimestamp());
+            }
+        } finally {
+            file.delete();
+            dir.delete();
+        }
+    }
+}
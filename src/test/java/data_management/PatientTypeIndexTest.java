@@ -0,0 +1,76 @@
+package data_management;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientBitmap;
+import com.data_management.PatientRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatientTypeIndexTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void testBitmapAddContainsAndCardinality() {
+        PatientBitmap bitmap = new PatientBitmap();
+        assertTrue(bitmap.add(5));
+        assertFalse(bitmap.add(5));
+        assertTrue(bitmap.add(70_000));
+        assertTrue(bitmap.add(1));
+
+        assertTrue(bitmap.contains(5));
+        assertTrue(bitmap.contains(70_000));
+        assertFalse(bitmap.contains(6));
+        assertEquals(3, bitmap.cardinality());
+        assertArrayEquals(new int[]{1, 5, 70_000}, bitmap.toArray());
+    }
+
+    @Test
+    void testBitmapSwitchesToDenseContainer() {
+        PatientBitmap bitmap = new PatientBitmap();
+        for (int id = 0; id < 10_000; id += 2) {
+            bitmap.add(id);
+        }
+        assertEquals(5_000, bitmap.cardinality());
+        assertTrue(bitmap.contains(9_998));
+        assertFalse(bitmap.contains(9_999));
+        assertFalse(bitmap.add(4_000));
+
+        int[] ids = bitmap.toArray();
+        assertEquals(0, ids[0]);
+        assertEquals(9_998, ids[ids.length - 1]);
+    }
+
+    @Test
+    void testCrossPatientQueryOnlyReturnsMatchingPatients() {
+        DataStorage storage = new DataStorage();
+        storage.addPatientData(1, 0.4, "ECG", 2 * HOUR + 10);
+        storage.addPatientData(2, 0.3, "ECG", 5 * HOUR);
+        storage.addPatientData(3, 97.0, "Saturation", 2 * HOUR + 20);
+        storage.addPatientData(4, 0.1, "ECG", 2 * HOUR + 30);
+
+        List<Patient> patients = storage.getPatientsWithRecords("ECG", 2 * HOUR, 3 * HOUR - 1);
+        assertEquals(2, patients.size());
+        assertEquals(1, patients.get(0).getPatientId());
+        assertEquals(4, patients.get(1).getPatientId());
+
+        Map<Integer, List<PatientRecord>> byPatient = storage.getRecordsByType("ECG", 2 * HOUR, 3 * HOUR - 1);
+        assertEquals(2, byPatient.size());
+        assertEquals(0.4, byPatient.get(1).get(0).getMeasurementValue());
+    }
+
+    @Test
+    void testQueryFiltersSamplesOutsideRangeWithinSameHour() {
+        DataStorage storage = new DataStorage();
+        storage.addPatientData(1, 0.4, "ECG", 2 * HOUR + 10);
+
+        assertTrue(storage.getPatientsWithRecords("ECG", 2 * HOUR + 20, 2 * HOUR + 30).isEmpty());
+        assertTrue(storage.getPatientsWithRecords("Saturation", 0, Long.MAX_VALUE).isEmpty());
+        assertEquals(1, storage.getPatientsWithRecords("ECG", Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+}
@@ -0,0 +1,127 @@
+package data_management;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.replication.ReplicaDataStorage;
+import com.data_management.replication.ReplicationPrimary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationTest {
+
+    private DataStorage primaryStorage;
+    private ReplicationPrimary primary;
+    private ReplicaDataStorage follower1;
+    private ReplicaDataStorage follower2;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primaryStorage = new DataStorage();
+        primaryStorage.addPatientData(1, 97.0, "Saturation", 1000L);
+        primary = new ReplicationPrimary(primaryStorage, 0);
+
+        follower1 = new ReplicaDataStorage(2000);
+        follower2 = new ReplicaDataStorage(2000);
+        follower1.connect("localhost", primary.getPort());
+        follower2.connect("localhost", primary.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        follower1.close();
+        follower2.close();
+        primary.close();
+    }
+
+    @Test
+    void testFollowersReceiveExistingAndNewRecords() throws Exception {
+        primaryStorage.addPatientData(1, 96.0, "Saturation", 2000L);
+        primaryStorage.addPatientData(2, 120.0, "SystolicPressure", 2500L);
+
+        assertTrue(follower1.awaitSequence(primary.getHeadSequence(), 5000));
+        assertTrue(follower2.awaitSequence(primary.getHeadSequence(), 5000));
+
+        for (ReplicaDataStorage follower : List.of(follower1, follower2)) {
+            List<PatientRecord> records = follower.getRecords(1, 0, Long.MAX_VALUE);
+            assertEquals(2, records.size());
+            assertEquals(97.0, records.get(0).getMeasurementValue());
+            assertEquals(96.0, records.get(1).getMeasurementValue());
+            assertEquals(2, follower.getAllPatients().size());
+        }
+    }
+
+    @Test
+    void testReplicaRejectsWrites() {
+        assertThrows(UnsupportedOperationException.class,
+                () -> follower1.addPatientData(1, 90.0, "Saturation", 3000L));
+    }
+
+    @Test
+    void testLagIsReportedAndBounded() throws Exception {
+        primaryStorage.addPatientData(3, 80.0, "ECG", 4000L);
+        assertTrue(follower1.awaitSequence(primary.getHeadSequence(), 5000));
+        Thread.sleep(300); // let a heartbeat confirm the follower is caught up
+
+        assertEquals(0, follower1.getSequenceLag());
+        assertTrue(follower1.getReplicationLagMillis() < 2000);
+        assertDoesNotThrow(() -> follower1.getRecords(3, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testUnconnectedReplicaRefusesStaleReads() {
+        ReplicaDataStorage detached = new ReplicaDataStorage(100);
+        assertThrows(IllegalStateException.class, () -> detached.getRecords(1, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testFollowerResumesAfterReconnect() throws Exception {
+        assertTrue(follower1.awaitSequence(primary.getHeadSequence(), 5000));
+        follower1.close();
+
+        primaryStorage.addPatientData(4, 70.0, "HeartRate", 5000L);
+        follower1.connect("localhost", primary.getPort());
+
+        assertTrue(follower1.awaitSequence(primary.getHeadSequence(), 5000));
+        assertEquals(1, follower1.getRecords(4, 0, Long.MAX_VALUE).size());
+        assertEquals(1, follower1.getRecords(1, 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void testConnectWhileConnectedIsRejected() {
+        assertThrows(IllegalStateException.class, () -> follower1.connect("localhost", primary.getPort()));
+    }
+
+    @Test
+    void testFollowerBehindTheLogResyncsFromSnapshot() throws Exception {
+        DataStorage storage = new DataStorage();
+        try (ReplicationPrimary smallLog = new ReplicationPrimary(storage,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16);
+             ReplicaDataStorage replica = new ReplicaDataStorage(2000)) {
+            storage.addPatientData(1, 1.0, "ECG", 1L);
+            replica.connect("localhost", smallLog.getPort());
+            assertTrue(replica.awaitSequence(smallLog.getHeadSequence(), 5000));
+            replica.close();
+
+            // more records than the log retains arrive while the replica is away
+            for (int i = 2; i <= 100; i++) {
+                storage.addPatientData(i % 3, i, "ECG", i);
+            }
+            replica.connect("localhost", smallLog.getPort());
+
+            assertTrue(replica.awaitSequence(smallLog.getHeadSequence(), 5000));
+            assertEquals(100, smallLog.getHeadSequence());
+            int total = 0;
+            for (int patientId = 0; patientId < 3; patientId++) {
+                total += replica.getRecords(patientId, 0, Long.MAX_VALUE).size();
+            }
+            assertEquals(100, total);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package data_management;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.RingBuffer;
+import com.data_management.RingBufferIngestStage;
+import com.data_management.WaitStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferIngestStageTest {
+
+    @Test
+    void testRingBufferIsBoundedAndFifo() {
+        RingBuffer<Integer> ring = new RingBuffer<>(3);
+        assertEquals(4, ring.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+
+        List<Integer> drained = new ArrayList<>();
+        List<Boolean> ends = new ArrayList<>();
+        assertEquals(3, ring.drain((element, nanos, end) -> {
+            drained.add(element);
+            ends.add(end);
+        }, 3));
+        assertEquals(List.of(0, 1, 2), drained);
+        assertEquals(List.of(false, false, true), ends);
+
+        assertTrue(ring.offer(5));
+        ring.drain((element, nanos, end) -> drained.add(element), 10);
+        assertEquals(List.of(0, 1, 2, 3, 5), drained);
+        assertEquals(0, ring.drain((element, nanos, end) -> fail(), 10));
+    }
+
+    @Test
+    void testConcurrentProducersAndConsumersLoseNothing() throws InterruptedException {
+        RingBuffer<Integer> ring = new RingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 50_000;
+        ConcurrentHashMap<Integer, Boolean> seen = new ConcurrentHashMap<>();
+        AtomicInteger consumed = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        ring.put(base + i, WaitStrategy.YIELD);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int c = 0; c < 2; c++) {
+            threads.add(new Thread(() -> {
+                int idle = 0;
+                while (consumed.get() < producers * perProducer) {
+                    int n = ring.drain((element, nanos, end) -> {
+                        assertNull(seen.put(element, Boolean.TRUE));
+                        consumed.incrementAndGet();
+                    }, 16);
+                    if (n == 0) {
+                        WaitStrategy.PARK.idle(idle++);
+                    } else {
+                        idle = 0;
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(30_000);
+        }
+
+        assertEquals(producers * perProducer, seen.size());
+    }
+
+    @Test
+    void testStageStoresMessagesInOrderAndCountsMalformed() {
+        DataStorage storage = new DataStorage();
+        RingBufferIngestStage<String> stage = RingBufferIngestStage.forCsv(storage, 1024, 1, WaitStrategy.PARK);
+        try {
+            for (int i = 0; i < 10_000; i++) {
+                assertDoesNotThrow(() -> stage.put("1,1000,Saturation,95.0%"));
+            }
+            for (int i = 0; i < 5000; i++) {
+                int timestamp = i;
+                assertDoesNotThrow(() -> stage.put("2," + timestamp + ",HeartRate," + (60 + timestamp % 40)));
+            }
+            stage.offer("not,a,message");
+        } finally {
+            stage.close();
+        }
+
+        assertEquals(15_001, stage.getEnqueuedCount());
+        assertEquals(15_000, stage.getStoredCount());
+        assertEquals(1, stage.getMalformedCount());
+        assertTrue(stage.getMaxQueueDepth() >= 1);
+        assertEquals(0, stage.getQueueDepth());
+
+        List<PatientRecord> records = storage.getRecords(2, 0, Long.MAX_VALUE);
+        assertEquals(5000, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(i, records.get(i).getTimestamp());
+        }
+        assertFalse(stage.offer("1,1,ECG,1"));
+        assertEquals(1, stage.getRejectedCount());
+    }
+}
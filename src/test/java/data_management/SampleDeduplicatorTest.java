@@ -0,0 +1,105 @@
+package data_management;
+
+import com.data_management.DataStorage;
+import com.data_management.IngestFilter;
+import com.data_management.PatientRecord;
+import com.data_management.SampleDeduplicator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SampleDeduplicatorTest {
+
+    @Test
+    void testDropsRepeatedSamplesInStorage() {
+        DataStorage storage = new DataStorage();
+        SampleDeduplicator deduplicator = new SampleDeduplicator();
+        storage.addIngestFilter(deduplicator);
+
+        storage.addPatientData(1, 0.5, "ECG", 1000L);
+        storage.addPatientData(1, 0.5, "ECG", 1000L);
+        storage.addPatientData(1, 97.0, "Saturation", 1000L); // same timestamp, other type
+        storage.addPatientData(2, 0.5, "ECG", 1000L);          // same timestamp, other patient
+        List<PatientRecord> batch = new ArrayList<>();
+        batch.add(new PatientRecord(1, 0.6, "ECG", 2000L));
+        batch.add(new PatientRecord(1, 0.6, "ECG", 2000L));
+        batch.add(new PatientRecord(1, 0.5, "ECG", 1000L));
+        storage.addPatientRecords(batch);
+
+        assertEquals(3, storage.getRecords(1, 0, Long.MAX_VALUE).size());
+        assertEquals(1, storage.getRecords(2, 0, Long.MAX_VALUE).size());
+        assertEquals(4, deduplicator.getAcceptedCount());
+        assertEquals(3, deduplicator.getDuplicateCount());
+    }
+
+    @Test
+    void testSampleDroppedByLaterFilterIsNotRemembered() {
+        DataStorage storage = new DataStorage();
+        SampleDeduplicator deduplicator = new SampleDeduplicator();
+        IngestFilter shedAll = (patientId, recordType, timestamp, value) -> false;
+        storage.addIngestFilter(deduplicator);
+        storage.addIngestFilter(shedAll);
+
+        storage.addPatientData(1, 0.5, "ECG", 1000L);
+        storage.removeIngestFilter(shedAll);
+        storage.addPatientData(1, 0.5, "ECG", 1000L); // resent after being shed
+
+        assertEquals(1, storage.getRecords(1, 0, Long.MAX_VALUE).size());
+        assertEquals(0, deduplicator.getDuplicateCount());
+    }
+
+    @Test
+    void testOlderDuplicatesAreFoundOutsideRecentWindow() {
+        SampleDeduplicator deduplicator = new SampleDeduplicator(4, 1000, 0.001);
+        for (long t = 0; t < 100; t++) {
+            assertTrue(offer(deduplicator, 1, "ECG", t, 1.0));
+        }
+        // replaying the whole stream: only the Bloom filter still knows the first 96 samples
+        for (long t = 0; t < 100; t++) {
+            assertFalse(offer(deduplicator, 1, "ECG", t, 1.0));
+        }
+        assertEquals(96, deduplicator.getOlderDuplicateCount());
+        assertEquals(100, deduplicator.getDuplicateCount());
+        assertTrue(offer(deduplicator, 1, "ECG", 100, 1.0));
+    }
+
+    @Test
+    void testMemoryIsBoundedByGenerations() {
+        SampleDeduplicator deduplicator = new SampleDeduplicator(4, 100, 0.001);
+        for (long t = 0; t < 1000; t++) {
+            offer(deduplicator, 1, "ECG", t, 1.0);
+        }
+        // samples from more than two generations ago are forgotten
+        assertTrue(offer(deduplicator, 1, "ECG", 0, 1.0));
+        // the last generation is still known
+        assertFalse(offer(deduplicator, 1, "ECG", 950, 1.0));
+    }
+
+    @Test
+    void testFalsePositiveRateIsNearConfigured() {
+        SampleDeduplicator deduplicator = new SampleDeduplicator(1, 100_000, 0.01);
+        for (long t = 0; t < 100_000; t++) {
+            offer(deduplicator, (int) (t % 100), "ECG", t * 2, 1.0);
+        }
+        int falsePositives = 0;
+        for (long t = 0; t < 10_000; t++) {
+            // odd timestamps were never seen and are older than every window
+            if (!offer(deduplicator, (int) (t % 100), "ECG", t * 2 + 1, 1.0)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    // Checks a sample and remembers it if accepted, as a storage with no other filters would
+    private static boolean offer(SampleDeduplicator deduplicator, int patientId, String recordType, long timestamp, double value) {
+        if (!deduplicator.accept(patientId, recordType, timestamp, value)) {
+            return false;
+        }
+        deduplicator.onAccepted(patientId, recordType, timestamp, value);
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+package data_management;
+
+import com.alerts.Alert;
+import com.alerts.AlertGenerator;
+import com.data_management.PatientRecord;
+import com.data_management.SampleDeduplicator;
+import com.data_management.ShardedDataStorage;
+import com.data_management.WaitStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedDataStorageTest {
+
+    private ShardedDataStorage storage;
+
+    @AfterEach
+    void tearDown() {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    @Test
+    void testEachPatientIsHandledByOneShardThread() {
+        storage = new ShardedDataStorage(4, 64, WaitStrategy.PARK, null);
+        Map<Integer, Set<String>> threadsByPatient = new ConcurrentHashMap<>();
+        storage.addRecordListener(record -> threadsByPatient
+                .computeIfAbsent(record.getPatientId(), id -> ConcurrentHashMap.newKeySet())
+                .add(Thread.currentThread().getName()));
+
+        List<PatientRecord> batch = new ArrayList<>();
+        for (int t = 0; t < 20; t++) {
+            for (int patient = 1; patient <= 10; patient++) {
+                batch.add(new PatientRecord(patient, t, "HeartRate", 1000L + t));
+            }
+        }
+        storage.addPatientRecords(batch);
+        batch.clear();
+        storage.addPatientData(3, 99, "HeartRate", 5000L);
+
+        List<PatientRecord> records = storage.getRecords(3, 0, Long.MAX_VALUE);
+        assertEquals(21, records.size());
+        for (int t = 0; t < 20; t++) {
+            assertEquals(1000L + t, records.get(t).getTimestamp());
+        }
+        assertEquals(10, storage.getAllPatients().size());
+        assertEquals(10, storage.getRecordsByType("HeartRate", 0, Long.MAX_VALUE).size());
+        assertEquals(201, storage.getStoredCount());
+
+        Set<String> allThreads = ConcurrentHashMap.newKeySet();
+        threadsByPatient.values().forEach(threads -> {
+            assertEquals(1, threads.size());
+            allThreads.addAll(threads);
+        });
+        assertEquals(4, allThreads.size());
+    }
+
+    @Test
+    void testShardsEvaluateTheirPatientsWithTheirOwnAlertState() throws Exception {
+        List<Alert> alerts = new CopyOnWriteArrayList<>();
+        Set<Object> generators = ConcurrentHashMap.newKeySet();
+        storage = new ShardedDataStorage(2, 64, WaitStrategy.PARK, () -> {
+            AlertGenerator generator = new AlertGenerator() {
+                @Override
+                protected void triggerAlert(Alert alert) {
+                    alerts.add(alert);
+                }
+            };
+            generators.add(generator);
+            return generator::evaluateData;
+        });
+        long now = System.currentTimeMillis();
+        storage.addPatientData(1, 97, "Saturation", now);
+        storage.addPatientData(2, 88, "Saturation", now);
+        storage.flush().get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, generators.size());
+        assertEquals(1, alerts.size());
+        assertEquals("2", alerts.get(0).getPatientId());
+        assertEquals(0, storage.getFailedTaskCount());
+    }
+
+    @Test
+    void testFiltersRunOnShardsAndClosedStorageRejectsRecords() {
+        storage = new ShardedDataStorage(3, 16, WaitStrategy.PARK, null);
+        storage.addIngestFilter(new SampleDeduplicator());
+        for (int i = 0; i < 2; i++) {
+            storage.addPatientData(5, 120, "SystolicPressure", 1000L);
+        }
+        assertEquals(1, storage.getRecords(5, 0, Long.MAX_VALUE).size());
+        assertEquals(2, storage.query(5, patient -> patient.getRecords(0, Long.MAX_VALUE).size() + 1).join());
+        assertNull(storage.query(6, patient -> patient).join());
+
+        storage.close();
+        assertThrows(IllegalStateException.class, () -> storage.addPatientData(5, 120, "SystolicPressure", 2000L));
+    }
+
+    @Test
+    void testQueriesConcurrentWithCloseAreAnsweredOrRejected() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 50; round++) {
+                ShardedDataStorage closing = new ShardedDataStorage(2, 16, WaitStrategy.PARK, null);
+                closing.addPatientData(1, 80, "HeartRate", 1000L);
+                List<Future<?>> queries = new ArrayList<>();
+                for (int c = 0; c < 4; c++) {
+                    int patientId = c;
+                    queries.add(clients.submit(() -> {
+                        try {
+                            while (true) {
+                                closing.getRecords(patientId, 0, Long.MAX_VALUE);
+                                closing.flush().join();
+                            }
+                        } catch (IllegalStateException e) {
+                            // closed
+                        }
+                    }));
+                }
+                Thread.sleep(1);
+                closing.close();
+                for (Future<?> query : queries) {
+                    // a query accepted but never run would block here
+                    query.get(5, TimeUnit.SECONDS);
+                }
+                assertEquals(1, closing.getStoredCount());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+}
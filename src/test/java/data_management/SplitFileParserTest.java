@@ -0,0 +1,133 @@
+package data_management;
+
+import com.data_management.DataStorage;
+import com.data_management.IngestionStats;
+import com.data_management.PatientRecord;
+import com.data_management.SplitFileParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SplitFileParserTest {
+
+    private static final int PATIENTS = 7;
+    private static final int RECORDS = 5000;
+
+    private File tempDir;
+    private ForkJoinPool pool;
+    private DataStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("splitdata").toFile();
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        for (File file : Objects.requireNonNull(tempDir.listFiles())) {
+            file.delete();
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    void testTextFileRangesStartOnLines() throws IOException {
+        File file = write("ECG.txt", (i, sb) -> sb.append("Patient ID: ").append(i % PATIENTS + 1)
+                .append(", Timestamp: ").append(i).append(", Label: ECG, Data: ").append(i * 0.5).append('\n'));
+        SplitFileParser parser = new SplitFileParser(pool, 4096);
+
+        List<SplitFileParser.Range> ranges = parser.split(file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        assertTrue(ranges.size() > 10);
+        assertEquals(0, ranges.get(0).getStart());
+        assertEquals(bytes.length, ranges.get(ranges.size() - 1).getEnd());
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).getEnd(), ranges.get(i).getStart());
+            assertEquals('\n', bytes[(int) ranges.get(i).getStart() - 1]);
+        }
+        assertStoredInOrder(parser.parse(file, storageFor()));
+    }
+
+    @Test
+    void testJsonArrayRangesStartOnObjects() throws IOException {
+        File file = new File(tempDir, "export.json");
+        StringBuilder content = new StringBuilder("[");
+        for (int i = 0; i < RECORDS; i++) {
+            content.append(i == 0 ? "\n  " : ",\n  ")
+                    .append("{\"patientId\": ").append(i % PATIENTS + 1)
+                    .append(", \"recordType\": \"Saturation\", \"measurementValue\": ").append(i * 0.5)
+                    .append(", \"timestamp\": ").append(i).append('}');
+        }
+        Files.writeString(file.toPath(), content.append("\n]\n"));
+        SplitFileParser parser = new SplitFileParser(pool, 4096);
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        for (SplitFileParser.Range range : parser.split(file)) {
+            if (range.getStart() > 0) {
+                assertEquals('{', bytes[(int) range.getStart()]);
+            }
+        }
+        assertStoredInOrder(parser.parse(file, storageFor()));
+    }
+
+    @Test
+    void testNdjsonFile() throws IOException {
+        File file = write("export.ndjson", (i, sb) -> sb.append("{\"patientId\":").append(i % PATIENTS + 1)
+                .append(",\"recordType\":\"HeartRate\",\"measurementValue\":").append(i * 0.5)
+                .append(",\"timestamp\":").append(i).append("}\n"));
+
+        assertStoredInOrder(new SplitFileParser(pool, 1000).parse(file, storageFor()));
+    }
+
+    @Test
+    void testUnsupportedFileTypeThrowsIOException() throws IOException {
+        File file = new File(tempDir, "data.csv");
+        Files.writeString(file.toPath(), "1,2,3,4\n");
+        assertThrows(IOException.class, () -> new SplitFileParser(pool, 1000).parse(file, new DataStorage()));
+    }
+
+    private DataStorage storageFor() {
+        storage = new DataStorage();
+        return storage;
+    }
+
+    private void assertStoredInOrder(IngestionStats stats) {
+        assertEquals(RECORDS, stats.getRecords());
+        for (int patient = 1; patient <= PATIENTS; patient++) {
+            List<PatientRecord> records = storage.getRecords(patient, 0, Long.MAX_VALUE);
+            long expected = patient - 1;
+            for (PatientRecord record : records) {
+                assertEquals(expected, record.getTimestamp());
+                assertEquals(expected * 0.5, record.getMeasurementValue());
+                expected += PATIENTS;
+            }
+            assertTrue(expected >= RECORDS);
+        }
+    }
+
+    private interface LineWriter {
+        void write(int index, StringBuilder out);
+    }
+
+    private File write(String name, LineWriter lines) throws IOException {
+        File file = new File(tempDir, name);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < RECORDS; i++) {
+            lines.write(i, content);
+        }
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+}
@@ -0,0 +1,99 @@
+package data_management;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.Subscription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionTest {
+
+    private DataStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new DataStorage();
+    }
+
+    @Test
+    void testCallbackReceivesOnlyMatchingRecords() {
+        List<PatientRecord> received = new ArrayList<>();
+        storage.subscribe("Saturation", Set.of(1, 2), v -> v < 92, received::add);
+
+        storage.addPatientData(1, 95, "Saturation", 1000L);   // value does not match
+        storage.addPatientData(1, 90, "Saturation", 1001L);   // match
+        storage.addPatientData(3, 85, "Saturation", 1002L);   // other patient
+        storage.addPatientData(2, 88, "ECG", 1003L);          // other type
+        storage.addPatientData(2, 89, "Saturation", 1004L);   // match
+
+        assertEquals(2, received.size());
+        assertEquals(90.0, received.get(0).getMeasurementValue());
+        assertEquals(2, received.get(1).getPatientId());
+    }
+
+    @Test
+    void testWildcardTypeAndPatient() {
+        List<PatientRecord> anyType = new ArrayList<>();
+        List<PatientRecord> anyPatient = new ArrayList<>();
+        storage.subscribe(null, Set.of(7), null, anyType::add);
+        storage.subscribe("ECG", null, null, anyPatient::add);
+
+        storage.addPatientData(7, 0.5, "ECG", 1000L);
+        storage.addPatientData(7, 97, "Saturation", 1001L);
+        storage.addPatientData(8, 0.4, "ECG", 1002L);
+
+        assertEquals(2, anyType.size());
+        assertEquals(2, anyPatient.size());
+    }
+
+    @Test
+    void testQueueSubscription() throws InterruptedException {
+        BlockingQueue<PatientRecord> queue = new LinkedBlockingQueue<>();
+        Subscription subscription = storage.subscribe("SystolicPressure", null, v -> v >= 180, queue);
+
+        storage.addPatientData(4, 185, "SystolicPressure", 1000L);
+
+        PatientRecord record = queue.poll(1, TimeUnit.SECONDS);
+        assertNotNull(record);
+        assertEquals(4, record.getPatientId());
+        assertEquals(1, subscription.getDeliveredCount());
+    }
+
+    @Test
+    void testCancelStopsDelivery() {
+        List<PatientRecord> received = new ArrayList<>();
+        Subscription subscription = storage.subscribe("ECG", Set.of(1), null, received::add);
+        assertEquals(1, storage.getSubscriptionCount());
+
+        subscription.cancel();
+        subscription.cancel();
+        storage.addPatientData(1, 0.5, "ECG", 1000L);
+
+        assertTrue(received.isEmpty());
+        assertFalse(subscription.isActive());
+        assertEquals(0, storage.getSubscriptionCount());
+    }
+
+    @Test
+    void testManySubscriptionsForOtherPatientsAreNotVisited() {
+        for (int id = 0; id < 10_000; id++) {
+            storage.subscribe("ECG", Set.of(id), v -> {
+                throw new AssertionError("condition of another patient evaluated");
+            }, r -> { });
+        }
+        List<PatientRecord> received = new ArrayList<>();
+        storage.subscribe("ECG", Set.of(20_000), null, received::add);
+
+        storage.addPatientData(20_000, 0.1, "ECG", 1000L);
+        assertEquals(1, received.size());
+    }
+}
@@ -0,0 +1,139 @@
+package data_management;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.TailingDataReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TailingDataReaderTest {
+
+    private File tempDir;
+    private File dataDir;
+    private String checkpoint;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("tailing").toFile();
+        dataDir = new File(tempDir, "output");
+        assertTrue(dataDir.mkdir());
+        checkpoint = new File(tempDir, "offsets.properties").getAbsolutePath();
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (File file : Objects.requireNonNull(dataDir.listFiles())) {
+            file.delete();
+        }
+        dataDir.delete();
+        for (File file : Objects.requireNonNull(tempDir.listFiles())) {
+            file.delete();
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    void testReadsOnlyAppendedCompleteLines() throws IOException {
+        append("ECG.txt", line(1, 1000, "ECG", "0.5"));
+        append("ECG.txt", "Patient ID: 1, Timestamp: 2000, Label: ECG, Da"); // still being written
+
+        TailingDataReader reader = new TailingDataReader(dataDir.getAbsolutePath(), checkpoint);
+        DataStorage storage = new DataStorage();
+
+        assertEquals(1, reader.poll(storage));
+        assertEquals(0, reader.poll(storage));
+        append("ECG.txt", "ta: 0.75\n" + line(1, 3000, "ECG", "0.25"));
+        assertEquals(2, reader.poll(storage));
+
+        List<PatientRecord> records = storage.getRecords(1, 0, Long.MAX_VALUE);
+        assertEquals(3, records.size());
+        assertEquals(0.75, records.get(1).getMeasurementValue());
+    }
+
+    @Test
+    void testResumesFromCheckpointWithoutDuplicates() throws IOException {
+        append("Saturation.txt", line(2, 1000, "Saturation", "97.0%") + line(2, 2000, "Saturation", "96.0%"));
+        append("HeartRate.ndjson", "{\"patientId\":2,\"recordType\":\"HeartRate\",\"measurementValue\":70,\"timestamp\":1500}\n");
+        new TailingDataReader(dataDir.getAbsolutePath(), checkpoint).poll(new DataStorage());
+
+        append("Saturation.txt", line(2, 3000, "Saturation", "95.0%"));
+        DataStorage restarted = new DataStorage();
+        TailingDataReader reader = new TailingDataReader(dataDir.getAbsolutePath(), checkpoint);
+
+        assertEquals(1, reader.poll(restarted));
+        List<PatientRecord> records = restarted.getRecords(2, 0, Long.MAX_VALUE);
+        assertEquals(1, records.size());
+        assertEquals(3000L, records.get(0).getTimestamp());
+        assertEquals(new File(dataDir, "Saturation.txt").length(), reader.getOffsets().get("Saturation.txt"));
+    }
+
+    @Test
+    void testTruncatedFileIsReadFromStart() throws IOException {
+        append("ECG.txt", line(3, 1000, "ECG", "0.1") + line(3, 2000, "ECG", "0.2"));
+        TailingDataReader reader = new TailingDataReader(dataDir.getAbsolutePath(), checkpoint);
+        DataStorage storage = new DataStorage();
+        reader.poll(storage);
+
+        Files.writeString(new File(dataDir, "ECG.txt").toPath(), line(3, 5000, "ECG", "0.9"));
+
+        assertEquals(1, reader.poll(storage));
+        assertEquals(3, storage.getRecords(3, 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void testFileReplacedByLargerOneIsReadFromStart() throws IOException {
+        append("ECG.txt", line(5, 1000, "ECG", "0.1"));
+        DataStorage storage = new DataStorage();
+        new TailingDataReader(dataDir.getAbsolutePath(), checkpoint).poll(storage);
+
+        // rotated: a new, larger file takes the old one's name
+        File replacement = new File(dataDir, "ECG.txt.new");
+        Files.writeString(replacement.toPath(),
+                line(5, 5000, "ECG", "0.5") + line(5, 6000, "ECG", "0.6") + line(5, 7000, "ECG", "0.7"));
+        Files.move(replacement.toPath(), new File(dataDir, "ECG.txt").toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        TailingDataReader restarted = new TailingDataReader(dataDir.getAbsolutePath(), checkpoint);
+        assertEquals(3, restarted.poll(storage));
+        List<PatientRecord> records = storage.getRecords(5, 0, Long.MAX_VALUE);
+        assertEquals(4, records.size());
+        assertEquals(5000L, records.get(1).getTimestamp());
+    }
+
+    @Test
+    void testFollowsDirectoryInBackground() throws Exception {
+        TailingDataReader reader = new TailingDataReader(dataDir.getAbsolutePath(), checkpoint, 50);
+        DataStorage storage = new DataStorage();
+        reader.readData(storage);
+        try {
+            append("ECG.txt", line(4, 1000, "ECG", "0.3"));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (storage.getRecords(4, 0, Long.MAX_VALUE).isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, storage.getRecords(4, 0, Long.MAX_VALUE).size());
+        } finally {
+            reader.stopReading();
+        }
+    }
+
+    private static String line(int patientId, long timestamp, String label, String data) {
+        return "Patient ID: " + patientId + ", Timestamp: " + timestamp + ", Label: " + label + ", Data: " + data + "\n";
+    }
+
+    private void append(String name, String content) throws IOException {
+        Files.writeString(new File(dataDir, name).toPath(), content, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
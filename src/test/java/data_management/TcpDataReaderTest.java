@@ -0,0 +1,123 @@
+package data_management;
+
+import com.data_management.BinaryRecordCodec;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.TcpDataReader;
+import com.data_management.WireFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TcpDataReaderTest {
+
+    private TcpDataReader reader;
+
+    @AfterEach
+    void tearDown() {
+        if (reader != null) {
+            reader.stopReading();
+        }
+    }
+
+    @Test
+    void testReadsLinesSplitAcrossWrites() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            reader = new TcpDataReader("localhost", server.getLocalPort());
+            DataStorage storage = new DataStorage();
+            reader.readData(storage);
+
+            try (Socket socket = server.accept()) {
+                OutputStream out = socket.getOutputStream();
+                out.write(ascii("1,1000,ECG,0.5\n1,2000,Satur"));
+                out.flush();
+                Thread.sleep(50);
+                out.write(ascii("ation,97.0%\r\nnot a record\n\n2,3000,Alert,triggered"));
+            }
+            awaitStopped();
+
+            List<PatientRecord> records = storage.getRecords(1, 0, Long.MAX_VALUE);
+            assertEquals(2, records.size());
+            assertEquals("Saturation", records.get(1).getRecordType());
+            assertEquals(97.0, records.get(1).getMeasurementValue());
+            // the last line had no newline but the stream ended
+            assertEquals(1.0, storage.getRecords(2, 0, Long.MAX_VALUE).get(0).getMeasurementValue());
+            assertEquals(3, reader.getStoredCount());
+            assertEquals(1, reader.getMalformedCount());
+        }
+    }
+
+    @Test
+    void testReadsBinaryFramesFromSeveralEndpoints() throws Exception {
+        try (ServerSocket first = new ServerSocket(0); ServerSocket second = new ServerSocket(0)) {
+            reader = new TcpDataReader(Arrays.asList(
+                    new InetSocketAddress("localhost", first.getLocalPort()),
+                    new InetSocketAddress("localhost", second.getLocalPort())), WireFormat.BINARY);
+            DataStorage storage = new DataStorage();
+            reader.readData(storage);
+
+            try (Socket a = first.accept(); Socket b = second.accept()) {
+                sendFrames(a.getOutputStream(), 1, 100);
+                sendFrames(b.getOutputStream(), 2, 100);
+            }
+            awaitStopped();
+
+            assertEquals(100, storage.getRecords(1, 0, Long.MAX_VALUE).size());
+            List<PatientRecord> records = storage.getRecords(2, 0, Long.MAX_VALUE);
+            assertEquals(100, records.size());
+            assertEquals(99 * 0.5, records.get(99).getMeasurementValue());
+            assertEquals(200, reader.getStoredCount());
+        }
+    }
+
+    @Test
+    void testStopsWhenEndpointRefusesConnection() throws Exception {
+        int port;
+        try (ServerSocket server = new ServerSocket(0)) {
+            port = server.getLocalPort();
+        }
+        reader = new TcpDataReader("localhost", port);
+        reader.readData(new DataStorage());
+        awaitStopped();
+        assertEquals(0, reader.getStoredCount());
+    }
+
+    // Writes the frames one byte at a time so that frames are split across reads
+    private static void sendFrames(OutputStream out, int patientId, int count) throws IOException {
+        BinaryRecordCodec.Encoder encoder = new BinaryRecordCodec.Encoder();
+        ByteBuffer frames = ByteBuffer.allocate(count * BinaryRecordCodec.FULL_FRAME_SIZE);
+        for (int i = 0; i < count; i++) {
+            encoder.encode(patientId, 1000L + i, "ECG", i * 0.5, frames);
+        }
+        for (int i = 0; i < frames.position(); i++) {
+            out.write(frames.get(i));
+            if (i % 64 == 0) {
+                out.flush();
+            }
+        }
+        out.flush();
+    }
+
+    private void awaitStopped() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (reader.isReading() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(reader.isReading());
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
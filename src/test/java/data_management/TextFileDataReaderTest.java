@@ -0,0 +1,153 @@
+package data_management;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.TextFileDataReader;
+import com.cardio_generator.outputs.FileOutputStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextFileDataReaderTest {
+
+    private File tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("textdata").toFile();
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (File file : Objects.requireNonNull(tempDir.listFiles())) {
+            file.delete();
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    void testReadsBackFileOutputStrategyFiles() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(tempDir.getAbsolutePath());
+        output.output(1, 1000L, "Saturation", "97.0%");
+        output.output(1, 2000L, "ECG", "-0.6183051851111978");
+        output.output(2, 3000L, "Alert", "triggered");
+        output.output(2, 4000L, "Alert", "resolved");
+        output.output(2, 5000L, "Cholesterol", "182.47");
+
+        DataStorage storage = new DataStorage();
+        new TextFileDataReader(tempDir.getAbsolutePath()).readData(storage);
+
+        List<PatientRecord> first = storage.getRecords(1, 0, Long.MAX_VALUE);
+        assertEquals(2, first.size());
+        assertEquals(97.0, valueOf(first, "Saturation"));
+        assertEquals(-0.6183051851111978, valueOf(first, "ECG"));
+
+        List<PatientRecord> second = storage.getRecords(2, 0, Long.MAX_VALUE);
+        assertEquals(3, second.size());
+        assertEquals(182.47, valueOf(second, "Cholesterol"));
+        assertEquals(1.0, second.stream().filter(r -> r.getTimestamp() == 3000L).findFirst().get().getMeasurementValue());
+        assertEquals(0.0, second.stream().filter(r -> r.getTimestamp() == 4000L).findFirst().get().getMeasurementValue());
+    }
+
+    @Test
+    void testSkipsMalformedLinesAndHandlesWindowBoundaries() throws IOException {
+        File file = new File(tempDir, "HeartRate.txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            content.append("Patient ID: 7, Timestamp: ").append(i).append(", Label: HeartRate, Data: ")
+                    .append(60 + i % 40).append(i % 2 == 0 ? "\n" : "\r\n");
+            if (i % 100 == 0) {
+                content.append("not a record\n");
+            }
+        }
+        content.append("Patient ID: 7, Timestamp: 500, Label: HeartRate, Data: 61"); // no trailing newline
+        Files.writeString(file.toPath(), content);
+
+        List<PatientRecord> records = new ArrayList<>();
+        // a 128-byte window forces many cuts in the middle of lines
+        long count = new TextFileDataReader(tempDir.getAbsolutePath(), 128)
+                .readFile(file, (id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts)));
+
+        assertEquals(501, count);
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, records.get(i).getTimestamp());
+            assertEquals(60 + i % 40, records.get(i).getMeasurementValue());
+            assertEquals("HeartRate", records.get(i).getRecordType());
+        }
+        assertEquals(61.0, records.get(500).getMeasurementValue());
+    }
+
+    @Test
+    void testReadsBackRotatingCompressedSegments() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(tempDir.getAbsolutePath(), true, 4096, 0);
+        for (int i = 0; i < 1000; i++) {
+            output.output(i % 10, 1000L + i, "ECG", Double.toString(Math.sin(i)));
+        }
+        output.output(3, 50_000L, "Saturation", "95.0%");
+        output.close();
+
+        String[] segments = tempDir.list((dir, name) -> name.startsWith("ECG-") && name.endsWith(".txt.gz"));
+        assertTrue(segments.length > 5, "segments: " + segments.length);
+        assertFalse(new File(tempDir, "ECG.txt").exists());
+
+        DataStorage storage = new DataStorage();
+        new TextFileDataReader(tempDir.getAbsolutePath()).readData(storage);
+        int total = 0;
+        for (int patient = 0; patient < 10; patient++) {
+            total += storage.getRecords(patient, 0, Long.MAX_VALUE).size();
+        }
+        assertEquals(1001, total);
+        assertEquals(95.0, valueOf(storage.getRecords(3, 50_000L, 50_000L), "Saturation"));
+    }
+
+    @Test
+    void testReadsOpenSegmentUpToItsLastFlush() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(tempDir.getAbsolutePath(), true);
+        for (int i = 0; i < 100; i++) {
+            output.output(1, 1000L + i, "HeartRate", Integer.toString(60 + i % 30));
+        }
+        output.flush();
+        output.output(1, 5000L, "HeartRate", "70");
+
+        // the segment has no trailer yet and its last line is still in the buffer
+        File segment = new File(tempDir, "HeartRate-00000.txt.gz");
+        List<PatientRecord> records = new ArrayList<>();
+        long count = new TextFileDataReader(tempDir.getAbsolutePath())
+                .readFile(segment, (id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts)));
+        assertEquals(100, count);
+        assertEquals(1099L, records.get(99).getTimestamp());
+
+        // a crash may also cut the file in the middle of a flushed block
+        output.close();
+        byte[] bytes = Files.readAllBytes(segment.toPath());
+        Files.write(segment.toPath(), Arrays.copyOf(bytes, bytes.length - 30));
+        records.clear();
+        count = new TextFileDataReader(tempDir.getAbsolutePath())
+                .readFile(segment, (id, value, type, ts) -> records.add(new PatientRecord(id, value, type, ts)));
+        assertTrue(count >= 90 && count <= 100, "records: " + count);
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(1000L + i, records.get(i).getTimestamp());
+            assertEquals(60 + i % 30, records.get(i).getMeasurementValue());
+        }
+    }
+
+    @Test
+    void testMissingDirectoryThrowsIOException() {
+        TextFileDataReader reader = new TextFileDataReader(new File(tempDir, "missing").getAbsolutePath());
+        assertThrows(IOException.class, () -> reader.readData(new DataStorage()));
+    }
+
+    private static double valueOf(List<PatientRecord> records, String type) {
+        return records.stream().filter(r -> r.getRecordType().equals(type)).findFirst().get().getMeasurementValue();
+    }
+}
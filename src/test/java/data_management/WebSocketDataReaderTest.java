@@ -0,0 +1,35 @@
+package data_management;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.WebSocketDataReader;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketDataReaderTest {
+
+    @Test
+    void testMessagesProcessedBeforeConnectGoToTheSharedStorage() {
+        int patientId = 904_211;
+        TestReader reader = new TestReader();
+        reader.receive(patientId + ",1000,Saturation,97%");
+
+        List<PatientRecord> records = DataStorage.getInstance().getRecords(patientId, 0, Long.MAX_VALUE);
+        assertEquals(1, records.size());
+        assertEquals(97.0, records.get(0).getMeasurementValue());
+        assertEquals(1, reader.getStoredCount());
+    }
+
+    private static class TestReader extends WebSocketDataReader {
+        TestReader() {
+            super("ws://localhost:1/");
+        }
+
+        void receive(String message) {
+            processMessage(message);
+        }
+    }
+}